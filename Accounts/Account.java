@@ -1,11 +1,23 @@
 package Accounts;
 
 import Bank.Bank;
+import Processes.AccountLocks;
+import Processes.Money;
 import Processes.Transaction;
 import java.util.ArrayList;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 /**
  * An abstract account class that has comparators to compare itself with different account objects.
+ * The balance of an account is kept in a BalanceCell, updated without locks. Its transactions are
+ * only logged while holding its lock in AccountLocks, which every transaction on two accounts also
+ * takes, so accounts can be used from many threads.
  */
 public abstract class Account {
     //A constant bank object associated to this account.
@@ -21,18 +33,58 @@ public abstract class Account {
      * 3. A successful payment.
      * 4. A successful fund transfer.
      */
-    private final ArrayList<Transaction> transactions;
+    private final TransactionHistory transactions;
+    //Accounts changed since they were last saved.
+    private static final Set<Account> changedAccounts = ConcurrentHashMap.newKeySet();
 
     //Constructor
     public Account(Bank bank, String accountNumber, String pin, String ownerFname,
                    String ownerLname, String ownerEmail) {
+        this(bank, accountNumber, pin, ownerFname, ownerLname, ownerEmail, new TransactionHistory());
+    }
+
+    private Account(Bank bank, String accountNumber, String pin, String ownerFname,
+                    String ownerLname, String ownerEmail, TransactionHistory transactions) {
         this.bank = bank;
         this.accountNumber = accountNumber;
         this.pin = pin;
         this.ownerFname = ownerFname;
         this.ownerLname = ownerLname;
         this.ownerEmail = ownerEmail;
-        this.transactions = new ArrayList<>();
+        this.transactions = transactions;
+    }
+
+    /**
+     * Copy constructor used by copy(). The copy belongs to the same bank and shares the transactions
+     * of the account up to now, without copying them, but keeps a history of its own.
+     *
+     * @param account – Account to be copied. Its lock must be held.
+     */
+    protected Account(Account account) {
+        this(account.bank, account.accountNumber, account.pin, account.ownerFname, account.ownerLname,
+                account.ownerEmail, account.transactions.copy());
+    }
+
+    /**
+     * Create a copy of this account and its balance. Called by snapshot() while holding the lock of this account.
+     *
+     * @return A new account of the same type.
+     */
+    protected abstract Account copy();
+
+    /**
+     * Get a copy of this account, taken while holding its lock so no transaction is logged meanwhile.
+     * The copy is not registered anywhere, so it can be saved from another thread, such as for a checkpoint.
+     *
+     * @return A copy of this account.
+     */
+    public Account snapshot() {
+        AccountLocks.lock(this);
+        try {
+            return copy();
+        } finally {
+            AccountLocks.unlock(this);
+        }
     }
 
     //Getters
@@ -60,14 +112,152 @@ public abstract class Account {
         return accountNumber;
     }
 
+    /**
+     * Get a copy of the transactions logged into this account. Prefer transactions() when the
+     * transactions are only read, since this creates an object per transaction.
+     *
+     * @return A new list of the transactions of this account.
+     */
     public ArrayList<Transaction> getTransactions() {
-        return new ArrayList<>(transactions);
+        return new ArrayList<>(transactions());
+    }
+
+    /**
+     * Get a read-only snapshot of the transactions logged into this account, in the order they occurred.
+     * The snapshot is taken under the lock of this account and shares its history without copying it,
+     * so it can be read from any thread. Transactions logged afterwards are not part of it.
+     *
+     * @return A read-only snapshot of the transactions.
+     */
+    public List<Transaction> transactions() {
+        return readTransactions(TransactionHistory::view);
+    }
+
+    /**
+     * Get a page of the transactions logged into this account.
+     *
+     * @param offset – Number of transactions to skip, from the oldest one.
+     * @param limit – Maximum number of transactions in the page.
+     * @return The transactions of the page, in the order they were logged.
+     */
+    public List<Transaction> getTransactions(int offset, int limit) {
+        return readTransactions(history -> history.page(offset, limit));
+    }
+
+    /**
+     * Get a page of the transactions of some type logged into this account.
+     *
+     * @param type – Type of the transactions.
+     * @param offset – Number of transactions of that type to skip, from the oldest one.
+     * @param limit – Maximum number of transactions in the page.
+     * @return The transactions of the page, in the order they were logged.
+     */
+    public List<Transaction> getTransactions(Transaction.Transactions type, int offset, int limit) {
+        return readTransactions(history -> history.page(type, offset, limit));
+    }
+
+    /**
+     * Get a page of the transactions logged into this account within a time range.
+     *
+     * @param from – Start of the range, inclusive.
+     * @param to – End of the range, inclusive.
+     * @param offset – Number of transactions within the range to skip, from the oldest one.
+     * @param limit – Maximum number of transactions in the page.
+     * @return The transactions of the page, in the order they occurred.
+     */
+    public List<Transaction> getTransactions(LocalDateTime from, LocalDateTime to, int offset, int limit) {
+        return readTransactions(history -> history.page(from, to, offset, limit));
+    }
+
+    /**
+     * Get the latest transactions logged into this account.
+     *
+     * @param count – Maximum number of transactions.
+     * @return The latest transactions, in the order they occurred.
+     */
+    public List<Transaction> getLatestTransactions(int count) {
+        return readTransactions(history -> history.latest(count));
+    }
+
+    /**
+     * Get the latest transactions logged into this account as of some point in time.
+     *
+     * @param time – Point in time, inclusive.
+     * @param count – Maximum number of transactions.
+     * @return The latest transactions that occurred at or before that time, in the order they occurred.
+     */
+    public List<Transaction> getLatestTransactions(LocalDateTime time, int count) {
+        return readTransactions(history -> history.latest(time, count));
+    }
+
+    /**
+     * Get the number of transactions logged into this account.
+     *
+     * @return Number of transactions.
+     */
+    public int getTransactionCount() {
+        return readTransactions(TransactionHistory::size);
+    }
+
+    //Reads the history while holding the lock of this account, so no transaction is logged meanwhile.
+    private <T> T readTransactions(Function<TransactionHistory, T> read) {
+        AccountLocks.lock(this);
+        try {
+            return read.apply(transactions);
+        } finally {
+            AccountLocks.unlock(this);
+        }
     }
 
     public String getOwnerFullName() {
         return String.format("%s %s",this.ownerFname, this.ownerLname);
     }
 
+    /**
+     * Get the balance recorded in this account, in centavos. For credit accounts, this is the loan balance.
+     *
+     * @return Current balance of this account, in centavos.
+     */
+    public long getBalanceCents() {
+        return getBalanceCell().get();
+    }
+
+    /**
+     * Restore the balance of this account to a previously recorded value, such as when recovering
+     * from the database. No transaction is logged, and the account is not marked as changed.
+     *
+     * @param balance – Balance to be restored, in centavos. For credit accounts, this is the loan balance.
+     */
+    public void restoreBalanceCents(long balance) {
+        getBalanceCell().set(balance);
+    }
+
+    /**
+     * Get the cell holding the balance of this account, which is updated without locks.
+     * For credit accounts, this is the loan balance.
+     *
+     * @return The balance cell of this account.
+     */
+    public abstract BalanceCell getBalanceCell();
+
+    /**
+     * Get the balance recorded in this account. For credit accounts, this is the loan balance.
+     *
+     * @return Current balance of this account.
+     */
+    public double getBalance() {
+        return Money.toAmount(getBalanceCents());
+    }
+
+    /**
+     * Same as restoreBalanceCents(), with a balance in pesos.
+     *
+     * @param balance – Balance to be restored. For credit accounts, this is the loan balance.
+     */
+    public void restoreBalance(double balance) {
+        restoreBalanceCents(Money.toCents(balance));
+    }
+
     /**
      * Add a new transaction log to this account.
      * 
@@ -76,8 +266,84 @@ public abstract class Account {
      * @param description – Description of the transaction.
      */
     public void addNewTransaction(String accountNum, Transaction.Transactions type, String description) {
-        transactions.add(new Transaction(accountNum, type, description));
-        
+        Transaction transaction = new Transaction(accountNum, type, description);
+        AccountLocks.lock(this);
+        try {
+            transactions.add(transaction);
+        } finally {
+            AccountLocks.unlock(this);
+        }
+        markChanged();
+    }
+
+    /**
+     * Add a new transaction log to this account. The description of the transaction is only
+     * rendered from its amount when it is shown.
+     *
+     * @param accountNum – Account number of source account that triggered this transaction
+     * @param type – Type of transaction triggered.
+     * @param amount – Amount of money involved, in centavos.
+     */
+    public void addNewTransaction(String accountNum, Transaction.Transactions type, long amount) {
+        addNewTransaction(accountNum, type, amount, 0, null);
+    }
+
+    /**
+     * Add a new transaction log to this account, for transactions involving another bank.
+     *
+     * @param accountNum – Account number of source account that triggered this transaction
+     * @param type – Type of transaction triggered.
+     * @param amount – Amount of money involved, in centavos.
+     * @param fee – Processing fee charged, in centavos.
+     * @param bankName – Name of the other bank involved.
+     */
+    public void addNewTransaction(String accountNum, Transaction.Transactions type, long amount, long fee,
+                                  String bankName) {
+        Transaction transaction = new Transaction(accountNum, type, amount, fee, bankName);
+        AccountLocks.lock(this);
+        try {
+            transactions.add(transaction);
+        } finally {
+            AccountLocks.unlock(this);
+        }
+        markChanged();
+    }
+
+    /**
+     * Restore previously recorded transactions into this account. Unlike addNewTransaction(),
+     * no new transactions are created, registered, or persisted.
+     *
+     * @param history – Transactions loaded from the database, in the order they occurred.
+     */
+    public void restoreTransactions(Collection<Transaction> history) {
+        AccountLocks.lock(this);
+        try {
+            transactions.addAll(history);
+        } finally {
+            AccountLocks.unlock(this);
+        }
+    }
+
+    /**
+     * Mark this account as changed, so it is persisted on the next save.
+     */
+    public void markChanged() {
+        changedAccounts.add(this);
+    }
+
+    /**
+     * Get every account changed since the last call, and reset the tracking.
+     *
+     * @return Accounts changed since they were last saved.
+     */
+    public static ArrayList<Account> drainChangedAccounts() {
+        ArrayList<Account> changed = new ArrayList<>();
+        // Each account is removed as it is drained, so an account marked changed again afterwards is kept for the next call
+        for (Iterator<Account> iterator = changedAccounts.iterator(); iterator.hasNext(); ) {
+            changed.add(iterator.next());
+            iterator.remove();
+        }
+        return changed;
     }
 
     /**
@@ -86,8 +352,9 @@ public abstract class Account {
      * @return A formatted string containing all transaction details.
      */
     public String getTransactionsInfo() {
+        List<Transaction> history = transactions();
         // Check if there are no transactions
-        if (transactions.isEmpty()) {
+        if (history.isEmpty()) {
             // Return a message indicating no transactions found
             return "No transactions found for this account.";
         }
@@ -96,7 +363,7 @@ public abstract class Account {
         StringBuilder transactionLog = new StringBuilder("Transaction History:\n");
         
         // Iterate over each transaction in the transactions list
-        for (Transaction transaction : transactions) {
+        for (Transaction transaction : history) {
             // Append the transaction details to the log
             transactionLog.append(transaction.toString()).append("\n");
         }
@@ -105,9 +372,29 @@ public abstract class Account {
         return transactionLog.toString();
         }
 
+    /**
+     * Get the information of one page of the transactions logged into this account.
+     *
+     * @param offset – Number of transactions to skip, from the oldest one.
+     * @param limit – Maximum number of transactions in the page.
+     * @return A formatted string containing the details of the transactions in the page.
+     */
+    public String getTransactionsInfo(int offset, int limit) {
+        List<Transaction> page = getTransactions(offset, limit);
+        if (page.isEmpty()) {
+            return "No transactions found for this account.";
+        }
+        StringBuilder transactionLog = new StringBuilder(String.format("Transaction History (%d-%d of %d):\n",
+                offset + 1, offset + page.size(), getTransactionCount()));
+        for (Transaction transaction : page) {
+            transactionLog.append(transaction.toString()).append("\n");
+        }
+        return transactionLog.toString();
+    }
+
         @Override
         public String toString() {
         return String.format("{Owner: %s, Email: %s, Bank: %s, Account Number: %s, Transactions Count: %d}",
-                            getOwnerFullName(), ownerEmail, bank.getName(), accountNumber, transactions.size());
+                            getOwnerFullName(), ownerEmail, bank.getName(), accountNumber, getTransactionCount());
     }
 }
\ No newline at end of file
@@ -4,11 +4,8 @@ import Bank.Bank;
 import Bank.BankLauncher;
 import Main.*;
 import Processes.IllegalAccountType;
-import Database.JSONDatabase;
+import Database.Storage;
 import java.util.ArrayList;
-
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
 /**
  * A class primarily used for interacting with the account module.
  */
@@ -19,8 +16,8 @@ public class AccountLauncher {
     private static Account loggedAccount;
     //Selected associated bank when attempting to log in in the account module.
     private static Bank assocBank;
-    //The name of the file where account information is stored.
-    private static final String ACCOUNTS_FILE = "Database/Accounts.json";
+    //Number of transactions shown per page of the transaction history.
+    private static final int HISTORY_PAGE_SIZE = 20;
     static{loadAccounts();}
 
     public static void setAssocBank(Bank assocBank) {
@@ -52,7 +49,7 @@ public class AccountLauncher {
             return;
         }
         // Check if the bank has any accounts
-        if (assocBank.getBankAccounts().isEmpty()) {
+        if (assocBank.accounts().isEmpty()) {
             System.out.println("No accounts found in this bank. Please create an account first.");
             return;
         }
@@ -135,7 +132,7 @@ public class AccountLauncher {
         System.out.println("--------------------------------------------------------------------------------------------------------");
     
         int count = 1;
-        for (Account account : assocBank.getBankAccounts()) {
+        for (Account account : assocBank.accounts()) {
             if (accountType == null || accountType.isInstance(account)) {
                 System.out.printf("%-3d | %-50s%n", 
                 count++, account.toString());
@@ -143,6 +140,31 @@ public class AccountLauncher {
         }
     }
 
+    /**
+     * Output the transaction history of an account one page at a time, starting with the most
+     * recent transactions. The user is asked before every older page is shown.
+     * @param account The account whose transactions are shown.
+     */
+    public static void showTransactionHistory(Account account) {
+        int total = account.getTransactionCount();
+        if (total == 0) {
+            System.out.println(account.getTransactionsInfo());
+            return;
+        }
+        int offset = Math.max(0, total - HISTORY_PAGE_SIZE);
+        while (true) {
+            System.out.println(account.getTransactionsInfo(offset, HISTORY_PAGE_SIZE));
+            if (offset == 0) {
+                return;
+            }
+            String userInput = Main.prompt("Show older transactions? (Y/N): ", true).trim().toUpperCase();
+            if (!userInput.equals("Y")) {
+                return;
+            }
+            offset = Math.max(0, offset - HISTORY_PAGE_SIZE);
+        }
+    }
+
     /**
      * Bank selection screen before the user is prompted to log in. User is prompted for the Bank ID
      *
@@ -166,12 +188,11 @@ public class AccountLauncher {
             Field<String, String> bankNameField = new Field<String, String>("Bank Name", String.class, null, new Field.StringFieldValidator());
             bankNameField.setFieldValue("Enter Bank Name: ");
             //Finding Bank
-            for (Bank bank : BankLauncher.getBanks()) {
-            if (bank.getBankId() == bankidField.getFieldValue() && bank.getName().equals(bankNameField.getFieldValue())) {
+            Bank bank = BankLauncher.getBankById(bankidField.getFieldValue());
+            if (bank != null && bank.getName().equals(bankNameField.getFieldValue())) {
                 System.out.println("Bank selected: " + bank.getName());
                 return bank;
             }
-            }
             System.out.println("Bank does not exist. Please try again");
 
             // Prompt user to continue or exit
@@ -227,33 +248,23 @@ public class AccountLauncher {
     }
 
     /**
-     * Saves all the accounts from all banks to a JSON file.
-     * This method iterates through all the banks, retrieves their accounts,
-     * and then saves them to a JSON file using the JSONDatabase class.
+     * Saves the accounts changed since the last save through the storage backend.
+     * Unchanged accounts are not written.
      */
     public static void saveAccounts() {
-        JSONArray data = new JSONArray();
-        for (Account account : accounts) {
-            data.add(JSONDatabase.dataToDict(account));
-        }
-        JSONDatabase.mergeAndSaveData(data, ACCOUNTS_FILE);
+        Storage.get().saveAccounts(Account.drainChangedAccounts());
     }
 
     /**
-     * Loads all account data from the JSON file and associates each account with its respective bank.
-     * The method uses the JSONDatabase class to load the account data from the specified file.
+     * Loads all account data through the storage backend and associates each account with its respective bank.
      * For each loaded account, it retrieves the associated bank and adds the account to the bank's list of accounts.
      */
     public static void loadAccounts() {
-        JSONArray data = JSONDatabase.load(ACCOUNTS_FILE);
-        for (Object obj : data) {
-            JSONObject accountObject = (JSONObject) obj;
-            Account account = JSONDatabase.dataFromDict(accountObject, Account.class);
-            if (account != null) {
-                accounts.add(account);
-                Bank bank = account.getBank();
-                bank.addNewAccount(account);
-            }
-        }
+        accounts.clear();
+        Storage.get().loadAccounts(account -> {
+            accounts.add(account);
+            Bank bank = account.getBank();
+            bank.restoreAccount(account);
+        });
     }
 }
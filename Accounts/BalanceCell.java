@@ -0,0 +1,73 @@
+package Accounts;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A balance in centavos that is updated without locks. Each update reads the balance, checks the
+ * result against its bounds and swaps it in with compare-and-set, retrying only if another thread
+ * changed the balance in between, so an update never waits on a thread holding a lock.
+ */
+public class BalanceCell {
+
+    private final AtomicLong cents;
+
+    public BalanceCell(long cents) {
+        this.cents = new AtomicLong(cents);
+    }
+
+    public long get() {
+        return cents.get();
+    }
+
+    /**
+     * Replace the balance, such as when restoring it from the database.
+     *
+     * @param cents – The new balance, in centavos.
+     */
+    public void set(long cents) {
+        this.cents.set(cents);
+    }
+
+    /**
+     * Add an amount to the balance, unless the result would be negative.
+     *
+     * @param amount – Amount to be added or subtracted, in centavos.
+     * @return True if the balance was updated, false if it is too low.
+     */
+    public boolean tryAdd(long amount) {
+        return tryAdd(amount, Long.MAX_VALUE);
+    }
+
+    /**
+     * Add an amount to the balance, unless the result would be negative or above a ceiling.
+     *
+     * @param amount – Amount to be added or subtracted, in centavos.
+     * @param ceiling – Highest balance allowed, in centavos.
+     * @return True if the balance was updated, false if the result is out of bounds.
+     * @throws ArithmeticException If the result overflows a long.
+     */
+    public boolean tryAdd(long amount, long ceiling) {
+        long current, next;
+        do {
+            current = cents.get();
+            next = Math.addExact(current, amount);
+            if (next < 0 || next > ceiling) {
+                return false;
+            }
+        } while (!cents.compareAndSet(current, next));
+        return true;
+    }
+
+    /**
+     * Add an amount to the balance. If the result would be negative, the balance is set to 0.
+     *
+     * @param amount – Amount to be added or subtracted, in centavos.
+     */
+    public void add(long amount) {
+        long current, next;
+        do {
+            current = cents.get();
+            next = Math.max(0, Math.addExact(current, amount));
+        } while (!cents.compareAndSet(current, next));
+    }
+}
@@ -2,11 +2,14 @@ package Accounts;
 
 import Bank.Bank;
 import Processes.*;
+import Database.WriteAheadLog;
 
 public class BusinessAccount extends Account implements Deposit, Withdrawal, FundTransfer {
     private String businessName;
     private final String businessPermitID;
-    private double bankAnnualIncome, businessBalance;
+    private double bankAnnualIncome;
+    //Balance of this business account, in centavos.
+    private final BalanceCell businessBalance;
 
     public BusinessAccount(Bank bank, String accountNumber, String pin, String ownerFname,
                            String ownerLname, String ownerEmail, String businessPermitID, String businessName,
@@ -15,12 +18,26 @@ public class BusinessAccount extends Account implements Deposit, Withdrawal, Fun
         this.businessPermitID = businessPermitID;
         this.businessName = businessName;
         this.bankAnnualIncome = bankAnnualIncome;
-        this.businessBalance = initialDeposit;
+        this.businessBalance = new BalanceCell(Money.toCents(initialDeposit));
+    }
+
+    //Copy constructor used by copy().
+    private BusinessAccount(BusinessAccount account) {
+        super(account);
+        this.businessPermitID = account.businessPermitID;
+        this.businessName = account.businessName;
+        this.bankAnnualIncome = account.bankAnnualIncome;
+        this.businessBalance = new BalanceCell(account.businessBalance.get());
+    }
+
+    @Override
+    protected BusinessAccount copy() {
+        return new BusinessAccount(this);
     }
 
     //Getters
     public double getBusinessBalance() {
-        return businessBalance;
+        return Money.toAmount(businessBalance.get());
     }
 
     public double getBankAnnualIncome() {
@@ -35,30 +52,42 @@ public class BusinessAccount extends Account implements Deposit, Withdrawal, Fun
         return businessName;
     }
 
-    public boolean hasEnoughBalance(double amount) {
-        return this.businessBalance >= amount;
+    public boolean hasEnoughBalance(long amount) {
+        return this.businessBalance.get() >= amount;
     }
 
     public String getAccountBalanceStatement() {
-        return String.format("BusinessAccount{Account Number: %s, Business Name: %s, Permit ID: %s Balance: Php %.2f}",
-                this.getAccountNumber(), getBusinessName(), getBusinessPermitID(), this.businessBalance);
+        return String.format("BusinessAccount{Account Number: %s, Business Name: %s, Permit ID: %s Balance: Php %s}",
+                this.getAccountNumber(), getBusinessName(), getBusinessPermitID(), Money.format(this.businessBalance.get()));
     }
 
     /**
      * Adjusts the business account balance by adding or subtracting the specified amount.
      * If the resulting balance is less than zero, it sets the balance to zero.
      *
-     * @param amount The amount to adjust the balance by. A positive value increases the balance,
+     * @param amount The amount to adjust the balance by, in centavos. A positive value increases the balance,
      *               while a negative value decreases the balance.
      */
+    public void adjustBalanceCents(long amount) {
+        businessBalance.add(amount);
+        markChanged();
+    }
+
+    /**
+     * Same as adjustBalanceCents(), with an amount in pesos.
+     *
+     * @param amount The amount to adjust the balance by.
+     */
     public void adjustAccountBalance(double amount) {
-        this.businessBalance += amount;
-        if (this.businessBalance < 0) {
-            this.businessBalance = 0.0;
-        }
+        adjustBalanceCents(Money.toCents(amount));
     }
 
 
+    @Override
+    public BalanceCell getBalanceCell() {
+        return businessBalance;
+    }
+
     /**
      * Prints a warning message indicating that there is insufficient balance in the business account
      * to complete the transaction.
@@ -71,67 +100,78 @@ public class BusinessAccount extends Account implements Deposit, Withdrawal, Fun
 
 
     @Override
-    public boolean cashDeposit(double amount) {
+    public boolean cashDepositCents(long amount) {
         return TransactionManager.deposit(this, amount);
     }
 
     @Override
-    public boolean withdrawal(double amount) {
+    public boolean withdrawalCents(long amount) {
         return TransactionManager.withdraw(this, amount);
     }
 
     @Override
-    public boolean transfer(Bank bank, Account account, double amount) throws IllegalAccountType {
-        if (!(account instanceof BusinessAccount)) {
-            throw new IllegalAccountType("Can only transfer funds to a Business account.");
+    public boolean transferCents(Bank bank, Account account, long amount) throws IllegalAccountType {
+        AccountLocks.lock(this, account);
+        try {
+            if (!(account instanceof BusinessAccount)) {
+                throw new IllegalAccountType("Can only transfer funds to a Business account.");
+            }
+
+            if (amount <= 0 || amount > getBank().getWithdrawLimitCents() || !businessBalance.tryAdd(-amount)) {
+                insufficientBalance();
+                return false;
+            }
+
+            // The sender was debited by the check above, add to recipient
+            markChanged();
+            ((BusinessAccount) account).adjustBalanceCents(amount);
+
+            // Log transactions for both accounts
+            addNewTransaction(account.getAccountNumber(), Transaction.Transactions.FundTransfer, amount);
+            account.addNewTransaction(getAccountNumber(), Transaction.Transactions.ReceiveTransfer, amount);
+            WriteAheadLog.recordUnforced(Transaction.Transactions.FundTransfer.name(), this, account);
+        } finally {
+            AccountLocks.unlock(this, account);
         }
-
-        if (!hasEnoughBalance(amount) || amount <= 0 || amount > getBank().getWithdrawLimit()) {
-            insufficientBalance();
-            return false;
-        }
-
-        // Deduct from sender and add to recipient
-        adjustAccountBalance(-amount);
-        ((BusinessAccount) account).adjustAccountBalance(amount);
-
-        // Log transactions for both accounts
-        addNewTransaction(account.getAccountNumber(), Transaction.Transactions.FundTransfer,
-                String.format("Transferred Php %.2f to %s", amount, account.getAccountNumber()));
-        account.addNewTransaction(getAccountNumber(), Transaction.Transactions.ReceiveTransfer,
-                String.format("Received Php %.2f from %s", amount, getAccountNumber()));
-
+        // Force the log only once the locks are released
+        WriteAheadLog.sync();
         return true;
     }
 
     @Override
-    public boolean transfer(Account account, double amount) throws IllegalAccountType {
-        double totalAmount = amount + this.getBank().getProcessingFee();
-
-        if (!hasEnoughBalance(totalAmount) || amount <= 0 || totalAmount > this.getBank().getWithdrawLimit()) {
-            insufficientBalance();
-            return false; // Insufficient funds or exceeding withdrawal limit
+    public boolean transferCents(Account account, long amount) throws IllegalAccountType {
+        AccountLocks.lock(this, account);
+        try {
+            long totalAmount = amount + this.getBank().getProcessingFeeCents();
+
+            if (amount <= 0 || totalAmount > this.getBank().getWithdrawLimitCents() || !businessBalance.tryAdd(-totalAmount)) {
+                insufficientBalance();
+                return false; // Insufficient funds or exceeding withdrawal limit
+            }
+            // The full amount including processing fee was debited by the check above
+            markChanged();
+
+            // Credit only the transferred amount (not including fee) to recipient
+            ((SavingsAccount) account).adjustBalanceCents(amount);
+
+            // Log transactions for both accounts
+            addNewTransaction(account.getAccountNumber(), Transaction.Transactions.ExternalTransfer, amount,
+                    this.getBank().getProcessingFeeCents(), getBank().getName());
+
+            account.addNewTransaction(getAccountNumber(), Transaction.Transactions.ReceiveTransfer, amount,
+                    0, this.getBank().getName());
+            WriteAheadLog.recordUnforced(Transaction.Transactions.ExternalTransfer.name(), this, account);
+        } finally {
+            AccountLocks.unlock(this, account);
         }
-        // Deduct full amount from sender including processing fee
-        adjustAccountBalance(-totalAmount);
-
-        // Credit only the transferred amount (not including fee) to recipient
-        ((SavingsAccount) account).adjustAccountBalance(amount);
-
-        // Log transactions for both accounts
-        addNewTransaction(account.getAccountNumber(), Transaction.Transactions.ExternalTransfer,
-                String.format("Transferred Php %.2f to %s at %s (Fee: Php %.2f)",
-                        amount, account.getAccountNumber(), getBank().getName(), this.getBank().getProcessingFee()));
-
-        account.addNewTransaction(getAccountNumber(), Transaction.Transactions.ReceiveTransfer,
-                String.format("Received Php %.2f from %s at %s", amount, this.getAccountNumber(), this.getBank().getName()));
-
+        // Force the log only once the locks are released
+        WriteAheadLog.sync();
         return true;
     }
 
     @Override
     public String toString() {
         return String.format("BusinessAccount{Business Balance: %s, Business Permit ID: %s, Business Name: %s, Bank Annual Income",
-                                    businessBalance, businessPermitID, businessName, bankAnnualIncome);
+                                    Money.format(businessBalance.get()), businessPermitID, businessName, bankAnnualIncome);
     }
 }
\ No newline at end of file
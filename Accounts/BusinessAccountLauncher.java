@@ -34,7 +34,7 @@ public class BusinessAccountLauncher extends AccountLauncher {
                 case 2 -> depositProcess();
                 case 3 -> withdrawProcess();
                 case 4 -> fundTransfer();
-                case 5 -> System.out.println(getLoggedAccount().getTransactionsInfo());
+                case 5 -> AccountLauncher.showTransactionHistory(getLoggedAccount());
                 case 6 -> {
                     return;
                 }
@@ -154,19 +154,13 @@ public class BusinessAccountLauncher extends AccountLauncher {
             recipientBankField.setFieldValue("Enter recipient bank ID: ");
             int recipientBankId = recipientBankField.getFieldValue();
 
-            Bank recipientBank = null;
-            for (Bank bank : BankLauncher.getBanks()) {
-                if (bank.getBankId() == recipientBankId) {
-                    recipientBank = bank;
-                    break;
-                }
-            }
+            Bank recipientBank = BankLauncher.getBankById(recipientBankId);
 
             if (recipientBank == null) {
                 System.out.println("Recipient bank not found.");
                 return;
             }
-
+            // Look the recipient up in its own bank, since the same number may belong to another bank
             Account recipient = recipientBank.getBankAccount(recipientBank, recipientAccountNum);
 
             if (!(recipient instanceof BusinessAccount)) {
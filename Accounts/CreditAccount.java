@@ -1,6 +1,7 @@
 package Accounts;
 
 import Bank.Bank;
+import Processes.Money;
 import Processes.Payment;
 import Processes.Recompense;
 import Processes.TransactionManager;
@@ -11,7 +12,8 @@ import Processes.TransactionManager;
  */
 public class CreditAccount extends Account implements Payment, Recompense {
 
-    private double loanBalance;
+    //Loan balance of this credit account, in centavos.
+    private final BalanceCell loanBalance;
 
     /**
      * Constructor for CreditAccount.
@@ -26,7 +28,18 @@ public class CreditAccount extends Account implements Payment, Recompense {
     public CreditAccount(Bank bank, String accountNumber, String pin, String ownerFname,
                          String ownerLname, String ownerEmail) {
         super(bank, accountNumber, pin, ownerFname, ownerLname, ownerEmail);
-        this.loanBalance = 0.0;
+        this.loanBalance = new BalanceCell(0);
+    }
+
+    //Copy constructor used by copy().
+    private CreditAccount(CreditAccount account) {
+        super(account);
+        this.loanBalance = new BalanceCell(account.loanBalance.get());
+    }
+
+    @Override
+    protected CreditAccount copy() {
+        return new CreditAccount(this);
     }
 
     /**
@@ -35,13 +48,17 @@ public class CreditAccount extends Account implements Payment, Recompense {
      * @return String loan statement.
      */
     public String getLoanStatement() {
-        return String.format("CreditAccount{Account Number: %s, Owner: %s, Loan Balance: Php %.2f}",
-                                    getAccountNumber(), getOwnerFullName(), loanBalance);
+        return String.format("CreditAccount{Account Number: %s, Owner: %s, Loan Balance: Php %s}",
+                                    getAccountNumber(), getOwnerFullName(), Money.format(loanBalance.get()));
     }
 
     //Getter
     public double getLoan() {
-        return this.loanBalance;
+        return Money.toAmount(this.loanBalance.get());
+    }
+
+    public long getLoanCents() {
+        return this.loanBalance.get();
     }
 
     /**
@@ -49,24 +66,36 @@ public class CreditAccount extends Account implements Payment, Recompense {
      * exceed the credit limit set by the bank associated to this Credit Account.
      *
      * @param amountAdjustment – The amount of credit to be adjusted once the said transaction is
-     * processed.
+     * processed, in centavos.
      * @return Flag if this account can continue with the credit transaction.
      */
-    private boolean canCredit(double amountAdjustment) {
-        return (loanBalance + amountAdjustment) <= getBank().getCreditLimit();
+    private boolean canCredit(long amountAdjustment) {
+        return (loanBalance.get() + amountAdjustment) <= getBank().getCreditLimitCents();
     }
 
  
     /**
      * Adjust the owner’s current loan. Result of adjustment cannot be less than 0.
      *
+     * @param amountAdjustment Amount to be adjusted to the loan of this credit account, in centavos.
+     */
+    public void adjustLoanCents(long amountAdjustment) {
+        loanBalance.add(amountAdjustment);
+        markChanged();
+    }
+
+    /**
+     * Same as adjustLoanCents(), with an amount in pesos.
+     *
      * @param amountAdjustment Amount to be adjusted to the loan of this credit account.
      */
     public void adjustLoanAmount(double amountAdjustment) {
-        this.loanBalance += amountAdjustment;
-        if (this.loanBalance < 0) {
-            this.loanBalance = 0.0;
-        }
+        adjustLoanCents(Money.toCents(amountAdjustment));
+    }
+
+    @Override
+    public BalanceCell getBalanceCell() {
+        return loanBalance;
     }
 
     /**
@@ -74,26 +103,40 @@ public class CreditAccount extends Account implements Payment, Recompense {
      * CreditAccount.
      *
      * @param account Target account to pay money into.
+     * @param amount Amount of money to be paid, in centavos.
      * @return True if pay transaction was successful, false otherwise
      */
     @Override
-    public boolean pay(Account account, double amount) {
-        if (canCredit(amount) && TransactionManager.pay(this, account, amount)) {
-            return true;
+    public boolean payCents(Account account, long amount) {
+        if (!canCredit(amount)) {
+            System.out.println("Payment failed: Exceeds credit limit.");
+            return false;
         }
-        System.out.println("Payment failed: Exceeds credit limit.");
-        return false;
+        // The payment checks the limit again under the locks of both accounts
+        return TransactionManager.pay(this, account, amount);
+    }
+
+    /**
+     * Same as payCents(), with an amount in pesos.
+     *
+     * @param account Target account to pay money into.
+     * @param amount Amount of money to be paid.
+     * @return True if pay transaction was successful, false otherwise
+     */
+    @Override
+    public boolean pay(Account account, double amount) {
+        return payCents(account, Money.toCents(amount));
     }
 
     /**
      * Recompense some amount of money to the bank and reduce the value of loan recorded in this
      * account. Must not be greater than the current credit.
      *
-     * @param amount Amount of money to be recompensed.
+     * @param amount Amount of money to be recompensed, in centavos.
      * @return Flag if compensation was successful.
      */
     @Override
-    public boolean recompense(double amount) {
+    public boolean recompenseCents(long amount) {
        return TransactionManager.recompense(this, amount);
     }
 
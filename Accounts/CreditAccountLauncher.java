@@ -27,7 +27,7 @@ public class CreditAccountLauncher extends AccountLauncher {
                 case 1 -> System.out.println(getLoggedAccount().getLoanStatement());
                 case 2 -> creditPaymentProcess();
                 case 3 -> creditRecompenseProcess();
-                case 4 -> System.out.println(getLoggedAccount().getTransactionsInfo());
+                case 4 -> AccountLauncher.showTransactionHistory(getLoggedAccount());
                 case 5 -> {
                     return;
                 }
@@ -2,14 +2,15 @@ package Accounts;
 
 import Bank.Bank;
 import Processes.*;
+import Database.WriteAheadLog;
 
 /**
  * SavingsAccount class representing a standard savings account with balance tracking.
  * It allows deposits, withdrawals, and fund transfers while enforcing banking rules.
  */
 public class SavingsAccount extends Account implements Withdrawal, Deposit, FundTransfer {
-    // The current balance of the savings account
-    private double balance;
+    // The current balance of the savings account, in centavos
+    private final BalanceCell balance;
     private TransactionManager transactionManager = new TransactionManager();
 
     /**
@@ -30,54 +31,64 @@ public class SavingsAccount extends Account implements Withdrawal, Deposit, Fund
         if (balance < 0) {
             throw new IllegalArgumentException("Initial deposit cannot be negative.");
         }
-        this.balance = balance;
+        this.balance = new BalanceCell(Money.toCents(balance));
+    }
+
+    //Copy constructor used by copy().
+    private SavingsAccount(SavingsAccount account) {
+        super(account);
+        this.balance = new BalanceCell(account.balance.get());
+    }
+
+    @Override
+    protected SavingsAccount copy() {
+        return new SavingsAccount(this);
     }
 
 
 
     /**
      * Adjust the account balance of this savings account.
+     * @param amount - Amount to be added or subtracted from the balance, in centavos.
+     */
+    public void adjustBalanceCents(long amount) {
+        balance.add(amount);
+        markChanged();
+    }
+
+    /**
+     * Same as adjustBalanceCents(), with an amount in pesos.
      * @param amount - Amount to be added or subtracted from the balance.
      */
     public void adjustAccountBalance(double amount) {
-        this.balance += amount;
-        if (this.balance < 0) {
-            this.balance = 0.0;
-        }
+        adjustBalanceCents(Money.toCents(amount));
+    }
+
+    @Override
+    public BalanceCell getBalanceCell() {
+        return balance;
     }
 
     /**
      * Deposit some cash into this account using TransactionManager.
-     * @param amount – Amount of money to be deposited.
+     * @param amount – Amount of money to be deposited, in centavos.
      * @return Flag if transaction is successful or not.
      */
     @Override
-    public boolean cashDeposit(double amount) {
+    public boolean cashDepositCents(long amount) {
         return TransactionManager.deposit(this, amount);
     }
 
     /**
      * Withdraw an amount of money from this savings account using TransactionManager.
-     * @param amount – Amount of money to be withdrawn.
+     * @param amount – Amount of money to be withdrawn, in centavos.
      * @return Flag if transaction is successful or not.
      */
     @Override
-    public boolean withdrawal(double amount) {
+    public boolean withdrawalCents(long amount) {
         return TransactionManager.withdraw(this, amount);
     }
 
-    /**
-     * Validates whether this savings account has enough balance to proceed with such a transaction
-     * based on the amount that is to be adjusted.
-     * 
-     * @param amount - Amount of money to be supposedly adjusted from this account’s balance.
-     * @return - Flag if transaction can proceed by adjusting the account balance by the amount to be
-     * changed.
-     */
-    private boolean hasEnoughBalance(double amount) {
-        return balance >= amount;
-    }
-
     private void insufficientBalance() {
         System.out.println("Warning: Insufficient balance to complete the transaction.");
     }
@@ -94,32 +105,42 @@ public class SavingsAccount extends Account implements Withdrawal, Deposit, Fund
      *     <li>Recipient account is from another bank.</li>
      * </ul>
      * @param account – Account number of recipient
-     * @param amount – Amount of money to be supposedly adjusted from this account’s balance.
+     * @param amount – Amount of money to be supposedly adjusted from this account’s balance, in centavos.
      * @throws IllegalAccountType Cannot fund transfer when the other account is of type
      * CreditAccount.
      * @return Flag if fund transfer transaction is successful or not.
      */
     @Override
-    public boolean transfer(Account account, double amount) throws IllegalAccountType {
-        if (!(account instanceof SavingsAccount)) {
-            throw new IllegalAccountType("Cannot transfer funds to a CreditAccount.");
+    public boolean transferCents(Account account, long amount) throws IllegalAccountType {
+        PartitionedEngine engine = Execution.engine();
+        if (engine != null && account.getClass() == getClass()) {
+            // Debits this account and credits the other on their own partitions
+            return Execution.await(engine.transfer(this, account, amount));
         }
-
-        if (!hasEnoughBalance(amount) || amount <= 0 || amount > getBank().getWithdrawLimit()) {
-            insufficientBalance();
-            return false;
+        AccountLocks.lock(this, account);
+        try {
+            if (!(account instanceof SavingsAccount)) {
+                throw new IllegalAccountType("Cannot transfer funds to a CreditAccount.");
+            }
+
+            if (amount <= 0 || amount > getBank().getWithdrawLimitCents() || !balance.tryAdd(-amount)) {
+                insufficientBalance();
+                return false;
+            }
+
+            // The sender was debited by the check above, add to recipient
+            markChanged();
+            ((SavingsAccount) account).adjustBalanceCents(amount);
+
+            // Log transactions for both accounts
+            addNewTransaction(account.getAccountNumber(), Transaction.Transactions.FundTransfer, amount);
+            account.addNewTransaction(getAccountNumber(), Transaction.Transactions.ReceiveTransfer, amount);
+            WriteAheadLog.recordUnforced(Transaction.Transactions.FundTransfer.name(), this, account);
+        } finally {
+            AccountLocks.unlock(this, account);
         }
-
-        // Deduct from sender and add to recipient
-        adjustAccountBalance(-amount);
-        ((SavingsAccount) account).adjustAccountBalance(amount);
-
-        // Log transactions for both accounts
-        addNewTransaction(account.getAccountNumber(), Transaction.Transactions.FundTransfer,
-                String.format("Transferred Php %.2f to %s", amount, account.getAccountNumber()));
-        account.addNewTransaction(getAccountNumber(), Transaction.Transactions.ReceiveTransfer,
-                String.format("Received Php %.2f from %s", amount, getAccountNumber()));
-
+        // Force the log only once the locks are released
+        WriteAheadLog.sync();
         return true;
     }
 
@@ -129,33 +150,39 @@ public class SavingsAccount extends Account implements Withdrawal, Deposit, Fund
      *
      * @param bank Bank object of the recipient
      * @param account Account number of recipient
-     * @param amount Amount of money to be supposedly adjusted from this account's balance
+     * @param amount Amount of money to be supposedly adjusted from this account's balance, in centavos
      * @return Flag if fund transfer transaction is successful or not
      * @throws IllegalAccountType Cannot fund transfer when the other account is of type CreditAccount
      */
     @Override
-    public boolean transfer(Bank bank, Account account, double amount) throws IllegalAccountType {
-        double totalAmount = amount + this.getBank().getProcessingFee();
-
-        if (!hasEnoughBalance(totalAmount) || amount <= 0 || totalAmount > this.getBank().getWithdrawLimit()) {
-            insufficientBalance();
-            return false; // Insufficient funds or exceeding withdrawal limit
+    public boolean transferCents(Bank bank, Account account, long amount) throws IllegalAccountType {
+        AccountLocks.lock(this, account);
+        try {
+            long totalAmount = amount + this.getBank().getProcessingFeeCents();
+
+            if (amount <= 0 || totalAmount > this.getBank().getWithdrawLimitCents() || !balance.tryAdd(-totalAmount)) {
+                insufficientBalance();
+                return false; // Insufficient funds or exceeding withdrawal limit
+            }
+
+            // The full amount including processing fee was debited by the check above
+            markChanged();
+
+            // Credit only the transferred amount (not including fee) to recipient
+            ((SavingsAccount) account).adjustBalanceCents(amount);
+
+            // Log transactions for both accounts
+            addNewTransaction(account.getAccountNumber(), Transaction.Transactions.ExternalTransfer, amount,
+                    this.getBank().getProcessingFeeCents(), bank.getName());
+
+            account.addNewTransaction(getAccountNumber(), Transaction.Transactions.ReceiveTransfer, amount,
+                    0, this.getBank().getName());
+            WriteAheadLog.recordUnforced(Transaction.Transactions.ExternalTransfer.name(), this, account);
+        } finally {
+            AccountLocks.unlock(this, account);
         }
-
-        // Deduct full amount from sender including processing fee
-        adjustAccountBalance(-totalAmount);
-
-        // Credit only the transferred amount (not including fee) to recipient
-        ((SavingsAccount) account).adjustAccountBalance(amount);
-
-        // Log transactions for both accounts
-        addNewTransaction(account.getAccountNumber(), Transaction.Transactions.ExternalTransfer,
-                String.format("Transferred Php %.2f to %s at %s (Fee: Php %.2f)", 
-                                    amount, account.getAccountNumber(), bank.getName(), this.getBank().getProcessingFee()));
-
-        account.addNewTransaction(getAccountNumber(), Transaction.Transactions.ReceiveTransfer,
-                String.format("Received Php %.2f from %s at %s", amount, this.getAccountNumber(), this.getBank().getName()));
-
+        // Force the log only once the locks are released
+        WriteAheadLog.sync();
         return true;
     }
 
@@ -164,10 +191,10 @@ public class SavingsAccount extends Account implements Withdrawal, Deposit, Fund
         return "Savings Account " + super.toString();
     }
     public double getAccountBalance() {
-        return this.balance;
+        return Money.toAmount(this.balance.get());
     }
     public String getAccountBalanceStatement() {
-        return String.format("SavingsAccount{Account Number: %s, Owner: %s, Balance: Php %.2f}", 
-                this.getAccountNumber(), getOwnerFullName(), this.balance);
+        return String.format("SavingsAccount{Account Number: %s, Owner: %s, Balance: Php %s}", 
+                this.getAccountNumber(), getOwnerFullName(), Money.format(this.balance.get()));
     }
 }
\ No newline at end of file
@@ -2,14 +2,20 @@ package Accounts;
 
 import Bank.Bank;
 import Processes.Deposit;
+import Processes.Execution;
 import Processes.IllegalAccountType;
+import Processes.AccountLocks;
+import Processes.Money;
+import Processes.PartitionedEngine;
 import Processes.Transaction;
 import Processes.TransactionManager;
 import Processes.Withdrawal;
+import Database.WriteAheadLog;
 
 public final class StudentAccount extends Account implements Deposit, Withdrawal {
 
-    private double savingsBalance;
+    //Balance of this student account, in centavos.
+    private final BalanceCell savingsBalance;
     private final int yearOfBirth;  // To calculate age for eligibility
     private final String studentId;
 
@@ -30,7 +36,7 @@ public final class StudentAccount extends Account implements Deposit, Withdrawal
         super(bank, accountNumber, pin, ownerFname, ownerLname, ownerEmail);
         this.studentId = studentId;
         this.yearOfBirth = yearOfBirth;
-        this.savingsBalance = 0.0;
+        this.savingsBalance = new BalanceCell(0);
 
         // Check age eligibility (18 to 25 years)
         if (!isEligibleForStudentAccount()) {
@@ -38,9 +44,22 @@ public final class StudentAccount extends Account implements Deposit, Withdrawal
         }
     }
 
+    //Copy constructor used by copy(). Eligibility is not checked again.
+    private StudentAccount(StudentAccount account) {
+        super(account);
+        this.studentId = account.studentId;
+        this.yearOfBirth = account.yearOfBirth;
+        this.savingsBalance = new BalanceCell(account.savingsBalance.get());
+    }
+
+    @Override
+    protected StudentAccount copy() {
+        return new StudentAccount(this);
+    }
+
     //Getters
     public double getSavingsBalance() {
-        return savingsBalance;
+        return Money.toAmount(savingsBalance.get());
     }
 
     public int getYearOfBirth() {
@@ -75,13 +94,25 @@ public final class StudentAccount extends Account implements Deposit, Withdrawal
      * Adjust the balance of the student account by the specified amount.
      * If the balance goes below 0, it is reset to 0.
      *
+     * @param amount - Amount to be added or subtracted from the balance, in centavos.
+     */
+    public void adjustBalanceCents(long amount) {
+        savingsBalance.add(amount);
+        markChanged();
+    }
+
+    /**
+     * Same as adjustBalanceCents(), with an amount in pesos.
+     *
      * @param amount - Amount to be added or subtracted from the balance.
      */
     public void adjustAccountBalance(double amount) {
-        this.savingsBalance += amount;
-        if (this.savingsBalance < 0) {
-            this.savingsBalance = 0.0;
-        }
+        adjustBalanceCents(Money.toCents(amount));
+    }
+
+    @Override
+    public BalanceCell getBalanceCell() {
+        return savingsBalance;
     }
 
     /**
@@ -94,22 +125,22 @@ public final class StudentAccount extends Account implements Deposit, Withdrawal
     /**
      * Deposit funds into the student account using TransactionManager.
      *
-     * @param amount - The amount to be deposited.
+     * @param amount - The amount to be deposited, in centavos.
      * @return true if the deposit is successful, false otherwise.
      */
     @Override
-    public boolean cashDeposit(double amount) {
+    public boolean cashDepositCents(long amount) {
         return TransactionManager.deposit(this, amount);
     }
 
     /**
      * Withdraw funds from the student account using TransactionManager.
      *
-     * @param amount - The amount to be withdrawn.
+     * @param amount - The amount to be withdrawn, in centavos.
      * @return true if the withdrawal is successful, false otherwise.
      */
     @Override
-    public boolean withdrawal(double amount) {
+    public boolean withdrawalCents(long amount) {
         return TransactionManager.withdraw(this, amount);
     }
 
@@ -119,8 +150,8 @@ public final class StudentAccount extends Account implements Deposit, Withdrawal
      * @return a string representing the account balance .
      */
     public String getAccountBalanceStatement() {
-        return String.format("StudentAccount{Account Number: %s, Owner: %s, Balance: Php %.2f",
-                this.getAccountNumber(), getOwnerFullName(), this.savingsBalance);
+        return String.format("StudentAccount{Account Number: %s, Owner: %s, Balance: Php %s",
+                this.getAccountNumber(), getOwnerFullName(), Money.format(this.savingsBalance.get()));
     }
 
     /**
@@ -132,33 +163,54 @@ public final class StudentAccount extends Account implements Deposit, Withdrawal
      *     <li>Recipient account is from another bank.</li>
      * </ul>
      * @param account – Account number of recipient
-     * @param amount – Amount of money to be supposedly adjusted from this account’s balance.
+     * @param amount – Amount of money to be supposedly adjusted from this account’s balance, in centavos.
      * @return Flag if fund transfer transaction is successful or not.
      */
-    public boolean transfer(StudentAccount account, double amount) {
-        if (!isEligibleForStudentAccount()) {
-            throw new IllegalArgumentException("Account holder must be between 18 and 25 years old.");
+    public boolean transferCents(StudentAccount account, long amount) {
+        PartitionedEngine engine = Execution.engine();
+        if (engine != null) {
+            // Debits this account and credits the other on their own partitions
+            return Execution.await(engine.transfer(this, account, amount));
         }
-
-        if (amount <= 0 || amount > this.savingsBalance || amount > getBank().getWithdrawLimit()) {
-            insufficientBalance();
-            return false;
+        AccountLocks.lock(this, account);
+        try {
+            if (!isEligibleForStudentAccount()) {
+                throw new IllegalArgumentException("Account holder must be between 18 and 25 years old.");
+            }
+
+            if (amount <= 0 || amount > getBank().getWithdrawLimitCents() || !savingsBalance.tryAdd(-amount)) {
+                insufficientBalance();
+                return false;
+            }
+
+            // The sender was debited by the check above, add to recipient
+            markChanged();
+            account.adjustBalanceCents(amount);
+
+            // Log transactions for both accounts
+            addNewTransaction(account.getAccountNumber(), Transaction.Transactions.FundTransfer, amount);
+            account.addNewTransaction(getAccountNumber(), Transaction.Transactions.ReceiveTransfer, amount);
+            WriteAheadLog.recordUnforced(Transaction.Transactions.FundTransfer.name(), this, account);
+        } finally {
+            AccountLocks.unlock(this, account);
         }
-
-        // Deduct from sender and add to recipient
-        adjustAccountBalance(-amount);
-        account.adjustAccountBalance(amount);
-
-        // Log transactions for both accounts
-        addNewTransaction(account.getAccountNumber(), Transaction.Transactions.FundTransfer,
-                String.format("Transferred Php %.2f to %s", amount, account.getAccountNumber()));
-        account.addNewTransaction(getAccountNumber(), Transaction.Transactions.ReceiveTransfer,
-                String.format("Received Php %.2f from %s", amount, getAccountNumber()));
-
+        // Force the log only once the locks are released
+        WriteAheadLog.sync();
         return true;
     }
+
+    /**
+     * Same as transferCents(), with an amount in pesos.
+     *
+     * @param account – Account number of recipient
+     * @param amount – Amount of money to be supposedly adjusted from this account’s balance.
+     * @return Flag if fund transfer transaction is successful or not.
+     */
+    public boolean transfer(StudentAccount account, double amount) {
+        return transferCents(account, Money.toCents(amount));
+    }
     
     public double getAccountBalance() {
-        return this.savingsBalance;
+        return Money.toAmount(this.savingsBalance.get());
     }
 }
@@ -0,0 +1,268 @@
+package Accounts;
+
+import Processes.Ledger;
+import Processes.Transaction;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * The transactions logged into an account, in the order they were logged, with an index of
+ * their positions by transaction type and a time-ordered index on their timestamps.
+ * Pages are read without scanning the whole history: a page by offset costs O(limit), a page
+ * of one type O(limit) through the type index, and a time range or the latest transactions
+ * O(log n + limit) through the time index. Loaded transactions are not always logged in the
+ * order they occurred, so time queries never rely on the logging order.
+ * <br><br>
+ * The history only keeps the rows of its transactions in the ledger, and both indexes only keep
+ * positions in the history, so no object is kept per transaction. Transactions are handed out
+ * as views over their row.
+ * <br><br>
+ * A history is not thread-safe. Account guards every read and write of its history with its lock
+ * in AccountLocks. view() and copy() share the rows as they are when called, without copying them,
+ * and what they hand out can be read after the lock is released, while the history keeps growing.
+ */
+public class TransactionHistory {
+
+    private static final Ledger LEDGER = Transaction.LEDGER;
+
+    //Rows in the ledger of every transaction, in the order they were logged.
+    private final Ledger.Rows rows;
+    //Positions of every transaction of each type, in ascending order.
+    private final EnumMap<Transaction.Transactions, Ledger.Rows> byType = new EnumMap<>(Transaction.Transactions.class);
+    //Positions of every transaction ordered by timestamp, then by position for transactions logged at the same time.
+    private final Ledger.Rows byTime;
+
+    public TransactionHistory() {
+        rows = new Ledger.Rows();
+        byTime = new Ledger.Rows();
+    }
+
+    //Copy of a history, sharing its rows and indexes as they are now.
+    private TransactionHistory(TransactionHistory history) {
+        rows = history.rows.share();
+        history.byType.forEach((type, positions) -> byType.put(type, positions.share()));
+        byTime = history.byTime.share();
+    }
+
+    /**
+     * Read-only snapshot of the history, over the rows it had when the snapshot was taken.
+     */
+    private static class Snapshot extends AbstractList<Transaction> implements RandomAccess {
+        private final Ledger.Rows rows;
+
+        private Snapshot(Ledger.Rows rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public Transaction get(int index) {
+            return Transaction.ofRow(rows.get(index));
+        }
+
+        @Override
+        public int size() {
+            return rows.size();
+        }
+    }
+
+    /**
+     * Add a transaction at the end of the history.
+     *
+     * @param transaction The transaction to be added.
+     */
+    public void add(Transaction transaction) {
+        int position = rows.size();
+        int row = transaction.getRow();
+        rows.add(row);
+        byType.computeIfAbsent(transaction.getType(), type -> new Ledger.Rows()).add(position);
+        // Transactions are almost always logged in the order they occurred
+        long epochSecond = LEDGER.epochSecond(row);
+        int nano = LEDGER.nano(row);
+        if (byTime.size() == 0 || compareTime(byTime.size() - 1, epochSecond, nano) <= 0) {
+            byTime.add(position);
+        } else {
+            byTime.insert(firstAfter(epochSecond, nano), position);
+        }
+    }
+
+    /**
+     * Add transactions at the end of the history, in the order they are given.
+     *
+     * @param history The transactions to be added.
+     */
+    public void addAll(Collection<Transaction> history) {
+        rows.ensureCapacity(rows.size() + history.size());
+        byTime.ensureCapacity(byTime.size() + history.size());
+        for (Transaction transaction : history) {
+            add(transaction);
+        }
+    }
+
+    public int size() {
+        return rows.size();
+    }
+
+    public boolean isEmpty() {
+        return rows.size() == 0;
+    }
+
+    /**
+     * Get the number of transactions of some type.
+     *
+     * @param type Type of the transactions.
+     * @return Number of transactions of that type.
+     */
+    public int size(Transaction.Transactions type) {
+        Ledger.Rows positions = byType.get(type);
+        return positions == null ? 0 : positions.size();
+    }
+
+    /**
+     * Get a read-only snapshot of every transaction, in the order they were logged. The snapshot
+     * shares the rows of the history rather than copying them, and stays the same as transactions
+     * are added afterwards, so it costs the same for any number of transactions.
+     *
+     * @return A read-only snapshot of the history.
+     */
+    public List<Transaction> view() {
+        return new Snapshot(rows.share());
+    }
+
+    /**
+     * Get a copy of the history as it is now. The copy shares the rows and indexes of the history
+     * rather than copying them, and either one can be changed afterwards without affecting the other.
+     *
+     * @return A copy of the history.
+     */
+    public TransactionHistory copy() {
+        return new TransactionHistory(this);
+    }
+
+    /**
+     * Get a page of the history.
+     *
+     * @param offset Number of transactions to skip, from the oldest one.
+     * @param limit Maximum number of transactions in the page.
+     * @return The transactions of the page, in the order they were logged.
+     */
+    public List<Transaction> page(int offset, int limit) {
+        checkPage(offset, limit);
+        int from = Math.min(offset, rows.size());
+        int to = (int) Math.min((long) from + limit, rows.size());
+        ArrayList<Transaction> page = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            page.add(Transaction.ofRow(rows.get(i)));
+        }
+        return page;
+    }
+
+    /**
+     * Get a page of the transactions of some type.
+     *
+     * @param type Type of the transactions.
+     * @param offset Number of transactions of that type to skip, from the oldest one.
+     * @param limit Maximum number of transactions in the page.
+     * @return The transactions of the page, in the order they were logged.
+     */
+    public List<Transaction> page(Transaction.Transactions type, int offset, int limit) {
+        checkPage(offset, limit);
+        Ledger.Rows positions = byType.get(type);
+        ArrayList<Transaction> page = new ArrayList<>();
+        if (positions == null) {
+            return page;
+        }
+        int to = (int) Math.min((long) offset + limit, positions.size());
+        for (int i = offset; i < to; i++) {
+            page.add(Transaction.ofRow(rows.get(positions.get(i))));
+        }
+        return page;
+    }
+
+    /**
+     * Get a page of the transactions that occurred within a time range.
+     *
+     * @param from Start of the range, inclusive.
+     * @param to End of the range, inclusive.
+     * @param offset Number of transactions within the range to skip, from the oldest one.
+     * @param limit Maximum number of transactions in the page.
+     * @return The transactions of the page, in the order they occurred.
+     */
+    public List<Transaction> page(LocalDateTime from, LocalDateTime to, int offset, int limit) {
+        checkPage(offset, limit);
+        if (from.isAfter(to)) {
+            return new ArrayList<>();
+        }
+        int start = firstAfter(from.toEpochSecond(ZoneOffset.UTC), from.getNano() - 1L);
+        int end = firstAfter(to.toEpochSecond(ZoneOffset.UTC), to.getNano());
+        int pageStart = (int) Math.min((long) start + offset, end);
+        int pageEnd = (int) Math.min((long) pageStart + limit, end);
+        return byTime(pageStart, pageEnd);
+    }
+
+    /**
+     * Get the latest transactions.
+     *
+     * @param count Maximum number of transactions.
+     * @return The latest transactions, in the order they occurred.
+     */
+    public List<Transaction> latest(int count) {
+        checkPage(0, count);
+        return byTime(Math.max(0, byTime.size() - count), byTime.size());
+    }
+
+    /**
+     * Get the latest transactions as of some point in time, such as the closing date of a statement.
+     *
+     * @param time Point in time, inclusive.
+     * @param count Maximum number of transactions.
+     * @return The latest transactions that occurred at or before that time, in the order they occurred.
+     */
+    public List<Transaction> latest(LocalDateTime time, int count) {
+        checkPage(0, count);
+        int end = firstAfter(time.toEpochSecond(ZoneOffset.UTC), time.getNano());
+        return byTime(Math.max(0, end - count), end);
+    }
+
+    //Transactions between two indexes of the time index.
+    private List<Transaction> byTime(int from, int to) {
+        ArrayList<Transaction> transactions = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            transactions.add(Transaction.ofRow(rows.get(byTime.get(i))));
+        }
+        return transactions;
+    }
+
+    //Binary search for the first index of the time index whose timestamp is after the given one.
+    //The nanoseconds are a long, so that nano - 1 finds the first timestamp equal to or after nano.
+    private int firstAfter(long epochSecond, long nano) {
+        int low = 0, high = byTime.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareTime(mid, epochSecond, nano) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int compareTime(int index, long epochSecond, long nano) {
+        int row = rows.get(byTime.get(index));
+        int comparison = Long.compare(LEDGER.epochSecond(row), epochSecond);
+        return comparison != 0 ? comparison : Long.compare(LEDGER.nano(row), nano);
+    }
+
+    private static void checkPage(int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit cannot be negative.");
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package Bank;
+
+import Accounts.Account;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A directory of every account registered in any bank, by account number.
+ * Each entry maps an account number to its account, which in turn knows its bank.
+ * The directory can be read from any thread, and is updated whenever a bank registers
+ * or restores an account. Account numbers must be unique across all banks.
+ */
+public class AccountDirectory {
+
+    // Logger instance for logging errors
+    private static final Logger LOGGER = Logger.getLogger(AccountDirectory.class.getName());
+
+    private static final Map<String, Account> accounts = new ConcurrentHashMap<>();
+
+    /**
+     * Finds an account by account number, in any bank.
+     *
+     * @param accountNum The account number to search for.
+     * @return The account if found, otherwise null.
+     */
+    public static Account find(String accountNum) {
+        return accountNum == null ? null : accounts.get(accountNum);
+    }
+
+    /**
+     * Checks if an account number is already registered in some bank.
+     *
+     * @param accountNum The account number to check.
+     * @return true if the account number is taken, false otherwise.
+     */
+    public static boolean contains(String accountNum) {
+        return accounts.containsKey(accountNum);
+    }
+
+    /**
+     * Returns the number of accounts in the directory.
+     *
+     * @return Number of registered accounts.
+     */
+    public static int size() {
+        return accounts.size();
+    }
+
+    /**
+     * Adds an account to the directory, unless its account number belongs to another account.
+     *
+     * @param account The account to be added.
+     * @return false if the account number collides with an account already in the directory, true otherwise.
+     */
+    static boolean register(Account account) {
+        Account existing = accounts.putIfAbsent(account.getAccountNumber(), account);
+        if (existing != null && existing != account) {
+            LOGGER.log(Level.WARNING, "Account number {0} is already registered in bank {1}",
+                    new Object[]{account.getAccountNumber(), existing.getBank().getBankId()});
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Removes every account from the directory. Used before the banks are reloaded.
+     */
+    static void clear() {
+        accounts.clear();
+    }
+}
@@ -2,8 +2,16 @@ package Bank;
 
 import Accounts.*;
 import Main.*;
+import Processes.Money;
+import Database.WriteAheadLog;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The Bank class represents a banking institution that manages multiple accounts.
@@ -19,13 +27,21 @@ public class Bank {
      * registered to this bank. Defaults to 50,000.0
      * creditLimit - Limits the amount of credit or loan that all Credit Accounts, registered on this bank, can handle all
      * at once. Defaults to 100,000.
+     * All limits are kept in centavos.
      */
-    private final double depositLimit, withdrawLimit, creditLimit;
-    //Processing fee added when some transaction is involved with another bank. Cannot be lower
+    private final long depositLimit, withdrawLimit, creditLimit;
+    //Processing fee added when some transaction is involved with another bank, in centavos. Cannot be lower
     //than 0.0. Defaults to 10.00
-    private final double processingFee;
-    //List of accounts registered to this bank.
+    private final long processingFee;
+    //List of accounts registered to this bank, in the order they were registered.
     private final ArrayList<Account> bankAccounts;
+    //Read-only view of bankAccounts handed out by accounts().
+    private final List<Account> accountsView;
+    //Index of the accounts registered to this bank, by account number. Written while holding the lock of
+    //this bank, and read without it by getBankAccount() and accountExists().
+    private final Map<String, Account> accountIndex = new ConcurrentHashMap<>();
+    //Banks changed since they were last saved.
+    private static final Set<Bank> changedBanks = ConcurrentHashMap.newKeySet();
 
     /**
      * Constructor for Bank.
@@ -37,22 +53,54 @@ public class Bank {
         this.bankId = bankId;
         this.bankName = bankName;
         this.passcode = passcode;
-        this.depositLimit = 50000.0;
-        this.withdrawLimit = 50000.0;
-        this.creditLimit = 100000.0;
-        this.processingFee = 10.0;
+        this.depositLimit = Money.toCents(50000.0);
+        this.withdrawLimit = Money.toCents(50000.0);
+        this.creditLimit = Money.toCents(100000.0);
+        this.processingFee = Money.toCents(10.0);
         this.bankAccounts = new ArrayList<>();
+        this.accountsView = Collections.unmodifiableList(bankAccounts);
     }
 
     public Bank(int bankId, String bankName, String passcode, double depositLimit, double withdrawLimit, double creditLimit, double processingFee) {
         this.bankId = bankId;
         this.bankName = bankName;
         this.passcode = passcode;
-        this.depositLimit = depositLimit;
-        this.withdrawLimit = withdrawLimit;
-        this.creditLimit = creditLimit;
-        this.processingFee = processingFee;
+        this.depositLimit = Money.toCents(depositLimit);
+        this.withdrawLimit = Money.toCents(withdrawLimit);
+        this.creditLimit = Money.toCents(creditLimit);
+        this.processingFee = Money.toCents(processingFee);
         this.bankAccounts = new ArrayList<>();
+        this.accountsView = Collections.unmodifiableList(bankAccounts);
+    }
+
+    //Copy constructor used by snapshot(). The accounts are added by the caller.
+    private Bank(Bank bank) {
+        this.bankId = bank.bankId;
+        this.bankName = bank.bankName;
+        this.passcode = bank.passcode;
+        this.depositLimit = bank.depositLimit;
+        this.withdrawLimit = bank.withdrawLimit;
+        this.creditLimit = bank.creditLimit;
+        this.processingFee = bank.processingFee;
+        this.bankAccounts = new ArrayList<>();
+        this.accountsView = Collections.unmodifiableList(bankAccounts);
+    }
+
+    /**
+     * Get a copy of this bank and of every account registered to it. Each account is copied while
+     * holding its lock. The copies are not registered anywhere, so they can be saved from another
+     * thread, such as for a checkpoint.
+     *
+     * @return A copy of this bank.
+     */
+    public Bank snapshot() {
+        Bank copy = new Bank(this);
+        for (Account account : getBankAccounts()) {
+            Account accountCopy = account.snapshot();
+            copy.accountIndex.put(accountCopy.getAccountNumber(), accountCopy);
+            copy.bankAccounts.add(accountCopy);
+        }
+        return copy;
     }
 
     /**
@@ -87,12 +135,7 @@ public class Bank {
      * @return The account associated with the provided account number, or null if no such account exists.
      */
     public Account getBankAccount(Bank bank, String accountNum) {
-        for (Account account : bank.bankAccounts) {
-            if (account.getAccountNumber().equals(accountNum)) {
-                return account;
-            }
-        }
-        return null; // Return null if not found
+        return bank.accountIndex.get(accountNum);
     }
 
     /**
@@ -135,7 +178,12 @@ public class Bank {
                 System.out.println("Error: Age must be between 18 and 25 to create a Student Account.");
                 return;
             }
-            bankAccounts.add(tempAccount);
+            if (!registerAccount(tempAccount)) {
+                System.out.println(registrationFailure(accountNumber));
+                return;
+            }
+            tempAccount.markChanged();
+            WriteAheadLog.recordNewAccount(tempAccount);
             System.out.println("Student Account successfully registered.");
         } catch (IllegalArgumentException e) {
             System.out.println("Error: " + e.getMessage());
@@ -150,12 +198,21 @@ public class Bank {
         String ownerEmail = Main.prompt("Enter Email: ", false);
         String businessPermitID = Main.prompt("Enter Business Permit ID: ", false);
         String businessName = Main.prompt("Enter Business Name: ", false);
-        double bankAnnualIncome = Double.parseDouble(Main.prompt("Enter Bank Annual Income: ", false));
-        double initialDeposit = Double.parseDouble(Main.prompt("Enter Initial Deposit: ", false));
+        Field<Double, Double> annualIncomeField = new Field<Double, Double>("Bank Annual Income", Double.class, 0.0, new Field.DoubleFieldValidator());
+        annualIncomeField.setFieldValue("Enter Bank Annual Income: ", false);
+        double bankAnnualIncome = annualIncomeField.getFieldValue();
+        Field<Double, Double> initialDepositField = new Field<Double, Double>("Initial Deposit", Double.class, 0.0, new Field.DoubleFieldValidator());
+        initialDepositField.setFieldValue("Enter Initial Deposit: ", false);
+        double initialDeposit = initialDepositField.getFieldValue();
 
         try {
             BusinessAccount newAccount = new BusinessAccount(this, accountNumber, pin, ownerFname, ownerLname, ownerEmail, businessPermitID, businessName, bankAnnualIncome, initialDeposit);
-            bankAccounts.add(newAccount);
+            if (!registerAccount(newAccount)) {
+                System.out.println(registrationFailure(accountNumber));
+                return;
+            }
+            newAccount.markChanged();
+            WriteAheadLog.recordNewAccount(newAccount);
             System.out.println("Business Account successfully registered.");
         } catch (IllegalArgumentException e) {
             System.out.println("Error: " + e.getMessage());
@@ -176,7 +233,9 @@ public class Bank {
         String lastName = (String) accountData.get(3).getFieldValue();
         String email = (String) accountData.get(4).getFieldValue();
 
-        double initialDeposit = Double.parseDouble(Main.prompt("Enter Initial Deposit: ", true));
+        Field<Double, Double> initialDepositField = new Field<Double, Double>("Initial Deposit", Double.class, 0.0, new Field.DoubleFieldValidator());
+        initialDepositField.setFieldValue("Enter Initial Deposit: ");
+        double initialDeposit = initialDepositField.getFieldValue();
 
         SavingsAccount newAccount = new SavingsAccount(this, accountNumber, pin, firstName, lastName, email, initialDeposit);
         addNewAccount(newAccount);
@@ -208,17 +267,80 @@ public class Bank {
      * @param account – Account object to be added into this bank.
      */
     public void addNewAccount(Account account) {
-        // Check if account number already exists in this bank
-        if (accountExists(this, account.getAccountNumber())) {
-            System.out.println("Account number already exists in this bank! Registration failed.");
+        // Add the account to the bank, unless its account number already exists in any bank
+        if (!registerAccount(account)) {
+            System.out.println(registrationFailure(account.getAccountNumber()));
             return;
         }
-        // Add the account to the bank
-        bankAccounts.add(account);
+        account.markChanged();
+        WriteAheadLog.recordNewAccount(account);
         System.out.println(account);
         System.out.println("Account successfully registered.");
     }
 
+    /**
+     * Adds an account loaded from the database to this bank. Unlike addNewAccount(), the account
+     * is not marked as changed, and nothing is printed.
+     * @param account – Account object to be restored into this bank.
+     * @return false if this bank already holds an account with the same account number, true otherwise.
+     */
+    public synchronized boolean restoreAccount(Account account) {
+        if (registerAccount(account)) {
+            return true;
+        }
+        if (accountIndex.containsKey(account.getAccountNumber())) {
+            return false;
+        }
+        // Keep accounts that collide with another bank, so no saved data is dropped
+        accountIndex.put(account.getAccountNumber(), account);
+        bankAccounts.add(account);
+        return true;
+    }
+
+    /**
+     * Adds an account to both the ordered list and the index of this bank, and to the account directory.
+     * @param account – Account object to be registered.
+     * @return false if the account number is already registered in this bank or in another one, true otherwise.
+     */
+    private synchronized boolean registerAccount(Account account) {
+        if (accountIndex.containsKey(account.getAccountNumber()) || !AccountDirectory.register(account)) {
+            return false;
+        }
+        accountIndex.put(account.getAccountNumber(), account);
+        bankAccounts.add(account);
+        return true;
+    }
+
+    //Message shown when an account could not be registered because its account number is taken.
+    private String registrationFailure(String accountNum) {
+        if (accountIndex.containsKey(accountNum)) {
+            return "Account number already exists in this bank! Registration failed.";
+        }
+        return "Account number already exists in another bank! Registration failed.";
+    }
+
+    /**
+     * Mark this bank as changed, so it is persisted on the next save.
+     */
+    public void markChanged() {
+        changedBanks.add(this);
+    }
+
+    /**
+     * Get every bank changed since the last call, and reset the tracking.
+     *
+     * @return Banks changed since they were last saved.
+     */
+    public static ArrayList<Bank> drainChangedBanks() {
+        ArrayList<Bank> changed = new ArrayList<>();
+        // Each bank is removed as it is drained, so a bank marked changed again afterwards is kept for the next call
+        for (Iterator<Bank> iterator = changedBanks.iterator(); iterator.hasNext(); ) {
+            changed.add(iterator.next());
+            iterator.remove();
+        }
+        return changed;
+    }
+
     /**
      * Checks if an account object exists into a given bank based on some account number.
      * 
@@ -227,13 +349,12 @@ public class Bank {
      * @return true if an account with the specified account number exists, false otherwise
      */
     public static boolean accountExists(Bank bank, String accountNum) {
-        // Check if bank or bank accounts are null
-        if (bank == null || bank.getBankAccounts() == null) {
+        // Check if bank is null
+        if (bank == null) {
             return false;
         }
         // Check if account number exists in the bank
-        return bank.getBankAccounts().stream()
-                .anyMatch(account -> account.getAccountNumber().equals(accountNum));
+        return bank.accountIndex.containsKey(accountNum);
     }
 
     //Getters
@@ -249,23 +370,57 @@ public class Bank {
         return passcode;
     }
 
-    public ArrayList<Account> getBankAccounts() {
+    /**
+     * Get a copy of the accounts registered to this bank. Prefer accounts() when the accounts
+     * are only read, since this copies the whole list.
+     *
+     * @return A new list of the accounts registered to this bank.
+     */
+    public synchronized ArrayList<Account> getBankAccounts() {
         return new ArrayList<>(bankAccounts);
     }
 
+    /**
+     * Get a read-only view of the accounts registered to this bank, in the order they were registered.
+     * The view is not a copy: it always reflects the accounts of this bank, and iterating it
+     * fails with a ConcurrentModificationException if an account is registered meanwhile.
+     * Only iterate it from the thread that registers accounts, or use getBankAccounts() instead.
+     *
+     * @return A read-only view of the accounts.
+     */
+    public List<Account> accounts() {
+        return accountsView;
+    }
+
     public double getDepositLimit() {
-        return depositLimit;
+        return Money.toAmount(depositLimit);
     }
 
     public double getWithdrawLimit() {
-        return withdrawLimit;
+        return Money.toAmount(withdrawLimit);
     }
 
     public double getCreditLimit() {
-        return creditLimit;
+        return Money.toAmount(creditLimit);
     }
 
     public double getProcessingFee() {
+        return Money.toAmount(processingFee);
+    }
+
+    public long getDepositLimitCents() {
+        return depositLimit;
+    }
+
+    public long getWithdrawLimitCents() {
+        return withdrawLimit;
+    }
+
+    public long getCreditLimitCents() {
+        return creditLimit;
+    }
+
+    public long getProcessingFeeCents() {
         return processingFee;
     }
 
@@ -4,23 +4,20 @@ import Accounts.*;
 import Main.*;
 import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.Objects;
+import java.util.List;
+import java.util.function.Function;
 
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-
-import Database.JSONDatabase;
+import Database.Storage;
+import Database.WriteAheadLog;
 
 /**
  *A class primarily used for interacting with the bank module
  */
 public class BankLauncher {
-    //List of banks currently registered in this session.
-    private final static ArrayList<Bank> banks = new ArrayList<>();
+    //Banks currently registered in this session, indexed by ID and name.
+    private final static BankRegistry banks = new BankRegistry();
     //The Bank object currently logged in. Null by default, or when no bank is currently logged in.
     private static Bank loggedBank;
-    //The name of the file where account information is stored.
-    private static final String BANKS_FILE = "Database/Banks.json";
 
     static {loadBanks();}
     /**
@@ -121,14 +118,8 @@ public class BankLauncher {
         bankNameField.setFieldValue("Enter Bank Name: ");
         String bankName = bankNameField.getFieldValue();
 
-        // Find the bank based on Name
-        Bank selectedBank = null;
-        for (Bank bank : banks) {
-            if (bank.getName().equalsIgnoreCase(bankName)) {
-                selectedBank = bank;
-                break;
-            }
-        }
+        // Find the bank based on Name, ignoring case
+        Bank selectedBank = banks.getByName(bankName);
 
         // If bank is not found
         if (selectedBank == null) {
@@ -175,15 +166,27 @@ public class BankLauncher {
     }
 
     /**
-     * Adds a new bank to the list of registered banks.
+     * Creates a new bank with the next free bank ID, and adds it to the list of registered banks.
      *
-     * @param b The bank to be added.
+     * @param factory Creates the bank, given its ID.
      */
-    private static void addBank(Bank b) {
-        banks.add(b);
+    private static void addBank(Function<Integer, Bank> factory) {
+        Bank b = banks.register(factory);
+        System.out.println("Bank created successfully: " + b);
+        b.markChanged();
+        WriteAheadLog.recordNewBank(b);
         System.out.println("Bank successfully added: " + b.getName());
     }
 
+    /**
+     * Adds a bank recovered from the database, if no bank with the same ID is registered yet.
+     *
+     * @param b The bank to be restored.
+     */
+    public static void restoreBank(Bank b) {
+        banks.add(b);
+    }
+
     /**
      * Output a menu of all registered or created banks in this session.
      */
@@ -195,8 +198,9 @@ public class BankLauncher {
         System.out.println("\nList of Registered Banks:");
         System.out.printf("%-3s | %-30s | %s%n", "#", "Bank Name", "Bank ID");
         System.out.println("-----------------------------------------------------");
-        for (int i = 0; i < banks.size(); i++) {
-            System.out.printf("%-3d | %-30s | %s%n", i + 1, banks.get(i).getName(), banks.get(i).getBankId());
+        List<Bank> bankList = banks.banks();
+        for (int i = 0; i < bankList.size(); i++) {
+            System.out.printf("%-3d | %-30s | %s%n", i + 1, bankList.get(i).getName(), bankList.get(i).getBankId());
         }
     }
 
@@ -208,7 +212,24 @@ public class BankLauncher {
      * @return Bank object if it passes the criteria. Null if none.
      */
     public static Bank getBank(Comparator<Bank> comparator, Bank bank) {
-        return banks.stream().filter(b -> comparator.compare(b, bank) == 0).findFirst().orElse(null);
+        // Use the indexes for the comparators of Bank, and scan the banks for any other criteria
+        if (comparator instanceof Bank.BankIdComparator) {
+            return banks.getById(bank.getBankId());
+        }
+        if (comparator instanceof Bank.BankCredentialsComparator) {
+            Bank found = banks.getById(bank.getBankId());
+            return found != null && comparator.compare(found, bank) == 0 ? found : null;
+        }
+        if (comparator instanceof Bank.BankComparator) {
+            Bank found = banks.getByName(bank.getName());
+            if (found == null) {
+                return null;
+            }
+            if (comparator.compare(found, bank) == 0) {
+                return found;
+            }
+        }
+        return banks.banks().stream().filter(b -> comparator.compare(b, bank) == 0).findFirst().orElse(null);
     }
 
     /**
@@ -248,7 +269,7 @@ public class BankLauncher {
             return; // Exit early
         }
     
-        Bank newBank = null;
+        Function<Integer, Bank> newBank = null;
     
         boolean ans = true;
         while (ans) {
@@ -277,8 +298,8 @@ public class BankLauncher {
                 }
     
                 // Create Bank with custom values
-                newBank = new Bank(
-                        bankSize(),
+                newBank = bankId -> new Bank(
+                        bankId,
                         bankNameField.getFieldValue(),
                         bankPasscodeField.getFieldValue(),
                         depositLimitField.getFieldValue(),
@@ -290,8 +311,8 @@ public class BankLauncher {
     
             } else if (choice.equals("N")) {
                 // Create Bank with default values
-                newBank = new Bank(
-                        bankSize(),
+                newBank = bankId -> new Bank(
+                        bankId,
                         bankNameField.getFieldValue(),
                         bankPasscodeField.getFieldValue()
                 );
@@ -302,17 +323,35 @@ public class BankLauncher {
             }
         }
     
-        // Add Bank to the List
-        if (getBank(new Bank.BankComparator(), newBank) == null) {
-            System.out.println("Bank created successfully: " + newBank);
+        // Add Bank to the List, unless a bank with the same name (ignoring case) exists
+        if (banks.getByName(bankNameField.getFieldValue()) == null) {
             addBank(newBank);
         } else {
-            System.out.printf("Bank %s already exists!\n", newBank.getName());
+            System.out.printf("Bank %s already exists!\n", bankNameField.getFieldValue());
         }
     }
 
-    public static ArrayList<Bank> getBanks() {
-        return banks;
+    /**
+     * Returns a read-only view of the registered banks, in the order they were registered.
+     *
+     * @return The registered banks.
+     */
+    public static List<Bank> getBanks() {
+        return banks.banks();
+    }
+
+    /**
+     * Returns a copy of every registered bank and its accounts, taken without stopping other threads.
+     *
+     * @return Copies of the registered banks, as returned by Bank.snapshot().
+     * @see Bank#snapshot()
+     */
+    public static List<Bank> snapshotBanks() {
+        List<Bank> snapshots = new ArrayList<>();
+        for (Bank bank : banks.copyOfBanks()) {
+            snapshots.add(bank.snapshot());
+        }
+        return snapshots;
     }
 
     /**
@@ -325,54 +364,40 @@ public class BankLauncher {
     }
 
     /**
-     * Finds an account by account number in all registered banks.
+     * Finds an account by account number in all registered banks, through the account directory.
      *
      * @param accountNum The account number to search for.
      * @return The account if found, otherwise null.
      */
     public static Account findAccount(String accountNum) {
-        return banks.stream()
-                .map(bank -> bank.getBankAccount(bank, accountNum))
-                .filter(Objects::nonNull)
-                .findFirst()
-                .orElse(null);
+        return AccountDirectory.find(accountNum);
     }
 
+    /**
+     * Finds a registered bank by its ID.
+     *
+     * @param bankId ID of the bank.
+     * @return The bank if found, otherwise null.
+     */
     public static Bank getBankById(int bankId) {
-        for (Bank bank : banks) {
-            if (bank.getBankId() == bankId) {
-                return bank;
-            }
-        }
-        return null;
+        return banks.getById(bankId);
     }
 
     /**
-     * Saves the list of banks to a JSON file.
+     * Saves the banks changed since the last save through the storage backend.
      * This method is used to persist the bank data between program executions.
      */
     public static void saveBanks() {
-        JSONArray data = new JSONArray();
-        for (Bank bank : banks) {
-            data.add(JSONDatabase.dataToDict(bank));
-        }
-        JSONDatabase.mergeAndSaveData(data, BANKS_FILE);
+        Storage.get().saveBanks(Bank.drainChangedBanks());
     }
 
-
     /**
-     * Loads the list of banks from a JSON file.
+     * Loads the list of banks through the storage backend.
      * This method is used to restore the bank data from a previous program execution.
      */
     public static void loadBanks() {
         banks.clear();
-        JSONArray data = JSONDatabase.load(BANKS_FILE);
-        for (Object obj : data) {
-            JSONObject bankObject = (JSONObject) obj;
-            Bank bank = JSONDatabase.dataFromDict(bankObject, Bank.class);
-            if (bank != null) {
-                banks.add(bank);
-            }
-        }
+        AccountDirectory.clear();
+        Storage.get().loadBanks(banks::add);
     }
 }
\ No newline at end of file
@@ -0,0 +1,131 @@
+package Bank;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The registered banks, indexed by bank ID and by case-insensitive name.
+ * Banks are kept in the order they were registered, which is the order they are displayed in.
+ * The list handed out by banks() is a read-only view that always reflects the registry.
+ */
+public class BankRegistry {
+
+    //Registered banks, in the order they were registered.
+    private final ArrayList<Bank> banks = new ArrayList<>();
+    private final List<Bank> view = Collections.unmodifiableList(banks);
+    private final Map<Integer, Bank> byId = new HashMap<>();
+    //Banks by normalized name. If two banks share a name, the first one registered is kept.
+    private final Map<String, Bank> byName = new HashMap<>();
+    //Highest bank ID registered so far, or -1 if there is none.
+    private int maxId = -1;
+
+    /**
+     * Registers a bank, unless another bank already uses its ID.
+     *
+     * @param bank The bank to be registered.
+     * @return false if the bank ID is taken, true otherwise.
+     */
+    public synchronized boolean add(Bank bank) {
+        if (byId.putIfAbsent(bank.getBankId(), bank) != null) {
+            return false;
+        }
+        byName.putIfAbsent(normalize(bank.getName()), bank);
+        banks.add(bank);
+        maxId = Math.max(maxId, bank.getBankId());
+        return true;
+    }
+
+    /**
+     * Creates a bank with the next free ID and registers it, both while holding the lock of this
+     * registry, so banks created at the same time never get the same ID.
+     *
+     * @param factory Creates the bank, given its ID.
+     * @return The registered bank.
+     * @throws IllegalArgumentException If the factory returns a bank with another ID.
+     */
+    public synchronized Bank register(Function<Integer, Bank> factory) {
+        int bankId = nextId();
+        Bank bank = factory.apply(bankId);
+        if (bank.getBankId() != bankId) {
+            throw new IllegalArgumentException("Bank ID " + bank.getBankId() + " is not the allocated ID " + bankId);
+        }
+        add(bank);
+        return bank;
+    }
+
+    /**
+     * Returns the bank with some ID.
+     *
+     * @param bankId ID of the bank.
+     * @return The bank, or null if no bank has that ID.
+     */
+    public synchronized Bank getById(int bankId) {
+        return byId.get(bankId);
+    }
+
+    /**
+     * Returns the bank with some name, ignoring case and surrounding whitespace.
+     *
+     * @param name Name of the bank.
+     * @return The bank, or null if no bank has that name.
+     */
+    public synchronized Bank getByName(String name) {
+        return name == null ? null : byName.get(normalize(name));
+    }
+
+    /**
+     * Returns an ID no registered bank uses. IDs are never reused, even when
+     * there are gaps between the registered IDs. The ID may be taken by the time it is used;
+     * use register() to create and register a bank with it at once.
+     *
+     * @return The next free bank ID.
+     */
+    public synchronized int nextId() {
+        return maxId + 1;
+    }
+
+    /**
+     * Returns a read-only view of the registered banks, in the order they were registered.
+     *
+     * @return The registered banks.
+     */
+    public List<Bank> banks() {
+        return view;
+    }
+
+    /**
+     * Returns a copy of the registered banks, which can be iterated while banks are registered.
+     *
+     * @return A new list of the registered banks.
+     */
+    public synchronized List<Bank> copyOfBanks() {
+        return new ArrayList<>(banks);
+    }
+
+    public synchronized int size() {
+        return banks.size();
+    }
+
+    public synchronized boolean isEmpty() {
+        return banks.isEmpty();
+    }
+
+    /**
+     * Removes every registered bank. Used before the banks are reloaded.
+     */
+    public synchronized void clear() {
+        banks.clear();
+        byId.clear();
+        byName.clear();
+        maxId = -1;
+    }
+
+    private static String normalize(String name) {
+        return name == null ? "" : name.trim().toLowerCase(Locale.ROOT);
+    }
+}
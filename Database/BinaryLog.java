@@ -0,0 +1,243 @@
+package Database;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An append-only log of binary records. Each record is stored as its length in bytes (int)
+ * followed by its content. Records are collected in a buffer and written through a FileChannel
+ * once the buffer is full or flush() is called, and are read back through a MappedByteBuffer.
+ * Write failures are thrown to the caller, so a record is never reported as written when it was not.
+ */
+public class BinaryLog implements AutoCloseable {
+
+    // Logger instance for logging errors
+    private static final Logger LOGGER = Logger.getLogger(BinaryLog.class.getName());
+
+    //Size of the in-memory buffer used before records are handed to the channel.
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Encodes one object as the content of a record.
+     *
+     * @param <T> Type of the encoded objects.
+     */
+    @FunctionalInterface
+    public interface RecordWriter<T> {
+        void write(DataOutputStream out, T data) throws IOException;
+    }
+
+    private final Path path;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(256);
+    private final DataOutputStream record = new DataOutputStream(recordBytes);
+    private FileChannel channel;
+
+    /**
+     * Constructor for BinaryLog.
+     *
+     * @param filename The path to the log file. Created if it does not exist.
+     */
+    public BinaryLog(String filename) {
+        this.path = Paths.get(filename);
+    }
+
+    /**
+     * Append one record to the end of the log.
+     *
+     * @param data The object to be appended.
+     * @param writer Encodes the object.
+     * @throws UncheckedIOException If the record could not be written.
+     */
+    public synchronized <T> void append(T data, RecordWriter<? super T> writer) {
+        try {
+            recordBytes.reset();
+            writer.write(record, data);
+            int length = Integer.BYTES + recordBytes.size();
+            if (length > buffer.remaining()) {
+                writeBuffer();
+            }
+            if (length > buffer.capacity()) {
+                // Records larger than the buffer go straight to the channel
+                ByteBuffer large = ByteBuffer.allocate(length);
+                large.putInt(recordBytes.size()).put(recordBytes.toByteArray()).flip();
+                while (large.hasRemaining()) {
+                    channel().write(large);
+                }
+            } else {
+                buffer.putInt(recordBytes.size());
+                buffer.put(recordBytes.toByteArray());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error appending to log file", e);
+        }
+    }
+
+    /**
+     * Write every buffered record to the log file.
+     *
+     * @throws UncheckedIOException If the records could not be written.
+     */
+    public synchronized void flush() {
+        try {
+            writeBuffer();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error flushing log file", e);
+        }
+    }
+
+    /**
+     * Write every buffered record and force the log file onto the storage device.
+     *
+     * @throws UncheckedIOException If the records could not be written or forced.
+     */
+    public synchronized void sync() {
+        try {
+            writeBuffer();
+            channel().force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error syncing log file", e);
+        }
+    }
+
+    /**
+     * Read every record in the log file, in the order they were appended.
+     * Buffered records are flushed first so that they are included.
+     * A trailing record that was only partially written is skipped.
+     *
+     * @param consumer Receives the content of each record.
+     * @return The number of records read.
+     */
+    public synchronized int replay(Consumer<ByteBuffer> consumer) {
+        flush();
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        int records = 0;
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+            while (mapped.remaining() >= Integer.BYTES) {
+                int length = mapped.getInt();
+                if (length < 0 || length > mapped.remaining()) {
+                    LOGGER.log(Level.WARNING, "Skipping partially written log record in {0}", path);
+                    break;
+                }
+                ByteBuffer content = mapped.slice();
+                content.limit(length);
+                mapped.position(mapped.position() + length);
+                consumer.accept(content);
+                records++;
+            }
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            LOGGER.log(Level.SEVERE, "Error reading log file", e);
+        }
+        return records;
+    }
+
+    /**
+     * Replace every record of this log with new ones. The new log is written to a temporary file
+     * and renamed over the old one, so a crash leaves either the old or the new records.
+     *
+     * @param dataList The objects to be written, one record each.
+     * @param writer Encodes each object.
+     * @return Flag if the log was rewritten.
+     */
+    public synchronized <T> boolean rewrite(Iterable<? extends T> dataList, RecordWriter<? super T> writer) {
+        buffer.clear();
+        close();
+        try {
+            JSONDatabase.writeAtomically(path.toString(), temp -> {
+                try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    channel = out;
+                    for (T data : dataList) {
+                        append(data, writer);
+                    }
+                    writeBuffer();
+                    out.force(true);
+                } finally {
+                    channel = null;
+                }
+            });
+            return true;
+        } catch (IOException | UncheckedIOException e) {
+            LOGGER.log(Level.SEVERE, "Error rewriting log file", e);
+            return false;
+        }
+    }
+
+    /**
+     * Discard every record of this log.
+     *
+     * @throws UncheckedIOException If the log file could not be truncated.
+     */
+    public synchronized void reset() {
+        buffer.clear();
+        try {
+            channel().truncate(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error resetting log file", e);
+        }
+    }
+
+    /**
+     * Flush the remaining records and release the log file.
+     */
+    @Override
+    public synchronized void close() {
+        try {
+            flush();
+        } finally {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    LOGGER.log(Level.SEVERE, "Error closing log file", e);
+                }
+                channel = null;
+            }
+        }
+    }
+
+    private FileChannel channel() throws IOException {
+        if (channel == null || !channel.isOpen()) {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        }
+        return channel;
+    }
+
+    private void writeBuffer() throws IOException {
+        if (buffer.position() == 0) {
+            return;
+        }
+        buffer.flip();
+        try {
+            FileChannel out = channel();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+        } catch (IOException e) {
+            // Keep the records that were not written, so a later flush can retry them
+            buffer.compact();
+            throw e;
+        }
+        buffer.clear();
+    }
+}
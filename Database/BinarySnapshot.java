@@ -0,0 +1,384 @@
+package Database;
+
+import Accounts.*;
+import Bank.Bank;
+import Bank.BankLauncher;
+import Processes.Money;
+import Processes.Transaction;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A compact, versioned binary snapshot of every bank and account, including the transaction history
+ * of each account. Snapshot files are read back through a MappedByteBuffer.
+ * <br><br>
+ * Layout (version 3):
+ * <ul>
+ *     <li>Header: magic number (int), format version (short).</li>
+ *     <li>Banks section: record count (varint), then one record per bank.</li>
+ *     <li>Accounts section: record count (varint), then one record per account.</li>
+ * </ul>
+ * Every record is prefixed by its length in bytes (int), so a section can be skipped without decoding it.
+ * Integers are stored as varints, money as a fixed-width number of centavos, timestamps as fixed-width
+ * fields, and strings as
+ * a varint length followed by UTF-8 bytes. The record codecs are shared with BinaryStorage.
+ */
+public class BinarySnapshot {
+
+    // Logger instance for logging errors
+    private static final Logger LOGGER = Logger.getLogger(BinarySnapshot.class.getName());
+
+    private static final int MAGIC = 0x42534E50; // "BSNP"
+    //Version 2 stores money as centavos instead of doubles. Version 3 stores the amount of
+    //transactions instead of their description, which version 2 records are still read as.
+    private static final short VERSION = 3, OLDEST_VERSION = 2;
+
+    //Account type codes, in the order used by the format.
+    private static final byte SAVINGS = 0, CREDIT = 1, STUDENT = 2, BUSINESS = 3;
+
+    /**
+     * Writes every bank and its accounts into a snapshot file, replacing it atomically.
+     *
+     * @param filename The path to the snapshot file.
+     * @param banks The banks to be saved.
+     */
+    public static void save(String filename, Iterable<Bank> banks) throws IOException {
+        JSONDatabase.writeAtomically(filename, path -> {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024));
+                write(out, banks);
+                out.flush();
+                channel.force(true);
+            }
+        });
+    }
+
+    /**
+     * Loads every bank stored in a snapshot file.
+     *
+     * @param filename The path to the snapshot file.
+     * @param consumer Receives each bank, in the order they were saved.
+     */
+    public static void loadBanks(String filename, Consumer<? super Bank> consumer) {
+        read(filename, buffer -> {
+            int count = readVarInt(buffer);
+            for (int i = 0; i < count; i++) {
+                consumer.accept(readBank(nextRecord(buffer)));
+            }
+        });
+    }
+
+    /**
+     * Loads every account stored in a snapshot file, along with its transaction history.
+     * Banks must be registered before accounts are loaded. Accounts of unknown banks are skipped.
+     *
+     * @param filename The path to the snapshot file.
+     * @param consumer Receives each account, in the order they were saved.
+     */
+    public static void loadAccounts(String filename, Consumer<? super Account> consumer) {
+        read(filename, buffer -> {
+            // Skip the banks section
+            int banks = readVarInt(buffer);
+            for (int i = 0; i < banks; i++) {
+                nextRecord(buffer);
+            }
+            int count = readVarInt(buffer);
+            for (int i = 0; i < count; i++) {
+                Account account = readAccount(nextRecord(buffer));
+                if (account != null) {
+                    consumer.accept(account);
+                }
+            }
+        });
+    }
+
+    private static void write(DataOutputStream out, Iterable<Bank> banks) throws IOException {
+        ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(256);
+        DataOutputStream record = new DataOutputStream(recordBytes);
+
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+
+        int bankCount = 0, accountCount = 0;
+        for (Bank bank : banks) {
+            bankCount++;
+            accountCount += bank.accounts().size();
+        }
+
+        writeVarInt(out, bankCount);
+        for (Bank bank : banks) {
+            recordBytes.reset();
+            writeBank(record, bank);
+            out.writeInt(recordBytes.size());
+            recordBytes.writeTo(out);
+        }
+
+        writeVarInt(out, accountCount);
+        for (Bank bank : banks) {
+            for (Account account : bank.accounts()) {
+                recordBytes.reset();
+                writeAccount(record, account);
+                out.writeInt(recordBytes.size());
+                recordBytes.writeTo(out);
+            }
+        }
+    }
+
+    /**
+     * Encodes a bank, without its accounts.
+     */
+    static void writeBank(DataOutputStream record, Bank bank) throws IOException {
+        writeVarInt(record, bank.getBankId());
+        writeString(record, bank.getName());
+        writeString(record, bank.getPasscode());
+        record.writeLong(bank.getDepositLimitCents());
+        record.writeLong(bank.getWithdrawLimitCents());
+        record.writeLong(bank.getCreditLimitCents());
+        record.writeLong(bank.getProcessingFeeCents());
+    }
+
+    static Bank readBank(ByteBuffer record) {
+        return new Bank(readVarInt(record), readString(record), readString(record),
+                Money.toAmount(record.getLong()), Money.toAmount(record.getLong()),
+                Money.toAmount(record.getLong()), Money.toAmount(record.getLong()));
+    }
+
+    /**
+     * Encodes an account, along with its balance and transaction history.
+     */
+    static void writeAccount(DataOutputStream record, Account account) throws IOException {
+        writeVarInt(record, account.getBank().getBankId());
+        if (account instanceof SavingsAccount) {
+            record.writeByte(SAVINGS);
+        } else if (account instanceof CreditAccount) {
+            record.writeByte(CREDIT);
+        } else if (account instanceof StudentAccount) {
+            record.writeByte(STUDENT);
+        } else if (account instanceof BusinessAccount) {
+            record.writeByte(BUSINESS);
+        } else {
+            throw new IOException("Unknown account type: " + account.getClass().getSimpleName());
+        }
+        writeString(record, account.getAccountNumber());
+        writeString(record, account.getPin());
+        writeString(record, account.getOwnerFname());
+        writeString(record, account.getOwnerLname());
+        writeString(record, account.getOwnerEmail());
+        record.writeLong(account.getBalanceCents());
+        if (account instanceof StudentAccount studentAccount) {
+            writeVarInt(record, studentAccount.getYearOfBirth());
+            writeString(record, studentAccount.getStudentId());
+        } else if (account instanceof BusinessAccount businessAccount) {
+            writeString(record, businessAccount.getBusinessPermitID());
+            writeString(record, businessAccount.getBusinessName());
+            record.writeDouble(businessAccount.getBankAnnualIncome());
+        }
+
+        List<Transaction> transactions = account.transactions();
+        writeVarInt(record, transactions.size());
+        for (Transaction transaction : transactions) {
+            writeTransaction(record, transaction);
+        }
+    }
+
+    /**
+     * Decodes an account. The bank of the account must already be registered.
+     *
+     * @return The account, or null if its bank or type is unknown.
+     */
+    static Account readAccount(ByteBuffer record) {
+        int bankId = readVarInt(record);
+        Bank bank = BankLauncher.getBankById(bankId);
+        if (bank == null) {
+            LOGGER.log(Level.SEVERE, "Bank not found for ID: {0}", bankId);
+            return null;
+        }
+        byte type = record.get();
+        String accountNumber = readString(record);
+        String pin = readString(record);
+        String ownerFname = readString(record);
+        String ownerLname = readString(record);
+        String ownerEmail = readString(record);
+        long balance = record.getLong();
+
+        Account account;
+        switch (type) {
+            case SAVINGS:
+                account = new SavingsAccount(bank, accountNumber, pin, ownerFname, ownerLname, ownerEmail, Money.toAmount(balance));
+                break;
+            case CREDIT:
+                account = new CreditAccount(bank, accountNumber, pin, ownerFname, ownerLname, ownerEmail);
+                break;
+            case STUDENT:
+                account = new StudentAccount(bank, accountNumber, pin, ownerFname, ownerLname, ownerEmail,
+                        readVarInt(record), readString(record));
+                break;
+            case BUSINESS:
+                account = new BusinessAccount(bank, accountNumber, pin, ownerFname, ownerLname, ownerEmail,
+                        readString(record), readString(record), record.getDouble(), Money.toAmount(balance));
+                break;
+            default:
+                LOGGER.log(Level.SEVERE, "Unknown account type: {0}", type);
+                return null;
+        }
+        account.restoreBalanceCents(balance);
+
+        int count = readVarInt(record);
+        ArrayList<Transaction> history = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            history.add(readTransaction(record));
+        }
+        account.restoreTransactions(history);
+        return account;
+    }
+
+    static void writeTransaction(DataOutputStream record, Transaction transaction) throws IOException {
+        writeString(record, transaction.getAccountNumber());
+        record.writeByte(transaction.getType().ordinal());
+        if (transaction.hasAmount()) {
+            // A null description marks a transaction stored by its amount
+            writeString(record, null);
+            record.writeLong(transaction.getAmountCents());
+            record.writeLong(transaction.getFeeCents());
+            writeString(record, transaction.getBankName());
+        } else {
+            writeString(record, transaction.getDescription());
+        }
+        record.writeLong(transaction.getEpochSecond());
+        writeVarInt(record, transaction.getNano());
+    }
+
+    /**
+     * Decodes a transaction. The transaction is hydrated, so it is not registered again.
+     */
+    static Transaction readTransaction(ByteBuffer record) {
+        String accountNum = readString(record);
+        Transaction.Transactions type = Transaction.Transactions.values()[record.get()];
+        String description = readString(record);
+        if (description == null) {
+            long amount = record.getLong();
+            long fee = record.getLong();
+            String bankName = readString(record);
+            LocalDateTime timestamp = LocalDateTime.ofEpochSecond(record.getLong(), readVarInt(record), ZoneOffset.UTC);
+            return Transaction.hydrate(accountNum, type, amount, fee, bankName, timestamp);
+        }
+        LocalDateTime timestamp = LocalDateTime.ofEpochSecond(record.getLong(), readVarInt(record), ZoneOffset.UTC);
+        return Transaction.hydrate(accountNum, type, description, timestamp);
+    }
+
+    /**
+     * Checks if a snapshot file exists and was written in the current format.
+     *
+     * @param filename The path to the snapshot file.
+     * @return True if the snapshot file can be loaded.
+     */
+    public static boolean isReadable(String filename) {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(Integer.BYTES + Short.BYTES);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // Keep reading until the header is complete or the file ends
+            }
+            if (header.hasRemaining()) {
+                return false;
+            }
+            short version = header.getShort(Integer.BYTES);
+            return header.getInt(0) == MAGIC && version >= OLDEST_VERSION && version <= VERSION;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Maps a snapshot file into memory, checks its header, and hands the buffer positioned
+     * after the header to the reader. Missing files are treated as empty.
+     */
+    private static void read(String filename, Consumer<ByteBuffer> reader) {
+        if (!Files.exists(Paths.get(filename))) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a snapshot file: " + filename);
+            }
+            short version = buffer.getShort();
+            if (version < OLDEST_VERSION || version > VERSION) {
+                throw new IOException("Unsupported snapshot version: " + version);
+            }
+            reader.accept(buffer);
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            LOGGER.log(Level.SEVERE, "Error loading snapshot file", e);
+        }
+    }
+
+    /**
+     * Returns a view of the next length-prefixed record, and moves the buffer past it.
+     */
+    static ByteBuffer nextRecord(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        ByteBuffer record = buffer.slice();
+        record.limit(length);
+        buffer.position(buffer.position() + length);
+        return record;
+    }
+
+    static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint in snapshot file");
+    }
+
+    //Strings are stored as their length plus one, so that 0 can stand for null.
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length + 1);
+        out.write(bytes);
+    }
+
+    static String readString(ByteBuffer buffer) {
+        int length = readVarInt(buffer) - 1;
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
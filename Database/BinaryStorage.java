@@ -0,0 +1,164 @@
+package Database;
+
+import Accounts.Account;
+import Bank.Bank;
+import Bank.BankLauncher;
+import Processes.Transaction;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Stores data in binary files, without any JSON parsing.
+ * The full state of banks and accounts is kept in a binary snapshot. Banks and accounts changed
+ * after it are appended to a log, where a later record replaces an earlier one with the same key.
+ * A checkpoint rewrites the snapshot and empties the log. Transactions are appended to a binary
+ * log of their own.
+ */
+public class BinaryStorage implements StorageBackend {
+
+    // Logger instance for logging errors
+    private static final Logger LOGGER = Logger.getLogger(BinaryStorage.class.getName());
+
+    private static final String SNAPSHOT_FILE = "Database/State.bin";
+    //Log of the banks and accounts changed since the snapshot was written.
+    private static final String CHANGES_FILE = "Database/State.log";
+    private static final String TRANSACTIONS_FILE = "Database/Transactions.bin";
+
+    //Number of change records after which a checkpoint is taken while loading.
+    private static final int COMPACTION_THRESHOLD = 10000;
+
+    //Tags written before each record of the changes log.
+    private static final byte BANK = 1, ACCOUNT = 2;
+
+    private final BinaryLog changes = new BinaryLog(CHANGES_FILE);
+    private final BinaryLog transactions = new BinaryLog(TRANSACTIONS_FILE);
+
+    public BinaryStorage() {
+        Runtime.getRuntime().addShutdownHook(new Thread(transactions::close));
+    }
+
+    @Override
+    public boolean hasData() {
+        for (String file : new String[]{SNAPSHOT_FILE, CHANGES_FILE, TRANSACTIONS_FILE}) {
+            if (Files.exists(Paths.get(file))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isPersistent() {
+        return true;
+    }
+
+    @Override
+    public void loadBanks(Consumer<? super Bank> consumer) {
+        Map<Integer, Bank> banks = new LinkedHashMap<>();
+        BinarySnapshot.loadBanks(SNAPSHOT_FILE, bank -> banks.put(bank.getBankId(), bank));
+        changes.replay(record -> {
+            if (record.get() == BANK) {
+                // Later records of the same bank replace earlier ones
+                Bank bank = BinarySnapshot.readBank(record);
+                banks.remove(bank.getBankId());
+                banks.put(bank.getBankId(), bank);
+            }
+        });
+        banks.values().forEach(consumer);
+    }
+
+    @Override
+    public void loadAccounts(Consumer<? super Account> consumer) {
+        Map<String, Account> accounts = new LinkedHashMap<>();
+        BinarySnapshot.loadAccounts(SNAPSHOT_FILE, account -> accounts.put(account.getAccountNumber(), account));
+        int records = changes.replay(record -> {
+            if (record.get() == ACCOUNT) {
+                Account account = BinarySnapshot.readAccount(record);
+                if (account != null) {
+                    accounts.remove(account.getAccountNumber());
+                    accounts.put(account.getAccountNumber(), account);
+                }
+            }
+        });
+        accounts.values().forEach(consumer);
+        if (records > COMPACTION_THRESHOLD) {
+            checkpoint(BankLauncher.getBanks());
+        }
+    }
+
+    @Override
+    public void loadTransactions(Consumer<? super Transaction> consumer) {
+        transactions.replay(record -> consumer.accept(BinarySnapshot.readTransaction(record)));
+    }
+
+    @Override
+    public void saveBanks(Iterable<Bank> changed) {
+        for (Bank bank : changed) {
+            changes.append(bank, (out, data) -> {
+                out.writeByte(BANK);
+                BinarySnapshot.writeBank(out, data);
+            });
+        }
+        changes.sync();
+    }
+
+    @Override
+    public void saveAccounts(Iterable<Account> changed) {
+        for (Account account : changed) {
+            changes.append(account, (out, data) -> {
+                out.writeByte(ACCOUNT);
+                BinarySnapshot.writeAccount(out, data);
+            });
+        }
+        changes.sync();
+    }
+
+    @Override
+    public void appendTransaction(Transaction transaction) {
+        transactions.append(transaction, BinarySnapshot::writeTransaction);
+    }
+
+    @Override
+    public void flushTransactions() {
+        transactions.flush();
+    }
+
+    @Override
+    public void syncTransactions() {
+        transactions.sync();
+    }
+
+    @Override
+    public void saveTransactions(Iterable<Transaction> transactionList) {
+        transactions.rewrite(transactionList, BinarySnapshot::writeTransaction);
+    }
+
+    /**
+     * Rewrites the snapshot with the full state, then empties the changes log.
+     */
+    @Override
+    public boolean checkpoint(Iterable<Bank> banks) {
+        try {
+            BinarySnapshot.save(SNAPSHOT_FILE, banks);
+            changes.reset();
+            return true;
+        } catch (IOException | UncheckedIOException e) {
+            LOGGER.log(Level.SEVERE, "Error saving snapshot file", e);
+            return false;
+        }
+    }
+
+    @Override
+    public void close() {
+        changes.close();
+        transactions.close();
+    }
+}
@@ -0,0 +1,150 @@
+package Database;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Reads the objects of a JSON array file one at a time using Gson's streaming JsonReader.
+ * Only the record currently being read is held in memory, so files larger than the heap
+ * can be loaded. Each record is converted using JSONDatabase.dataFromDict().
+ * Records that cannot be converted are skipped.
+ *
+ * @param <T> Type of the objects read from the file. Can be Bank, Account or Transaction,
+ *            or JSONObject to read the records without converting them.
+ */
+public class JSONDataReader<T> implements Iterator<T>, AutoCloseable {
+
+    // Logger instance for logging errors
+    private static final Logger LOGGER = Logger.getLogger(JSONDataReader.class.getName());
+
+    private final Class<T> clazz;
+    private JsonReader reader;
+    //The next object to be handed out. Null when it has not been read yet.
+    private T next;
+
+    /**
+     * Constructor for JSONDataReader. Creates an empty JSON file if the file does not exist.
+     *
+     * @param filename The path to the JSON file.
+     * @param clazz The class of the objects to be created.
+     */
+    public JSONDataReader(String filename, Class<T> clazz) {
+        this.clazz = clazz;
+        if (!Files.exists(Paths.get(filename))) {
+            // Create an empty JSON file if it does not exist
+            JSONDatabase.save(new JSONArray(), filename);
+        }
+        try {
+            reader = new JsonReader(Files.newBufferedReader(Paths.get(filename), StandardCharsets.UTF_8));
+            reader.beginArray();
+        } catch (IOException | IllegalStateException e) {
+            LOGGER.log(Level.SEVERE, "Error loading JSON file", e);
+            close();
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next == null && reader != null) {
+            try {
+                if (!reader.hasNext()) {
+                    reader.endArray();
+                    close();
+                    break;
+                }
+                JSONObject record = readObject(reader);
+                next = clazz == JSONObject.class ? clazz.cast(record) : JSONDatabase.dataFromDict(record, clazz);
+            } catch (IOException | IllegalStateException | ClassCastException e) {
+                LOGGER.log(Level.SEVERE, "Error loading JSON file", e);
+                close();
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        T current = next;
+        next = null;
+        return current;
+    }
+
+    @Override
+    public void close() {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.SEVERE, "Error closing JSON file", e);
+            }
+            reader = null;
+        }
+    }
+
+    /**
+     * Reads one JSON object from the stream. Values use the same types as the json-simple parser,
+     * so the result can be handed to JSONDatabase.dataFromDict().
+     *
+     * @param in Reader positioned at the start of an object.
+     * @return The object that was read.
+     */
+    @SuppressWarnings("unchecked")
+    static JSONObject readObject(JsonReader in) throws IOException {
+        JSONObject object = new JSONObject();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            object.put(name, readValue(in));
+        }
+        in.endObject();
+        return object;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object readValue(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        switch (token) {
+            case BEGIN_OBJECT:
+                return readObject(in);
+            case BEGIN_ARRAY:
+                JSONArray array = new JSONArray();
+                in.beginArray();
+                while (in.hasNext()) {
+                    array.add(readValue(in));
+                }
+                in.endArray();
+                return array;
+            case STRING:
+                return in.nextString();
+            case NUMBER:
+                // json-simple parses integral numbers as Long and everything else as Double
+                String number = in.nextString();
+                if (number.indexOf('.') < 0 && number.indexOf('e') < 0 && number.indexOf('E') < 0) {
+                    return Long.valueOf(number);
+                }
+                return Double.valueOf(number);
+            case BOOLEAN:
+                return in.nextBoolean();
+            case NULL:
+                in.nextNull();
+                return null;
+            default:
+                throw new IllegalStateException("Unexpected JSON token: " + token);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package Database;
+
+import com.google.gson.stream.JsonWriter;
+
+import Accounts.Account;
+import Accounts.BusinessAccount;
+import Accounts.StudentAccount;
+import Bank.Bank;
+import Processes.Transaction;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes objects to a JSON array file one at a time using Gson's streaming JsonWriter.
+ * Objects are written straight to a buffered FileChannel, without building an intermediate
+ * JSONObject tree or rendering the whole document into a String first.
+ * The fields written are the same as JSONDatabase.dataToDict().
+ */
+public class JSONDataWriter implements AutoCloseable {
+
+    private final FileChannel channel;
+    private final JsonWriter writer;
+
+    /**
+     * Constructor for JSONDataWriter. The file is truncated, and the opening bracket of the array is written.
+     *
+     * @param path The path to the JSON file.
+     * @param prettyPrint Flag if the file is indented for readability.
+     */
+    public JSONDataWriter(Path path, boolean prettyPrint) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.writer = new JsonWriter(new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8)));
+        if (prettyPrint) {
+            writer.setIndent("  ");
+        }
+        writer.beginArray();
+    }
+
+    /**
+     * Write one Bank, Account or Transaction as the next element of the array.
+     *
+     * @param data The object to be written.
+     */
+    public void write(Object data) throws IOException {
+        if (data instanceof Bank bank) {
+            writer.beginObject();
+            writer.name("bankId").value(bank.getBankId());
+            writer.name("bankName").value(bank.getName());
+            writer.name("passcode").value(bank.getPasscode());
+            writer.name("depositLimit").value(bank.getDepositLimit());
+            writer.name("withdrawLimit").value(bank.getWithdrawLimit());
+            writer.name("creditLimit").value(bank.getCreditLimit());
+            writer.name("processingFee").value(bank.getProcessingFee());
+            writer.name("accounts").beginArray();
+            for (Account account : bank.accounts()) {
+                write(account);
+            }
+            writer.endArray();
+            writer.endObject();
+        } else if (data instanceof Account account) {
+            writer.beginObject();
+            writer.name("bankId").value(account.getBank().getBankId());
+            writer.name("accountNumber").value(account.getAccountNumber());
+            writer.name("ownerFname").value(account.getOwnerFname());
+            writer.name("ownerLname").value(account.getOwnerLname());
+            writer.name("ownerEmail").value(account.getOwnerEmail());
+            writer.name("pin").value(account.getPin());
+            writer.name("accountType").value(account.getClass().getSimpleName());
+            writer.name("balance").value(account.getBalance());
+            if (account instanceof StudentAccount studentAccount) {
+                writer.name("yearOfBirth").value(studentAccount.getYearOfBirth());
+                writer.name("studentId").value(studentAccount.getStudentId());
+            } else if (account instanceof BusinessAccount businessAccount) {
+                writer.name("businessPermitID").value(businessAccount.getBusinessPermitID());
+                writer.name("businessName").value(businessAccount.getBusinessName());
+                writer.name("bankAnnualIncome").value(businessAccount.getBankAnnualIncome());
+            }
+            writer.name("transactions").beginArray();
+            for (Transaction transaction : account.transactions()) {
+                write(transaction);
+            }
+            writer.endArray();
+            writer.endObject();
+        } else if (data instanceof Transaction transaction) {
+            writer.beginObject();
+            writer.name("accountNum").value(transaction.getAccountNumber());
+            writer.name("type").value(transaction.getType().toString());
+            writer.name("description").value(transaction.getDescription());
+            if (transaction.hasAmount()) {
+                writer.name("amountCents").value(transaction.getAmountCents());
+                writer.name("feeCents").value(transaction.getFeeCents());
+                writer.name("bankName").value(transaction.getBankName());
+            }
+            writer.name("time").value(transaction.getTimestamp().toString());
+            writer.endObject();
+        } else {
+            throw new IllegalArgumentException("Unsupported data type: " + data.getClass().getSimpleName());
+        }
+    }
+
+    /**
+     * Close the array, force the file onto the storage device once, and release it.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            writer.endArray();
+            writer.flush();
+            channel.force(true);
+        } finally {
+            writer.close();
+        }
+    }
+}
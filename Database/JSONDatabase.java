@@ -18,13 +18,29 @@ import Processes.*;
 
 import java.io.File;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -54,6 +70,29 @@ public class JSONDatabase {
             .setPrettyPrinting()
             .create();
 
+    //Journals of delta records, one per data file.
+    private static final Map<String, JSONJournal> DELTA_JOURNALS = new ConcurrentHashMap<>();
+    //Number of transactions of each account, by bank ID and account number, known to be saved in its data file or deltas.
+    private static final Map<String, Integer> SAVED_HISTORY = new ConcurrentHashMap<>();
+    //Rewrites waiting for their file to be free, by absolute path. Guarded by itself.
+    private static final Map<Path, AtomicWrite> PENDING_WRITES = new HashMap<>();
+    //Held while a file is rewritten, by absolute path.
+    private static final Map<Path, Object> WRITE_LOCKS = new ConcurrentHashMap<>();
+
+    //Rewrite of a file requested by one or more threads. Only the latest content requested is written.
+    private static final class AtomicWrite {
+        private FileContent content;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+    }
+
+    /**
+     * Writes the content of some file.
+     */
+    @FunctionalInterface
+    interface FileContent {
+        void writeTo(Path path) throws IOException;
+    }
+
     /**
      * Loads JSON data from a file.
      *
@@ -107,16 +146,17 @@ public class JSONDatabase {
      *
      * @param data The JSONArray containing the data to be saved.
      * @param filename The path to the JSON file.
+     * @return Flag if the file was written.
      */
-    public static void save(JSONArray data, String filename) {
-        try (FileWriter file = new FileWriter(filename)) {
+    public static boolean save(JSONArray data, String filename) {
+        try {
             // Write the JSON data to the file with pretty printing
-            String jsonString = GSON.toJson(data);
-            file.write(jsonString);
-            file.flush();
+            writeAtomically(filename, path -> writeTree(data, path));
+            return true;
         } catch (IOException e) {
             // Log the error
             LOGGER.log(Level.SEVERE, "Error saving JSON file", e);
+            return false;
         }
     }
 
@@ -125,16 +165,17 @@ public class JSONDatabase {
      *
      * @param data The JSONObject containing the data to be saved.
      * @param filename The path to the JSON file.
+     * @return Flag if the file was written.
      */
-    public static void save(JSONObject data, String filename) {
-        try (FileWriter file = new FileWriter(filename)) {
+    public static boolean save(JSONObject data, String filename) {
+        try {
             // Write the JSON data to the file with pretty printing
-            String jsonString = GSON.toJson(data);
-            file.write(jsonString);
-            file.flush();
+            writeAtomically(filename, path -> writeTree(data, path));
+            return true;
         } catch (IOException e) {
             // Log the error
             LOGGER.log(Level.SEVERE, "Error saving JSON file", e);
+            return false;
         }
     }
 
@@ -148,42 +189,79 @@ public class JSONDatabase {
     public static JSONObject dataToDict(Object data) {
         JSONObject jsonObject = new JSONObject();
         if (data instanceof Bank bank) {
-            jsonObject.put("bankId", bank.getBankId());
-            jsonObject.put("bankName", bank.getName());
-            jsonObject.put("passcode", bank.getPasscode());
-            jsonObject.put("depositLimit", bank.getDepositLimit());
-            jsonObject.put("withdrawLimit", bank.getWithdrawLimit());
-            jsonObject.put("creditLimit", bank.getCreditLimit());
-            jsonObject.put("processingFee", bank.getProcessingFee());
-
+            jsonObject = bankToDict(bank);
             JSONArray accountsArray = new JSONArray();
-            for (Account account : bank.getBankAccounts()) {
+            for (Account account : bank.accounts()) {
                 accountsArray.add(dataToDict(account));
             }
             jsonObject.put("accounts", accountsArray);
         } else if (data instanceof Account account) {
-            jsonObject.put("bankId", account.getBank().getBankId());
-            jsonObject.put("accountNumber", account.getAccountNumber());
-            jsonObject.put("ownerFname", account.getOwnerFname());
-            jsonObject.put("ownerLname", account.getOwnerLname());
-            jsonObject.put("ownerEmail", account.getOwnerEmail());
-            jsonObject.put("pin", account.getPin());
-            jsonObject.put("accountType", account.getClass().getSimpleName());
-
-            JSONArray transactionsArray = new JSONArray();
-            for (Transaction transaction : account.getTransactions()) {
-                transactionsArray.add(dataToDict(transaction));
-            }
-            jsonObject.put("transactions", transactionsArray);
+            jsonObject = accountToDict(account);
+            jsonObject.put("transactions", transactionsToDict(account.transactions()));
         } else if (data instanceof Transaction transaction) {
-            jsonObject.put("accountNum", transaction.accountNumber);
-            jsonObject.put("type", transaction.transactionType.toString());
-            jsonObject.put("description", transaction.description);
+            jsonObject.put("accountNum", transaction.getAccountNumber());
+            jsonObject.put("type", transaction.getType().toString());
+            jsonObject.put("description", transaction.getDescription());
+            if (transaction.hasAmount()) {
+                jsonObject.put("amountCents", transaction.getAmountCents());
+                jsonObject.put("feeCents", transaction.getFeeCents());
+                jsonObject.put("bankName", transaction.getBankName());
+            }
             jsonObject.put("time", transaction.getTimestamp().toString());
         }
         return jsonObject;
     }
 
+    /**
+     * Converts the fields of a bank to a JSONObject, without its accounts.
+     */
+    @SuppressWarnings("unchecked")
+    static JSONObject bankToDict(Bank bank) {
+        JSONObject jsonObject = new JSONObject();
+        jsonObject.put("bankId", bank.getBankId());
+        jsonObject.put("bankName", bank.getName());
+        jsonObject.put("passcode", bank.getPasscode());
+        jsonObject.put("depositLimit", bank.getDepositLimit());
+        jsonObject.put("withdrawLimit", bank.getWithdrawLimit());
+        jsonObject.put("creditLimit", bank.getCreditLimit());
+        jsonObject.put("processingFee", bank.getProcessingFee());
+        return jsonObject;
+    }
+
+    /**
+     * Converts the fields of an account to a JSONObject, without its transactions.
+     */
+    @SuppressWarnings("unchecked")
+    static JSONObject accountToDict(Account account) {
+        JSONObject jsonObject = new JSONObject();
+        jsonObject.put("bankId", account.getBank().getBankId());
+        jsonObject.put("accountNumber", account.getAccountNumber());
+        jsonObject.put("ownerFname", account.getOwnerFname());
+        jsonObject.put("ownerLname", account.getOwnerLname());
+        jsonObject.put("ownerEmail", account.getOwnerEmail());
+        jsonObject.put("pin", account.getPin());
+        jsonObject.put("accountType", account.getClass().getSimpleName());
+        jsonObject.put("balance", account.getBalance());
+        if (account instanceof StudentAccount studentAccount) {
+            jsonObject.put("yearOfBirth", studentAccount.getYearOfBirth());
+            jsonObject.put("studentId", studentAccount.getStudentId());
+        } else if (account instanceof BusinessAccount businessAccount) {
+            jsonObject.put("businessPermitID", businessAccount.getBusinessPermitID());
+            jsonObject.put("businessName", businessAccount.getBusinessName());
+            jsonObject.put("bankAnnualIncome", businessAccount.getBankAnnualIncome());
+        }
+        return jsonObject;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static JSONArray transactionsToDict(List<Transaction> transactions) {
+        JSONArray transactionsArray = new JSONArray();
+        for (Transaction transaction : transactions) {
+            transactionsArray.add(dataToDict(transaction));
+        }
+        return transactionsArray;
+    }
+
     /**
      * Converts a JSONObject to an object of the specified class.
      *
@@ -217,6 +295,8 @@ public class JSONDatabase {
             String ownerEmail = (String) jsonObject.get("ownerEmail");
             String pin = (String) jsonObject.get("pin");
             String accountType = (String) jsonObject.get("accountType");
+            // Balance recorded when the account was saved. Missing from older files.
+            Double balance = jsonObject.get("balance") == null ? null : ((Number) jsonObject.get("balance")).doubleValue();
 
             Account account;
             switch (accountType) {
@@ -224,7 +304,7 @@ public class JSONDatabase {
                     account = new CreditAccount(bank, accountNumber, pin, ownerFname, ownerLname, ownerEmail);
                     break;
                 case "SavingsAccount":
-                    Double initialDeposit = (Double) jsonObject.get("initialDeposit");
+                    Double initialDeposit = jsonObject.containsKey("initialDeposit") ? (Double) jsonObject.get("initialDeposit") : balance;
                     if (initialDeposit == null) {
                         LOGGER.log(Level.SEVERE, "Initial deposit not found for SavingsAccount: {0}", accountNumber);
                         return null;
@@ -240,7 +320,7 @@ public class JSONDatabase {
                     String businessPermitID = (String) jsonObject.get("businessPermitID");
                     String businessName = (String) jsonObject.get("businessName");
                     Double bankAnnualIncome = (Double) jsonObject.get("bankAnnualIncome");
-                    Double initialDepositBusiness = (Double) jsonObject.get("initialDeposit");
+                    Double initialDepositBusiness = jsonObject.containsKey("initialDeposit") ? (Double) jsonObject.get("initialDeposit") : balance;
                     if (bankAnnualIncome == null || initialDepositBusiness == null) {
                         LOGGER.log(Level.SEVERE, "Bank annual income or initial deposit not found for BusinessAccount: {0}", accountNumber);
                         return null;
@@ -252,21 +332,35 @@ public class JSONDatabase {
                     return null;
             }
 
+            if (balance != null) {
+                account.restoreBalance(balance);
+            }
+
+            // Hydrate the history without registering or persisting each transaction again
             JSONArray transactionsArray = (JSONArray) jsonObject.get("transactions");
+            ArrayList<Transaction> history = new ArrayList<>(transactionsArray.size());
             for (Object obj : transactionsArray) {
                 JSONObject transactionObject = (JSONObject) obj;
                 Transaction transaction = dataFromDict(transactionObject, Transaction.class);
                 if (transaction != null) {
-                    account.addNewTransaction(transaction.accountNumber, transaction.transactionType, transaction.description);
+                    history.add(transaction);
                 }
             }
+            account.restoreTransactions(history);
             return clazz.cast(account);
         } else if (clazz == Transaction.class) {
             String accountNum = (String) jsonObject.get("accountNum");
             Transaction.Transactions type = Transaction.Transactions.valueOf((String) jsonObject.get("type"));
-            String description = (String) jsonObject.get("description");
             LocalDateTime time = LocalDateTime.parse((String) jsonObject.get("time"));
-            return clazz.cast(new Transaction(accountNum, type, description, time));
+            // Transactions saved with their amount render their description again instead of keeping the text
+            if (jsonObject.containsKey("amountCents")) {
+                long amount = ((Number) jsonObject.get("amountCents")).longValue();
+                long fee = ((Number) jsonObject.get("feeCents")).longValue();
+                String bankName = (String) jsonObject.get("bankName");
+                return clazz.cast(Transaction.hydrate(accountNum, type, amount, fee, bankName, time));
+            }
+            String description = (String) jsonObject.get("description");
+            return clazz.cast(Transaction.hydrate(accountNum, type, description, time));
         }
         return null;
     }
@@ -279,26 +373,336 @@ public class JSONDatabase {
      * @return A list of objects of the specified class, populated with data from the JSON file.
      */
     public static <T> ArrayList<T> loadData(String filename, Class<T> clazz) {
-        JSONArray jsonArray = load(filename);
         ArrayList<T> dataList = new ArrayList<>();
-        for (Object obj : jsonArray) {
-            dataList.add(clazz.cast(dataFromDict((JSONObject) obj, clazz)));
-        }
+        forEach(filename, clazz, dataList::add);
         return dataList;
     }
 
     /**
-     * Saves a list of objects to a JSON file.
+     * Opens a streaming reader over a JSON file. Objects are read and converted one at a time,
+     * so memory use does not depend on the size of the file. The reader must be closed
+     * if it is not read until the end.
+     *
+     * @param filename The path to the JSON file.
+     * @param clazz The class of the objects to be created.
+     * @return An iterator over the objects stored in the JSON file.
+     */
+    public static <T> JSONDataReader<T> iterate(String filename, Class<T> clazz) {
+        return new JSONDataReader<>(filename, clazz);
+    }
+
+    /**
+     * Streams every object of a JSON file into a consumer, one object at a time.
+     *
+     * @param filename The path to the JSON file.
+     * @param clazz The class of the objects to be created.
+     * @param consumer Receives each object loaded from the JSON file.
+     */
+    public static <T> void forEach(String filename, Class<T> clazz, Consumer<? super T> consumer) {
+        try (JSONDataReader<T> reader = iterate(filename, clazz)) {
+            reader.forEachRemaining(consumer);
+        }
+    }
+
+    /**
+     * Saves a list of objects to a JSON file. Objects are streamed to the file one at a time,
+     * without pretty printing.
+     *
+     * @param dataList The list of objects to be saved.
+     * @param filename The path to the JSON file.
+     * @return Flag if the file was written.
+     */
+    public static <T> boolean saveData(Iterable<T> dataList, String filename) {
+        return saveData(dataList, filename, false);
+    }
+
+    /**
+     * Saves a list of objects to a JSON file. Each object is written straight to a buffered
+     * JsonWriter, so no intermediate JSONArray or String of the whole document is built.
      *
      * @param dataList The list of objects to be saved.
      * @param filename The path to the JSON file.
+     * @param prettyPrint Flag if the file is indented for readability.
+     * @return Flag if the file was written.
      */
-    public static <T> void saveData(ArrayList<T> dataList, String filename) {
-        JSONArray jsonArray = new JSONArray();
+    public static <T> boolean saveData(Iterable<T> dataList, String filename, boolean prettyPrint) {
+        try {
+            writeData(dataList, filename, prettyPrint);
+            return true;
+        } catch (IOException e) {
+            // Log the error
+            LOGGER.log(Level.SEVERE, "Error saving JSON file", e);
+            return false;
+        }
+    }
+
+    private static <T> void writeData(Iterable<T> dataList, String filename, boolean prettyPrint) throws IOException {
+        writeAtomically(filename, path -> {
+            try (JSONDataWriter writer = new JSONDataWriter(path, prettyPrint)) {
+                for (T data : dataList) {
+                    writer.write(data);
+                }
+            }
+        });
+    }
+
+    private static void writeTree(Object data, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Writer writer = Channels.newWriter(channel, StandardCharsets.UTF_8);
+            GSON.toJson(data, writer);
+            writer.flush();
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Writes a file so that a crash never leaves it half written. The content is written to a temporary
+     * file in the same directory, forced onto the storage device, and then renamed over the target file.
+     * The directory is forced afterwards, so the rename itself survives a crash.
+     * <br><br>
+     * Rewrites of the same file are group committed. Threads that ask for one while the file is being
+     * written wait for that write, and the latest content any of them asked for is then written once,
+     * with one force, for all of them. Every caller passes the full content of the file, so the latest
+     * one holds the changes of the others.
+     *
+     * @param filename The path to the file being written.
+     * @param content Writes the new content of the file.
+     * @throws IOException If the write that covered this request failed.
+     */
+    static void writeAtomically(String filename, FileContent content) throws IOException {
+        Path target = Paths.get(filename).toAbsolutePath().normalize();
+        AtomicWrite write;
+        synchronized (PENDING_WRITES) {
+            write = PENDING_WRITES.computeIfAbsent(target, path -> new AtomicWrite());
+            write.content = content;
+        }
+        synchronized (WRITE_LOCKS.computeIfAbsent(target, path -> new Object())) {
+            FileContent latest = null;
+            synchronized (PENDING_WRITES) {
+                // Another thread of the same group may have written it while this one waited
+                if (PENDING_WRITES.get(target) == write) {
+                    PENDING_WRITES.remove(target);
+                    latest = write.content;
+                }
+            }
+            if (latest != null) {
+                try {
+                    replace(target, latest);
+                    write.done.complete(null);
+                } catch (Throwable e) {
+                    write.done.completeExceptionally(e);
+                }
+            }
+        }
+        try {
+            write.done.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            } else if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            } else if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static void replace(Path target, FileContent content) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            content.writeTo(temp);
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            forceDirectory(target.getParent());
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void forceDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Some platforms, such as Windows, cannot open a directory. The rename is then as durable as they make it.
+            LOGGER.log(Level.FINE, "Could not force directory " + directory, e);
+        }
+    }
+
+    /**
+     * Appends one delta record for each changed object to the delta journal of a JSON file, and forces
+     * the journal onto the storage device. The JSON file itself is not rewritten. Bank records are
+     * written without their accounts, since accounts are persisted on their own. Account records hold
+     * their fields and only the transactions logged since the account was last saved, under
+     * "newTransactions", starting at the position given by "historyFrom".
+     *
+     * @param changed The objects changed since the last save.
+     * @param filename The path to the JSON file the deltas belong to.
+     */
+    @SuppressWarnings("unchecked")
+    public static void saveDeltas(Iterable<?> changed, String filename) {
+        JSONJournal journal = deltaJournal(filename);
+        Map<String, Integer> saved = new HashMap<>();
+        for (Object data : changed) {
+            if (data instanceof Bank bank) {
+                journal.append(bankToDict(bank));
+            } else if (data instanceof Account account) {
+                JSONObject record = accountToDict(account);
+                List<Transaction> history = account.transactions();
+                Integer from = SAVED_HISTORY.get(historyKey(account));
+                if (from == null || from > history.size()) {
+                    // Nothing is known about the saved history, so all of it is written
+                    record.put("transactions", transactionsToDict(history));
+                } else {
+                    record.put("historyFrom", from);
+                    record.put("newTransactions", transactionsToDict(history.subList(from, history.size())));
+                }
+                journal.append(record);
+                saved.put(historyKey(account), history.size());
+            } else {
+                journal.append(dataToDict(data));
+            }
+        }
+        journal.sync();
+        SAVED_HISTORY.putAll(saved);
+    }
+
+    /**
+     * Streams every object of a JSON file, merged with the delta records saved after its last compaction.
+     * The fields of a delta record replace those of the object in the file with the same key, and its
+     * new transactions are added to the history of the object. Objects that only exist as delta records
+     * are handed out after the objects of the file.
+     *
+     * @param filename The path to the JSON file.
+     * @param clazz The class of the objects to be created.
+     * @param key Name of the field that identifies an object, such as "accountNumber".
+     * @param consumer Receives each object after merging.
+     * @return The number of delta records read. Can be used to decide when to compact.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> int forEachMerged(String filename, Class<T> clazz, String key, Consumer<? super T> consumer) {
+        Map<String, JSONObject> deltas = new LinkedHashMap<>();
+        int[] records = {0};
+        deltaJournal(filename).replay(record -> {
+            // Later records of the same object are merged over earlier ones
+            mergeDelta(deltas.computeIfAbsent(String.valueOf(record.get(key)), k -> new JSONObject()), record);
+            records[0]++;
+        });
+
+        Consumer<JSONObject> convert = record -> {
+            T data = dataFromDict(record, clazz);
+            if (data != null) {
+                if (data instanceof Account account) {
+                    SAVED_HISTORY.put(historyKey(account), account.getTransactionCount());
+                }
+                consumer.accept(data);
+            }
+        };
+        forEach(filename, JSONObject.class, record -> {
+            JSONObject delta = deltas.remove(String.valueOf(record.get(key)));
+            if (delta != null) {
+                mergeDelta(record, delta);
+            }
+            convert.accept(record);
+        });
+        for (JSONObject delta : deltas.values()) {
+            if (delta.containsKey("newTransactions") && !delta.containsKey("transactions")) {
+                // Only happens if the data file lost the object, so the history is partial
+                LOGGER.log(Level.WARNING, "Delta record without its saved history: {0}", delta.get(key));
+                delta.put("transactions", delta.remove("newTransactions"));
+                delta.remove("historyFrom");
+            }
+            convert.accept(delta);
+        }
+        return records[0];
+    }
+
+    /**
+     * Merges a delta record into a record. Fields are replaced, a full history replaces the history,
+     * and new transactions replace the history from their position on.
+     */
+    @SuppressWarnings("unchecked")
+    private static void mergeDelta(JSONObject record, JSONObject delta) {
+        for (Object entry : delta.entrySet()) {
+            Map.Entry<Object, Object> field = (Map.Entry<Object, Object>) entry;
+            if (!"newTransactions".equals(field.getKey()) && !"historyFrom".equals(field.getKey())) {
+                record.put(field.getKey(), field.getValue());
+            }
+        }
+        if (delta.containsKey("transactions")) {
+            record.remove("newTransactions");
+            record.remove("historyFrom");
+        }
+        JSONArray added = (JSONArray) delta.get("newTransactions");
+        if (added == null) {
+            return;
+        }
+        int from = ((Number) delta.get("historyFrom")).intValue();
+        JSONArray history = (JSONArray) record.get("transactions");
+        int start = 0;
+        if (history == null) {
+            // Merging two delta records: the history they add up to starts at the earlier position
+            history = (JSONArray) record.get("newTransactions");
+            if (history == null) {
+                history = new JSONArray();
+                record.put("newTransactions", history);
+                record.put("historyFrom", from);
+            }
+            start = ((Number) record.get("historyFrom")).intValue();
+            if (from < start) {
+                history.clear();
+                record.put("historyFrom", from);
+                start = from;
+            }
+        }
+        int keep = from - start;
+        if (keep > history.size()) {
+            LOGGER.log(Level.WARNING, "Transactions missing before position {0} of a saved history", from);
+            keep = history.size();
+        }
+        history.subList(keep, history.size()).clear();
+        history.addAll(added);
+    }
+
+    /**
+     * Rewrites a JSON file with the full, merged list of objects and discards its delta records.
+     *
+     * @param dataList The full list of objects to be saved.
+     * @param filename The path to the JSON file.
+     * @return Flag if the file was rewritten.
+     */
+    public static <T> boolean compact(Iterable<T> dataList, String filename) {
+        JSONJournal journal = deltaJournal(filename);
+        // Counted before writing, so transactions logged during the write are saved again by the next delta
+        Map<String, Integer> saved = new HashMap<>();
         for (T data : dataList) {
-            jsonArray.add(dataToDict(data));
+            if (data instanceof Account account) {
+                saved.put(historyKey(account), account.getTransactionCount());
+            }
+        }
+        try {
+            writeData(dataList, filename, false);
+            journal.reset();
+            SAVED_HISTORY.putAll(saved);
+            return true;
+        } catch (IOException | UncheckedIOException e) {
+            // Keep the delta records, since the file was not rewritten
+            LOGGER.log(Level.SEVERE, "Error compacting JSON file", e);
+            return false;
         }
-        save(jsonArray, filename);
+    }
+
+    private static String historyKey(Account account) {
+        return account.getBank().getBankId() + "/" + account.getAccountNumber();
+    }
+
+    private static JSONJournal deltaJournal(String filename) {
+        return DELTA_JOURNALS.computeIfAbsent(filename,
+                name -> new JSONJournal(name + ".delta", JSONJournal.FlushPolicy.MANUAL, 1));
     }
 
     /**
@@ -0,0 +1,335 @@
+package Database;
+
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An append-only log of records stored one JSON object per line.
+ * Records are collected in a buffer and written through a FileChannel based on the
+ * configured flush policy. The log is only ever rewritten when it is reset after a compaction.
+ * Write failures are thrown to the caller, so a record is never reported as written when it was not.
+ * <br><br>
+ * Records can be appended while the journal file is forced. Threads that sync while a force is
+ * running wait for it, then force every record appended meanwhile at once, so concurrent syncs
+ * share one force of the storage device.
+ */
+public class JSONJournal implements AutoCloseable {
+
+    // Logger instance for logging errors
+    private static final Logger LOGGER = Logger.getLogger(JSONJournal.class.getName());
+
+    //Size of the in-memory buffer used before records are handed to the channel.
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Decides when buffered records are written to the journal file.
+     * ALWAYS - Every record is written as soon as it is appended.
+     * BATCH - Records are written once the batch size is reached or the buffer is full.
+     * MANUAL - Records are only written when the buffer is full or flush() is called.
+     */
+    public enum FlushPolicy {
+        ALWAYS,
+        BATCH,
+        MANUAL
+    }
+
+    private final Path path;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private FileChannel channel;
+    private FlushPolicy flushPolicy;
+    private int batchSize;
+    //Number of records currently held in the buffer.
+    private int pendingRecords;
+    //Number of records appended so far.
+    private long appended;
+    //Held while the journal file is forced, and before the lock of this journal when both are held.
+    private final Object forceLock = new Object();
+    //Number of records known to be forced onto the storage device. Guarded by forceLock.
+    private long forced;
+
+    /**
+     * Constructor for JSONJournal.
+     *
+     * @param filename The path to the journal file. Created if it does not exist.
+     * @param flushPolicy When buffered records are written to the file.
+     * @param batchSize Number of records per write when using FlushPolicy.BATCH.
+     */
+    public JSONJournal(String filename, FlushPolicy flushPolicy, int batchSize) {
+        this.path = Paths.get(filename);
+        setFlushPolicy(flushPolicy, batchSize);
+    }
+
+    /**
+     * Change the flush policy of this journal. Records already in the buffer are kept.
+     *
+     * @param flushPolicy When buffered records are written to the file.
+     * @param batchSize Number of records per write when using FlushPolicy.BATCH. Cannot be lower than 1.
+     */
+    public synchronized void setFlushPolicy(FlushPolicy flushPolicy, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size cannot be lower than 1.");
+        }
+        this.flushPolicy = flushPolicy;
+        this.batchSize = batchSize;
+    }
+
+    public synchronized FlushPolicy getFlushPolicy() {
+        return flushPolicy;
+    }
+
+    /**
+     * Append one record to the end of the journal.
+     *
+     * @param record The record to be appended.
+     * @throws UncheckedIOException If the record could not be written.
+     */
+    public synchronized void append(JSONObject record) {
+        byte[] line = (record.toJSONString() + "\n").getBytes(StandardCharsets.UTF_8);
+        try {
+            if (line.length > buffer.remaining()) {
+                writeBuffer();
+            }
+            if (line.length > buffer.capacity()) {
+                // Records larger than the buffer go straight to the channel
+                ByteBuffer large = ByteBuffer.wrap(line);
+                while (large.hasRemaining()) {
+                    channel().write(large);
+                }
+            } else {
+                buffer.put(line);
+                pendingRecords++;
+            }
+            appended++;
+
+            if (flushPolicy == FlushPolicy.ALWAYS
+                    || (flushPolicy == FlushPolicy.BATCH && pendingRecords >= batchSize)) {
+                writeBuffer();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error appending to journal file", e);
+        }
+    }
+
+    /**
+     * Write every buffered record to the journal file.
+     *
+     * @throws UncheckedIOException If the records could not be written.
+     */
+    public synchronized void flush() {
+        try {
+            writeBuffer();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error flushing journal file", e);
+        }
+    }
+
+    /**
+     * Write every buffered record and force the journal file onto the storage device. The force
+     * runs without the lock of this journal, so other threads keep appending meanwhile, and the
+     * records they append are forced by the next sync.
+     *
+     * @throws UncheckedIOException If the records could not be written or forced.
+     */
+    public void sync() {
+        long target;
+        synchronized (this) {
+            target = appended;
+        }
+        synchronized (forceLock) {
+            // The force that ran while this thread waited may have covered its records already
+            if (forced >= target) {
+                return;
+            }
+            long covered;
+            FileChannel out;
+            try {
+                synchronized (this) {
+                    writeBuffer();
+                    out = channel();
+                    covered = appended;
+                }
+                out.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error syncing journal file", e);
+            }
+            forced = covered;
+        }
+    }
+
+    /**
+     * Read every record in the journal file, in the order they were appended.
+     * Buffered records are flushed first so that they are included.
+     * A trailing line that was only partially written is skipped.
+     *
+     * @param consumer Receives each record of the journal.
+     */
+    public synchronized void replay(Consumer<JSONObject> consumer) {
+        flush();
+        if (!Files.exists(path)) {
+            return;
+        }
+        JSONParser parser = new JSONParser();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    consumer.accept((JSONObject) parser.parse(line));
+                } catch (ParseException e) {
+                    LOGGER.log(Level.WARNING, "Skipping unreadable journal record: {0}", line);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Error reading journal file", e);
+        }
+    }
+
+    /**
+     * Get the position, in bytes, after the last record appended so far. Buffered records are
+     * written first, so the position can be handed to discardBefore() later.
+     *
+     * @return Size of the journal file once every record is written.
+     * @throws UncheckedIOException If the records could not be written.
+     */
+    public synchronized long position() {
+        try {
+            writeBuffer();
+            return channel().size();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error flushing journal file", e);
+        }
+    }
+
+    /**
+     * Discard the records before some position, keeping the ones appended after it. The kept
+     * records are copied to a new file that replaces the journal, so a crash leaves either all
+     * records or only the kept ones.
+     *
+     * @param position Position returned by position().
+     * @throws UncheckedIOException If the journal could not be rewritten.
+     */
+    public void discardBefore(long position) {
+        // No force may run on the channel while it is replaced
+        synchronized (forceLock) {
+            synchronized (this) {
+                try {
+                    writeBuffer();
+                    long size = channel().size();
+                    if (position >= size) {
+                        channel().truncate(0);
+                        return;
+                    }
+                    if (position <= 0) {
+                        return;
+                    }
+                    channel.close();
+                    channel = null;
+                    JSONDatabase.writeAtomically(path.toString(), temp -> {
+                        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ);
+                             FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                            long copied = 0;
+                            while (copied < size - position) {
+                                copied += in.transferTo(position + copied, size - position - copied, out);
+                            }
+                            out.force(false);
+                        }
+                    });
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Error discarding journal records", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Discard every record of this journal. Used once the records have been compacted
+     * into the main data file.
+     *
+     * @throws UncheckedIOException If the journal file could not be truncated.
+     */
+    public void reset() {
+        synchronized (forceLock) {
+            synchronized (this) {
+                buffer.clear();
+                pendingRecords = 0;
+                try {
+                    channel().truncate(0);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Error resetting journal file", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Flush the remaining records and release the journal file.
+     */
+    @Override
+    public void close() {
+        // No force may run on the channel while it is closed
+        synchronized (forceLock) {
+            synchronized (this) {
+                try {
+                    flush();
+                } finally {
+                    if (channel != null) {
+                        try {
+                            channel.close();
+                        } catch (IOException e) {
+                            LOGGER.log(Level.SEVERE, "Error closing journal file", e);
+                        }
+                        channel = null;
+                    }
+                }
+            }
+        }
+    }
+
+    private FileChannel channel() throws IOException {
+        if (channel == null || !channel.isOpen()) {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        }
+        return channel;
+    }
+
+    private void writeBuffer() throws IOException {
+        if (buffer.position() == 0) {
+            return;
+        }
+        buffer.flip();
+        try {
+            FileChannel out = channel();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+        } catch (IOException e) {
+            // Keep the records that were not written, so a later flush can retry them
+            buffer.compact();
+            throw e;
+        }
+        buffer.clear();
+        pendingRecords = 0;
+    }
+}
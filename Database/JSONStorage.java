@@ -0,0 +1,208 @@
+package Database;
+
+import Accounts.Account;
+import Bank.Bank;
+import Bank.BankLauncher;
+import Processes.Transaction;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Stores data in JSON files, the default backend.
+ * Changed banks and accounts are saved as delta records next to their JSON file, and merged in
+ * when loading. Transactions are appended to a journal and compacted into their JSON file.
+ * On exit, a binary snapshot is written, which is loaded instead of the JSON files
+ * as long as it is newer than them.
+ */
+public class JSONStorage implements StorageBackend {
+
+    // Logger instance for logging errors
+    private static final Logger LOGGER = Logger.getLogger(JSONStorage.class.getName());
+
+    private static final String BANKS_FILE = "Database/Banks.json";
+    private static final String ACCOUNTS_FILE = "Database/Accounts.json";
+    private static final String TRANSACTIONS_FILE = "Database/Transactions.json";
+    //Append-only log of the transactions recorded since the last compaction.
+    private static final String JOURNAL_FILE = "Database/Transactions.journal";
+    //Binary snapshot of the JSON files, loaded instead of them while it is up-to-date.
+    private static final String SNAPSHOT_FILE = "Database/Snapshot.bin";
+
+    //Number of delta records after which a data file is compacted while loading.
+    private static final int BANK_COMPACTION_THRESHOLD = 1000;
+    private static final int ACCOUNT_COMPACTION_THRESHOLD = 10000;
+
+    private final JSONJournal journal = new JSONJournal(JOURNAL_FILE, JSONJournal.FlushPolicy.BATCH, 32);
+
+    public JSONStorage() {
+        Runtime.getRuntime().addShutdownHook(new Thread(journal::close));
+    }
+
+    /**
+     * Set when journaled transactions are written to the journal file.
+     *
+     * @param flushPolicy Flush policy of the transaction journal.
+     * @param batchSize Number of transactions per write when using FlushPolicy.BATCH.
+     */
+    public void setJournalFlushPolicy(JSONJournal.FlushPolicy flushPolicy, int batchSize) {
+        journal.setFlushPolicy(flushPolicy, batchSize);
+    }
+
+    @Override
+    public boolean hasData() {
+        for (String file : new String[]{BANKS_FILE, BANKS_FILE + ".delta", ACCOUNTS_FILE, ACCOUNTS_FILE + ".delta",
+                TRANSACTIONS_FILE, JOURNAL_FILE, SNAPSHOT_FILE}) {
+            if (Files.exists(Paths.get(file))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isPersistent() {
+        return true;
+    }
+
+    @Override
+    public void loadBanks(Consumer<? super Bank> consumer) {
+        if (isSnapshotCurrent()) {
+            BinarySnapshot.loadBanks(SNAPSHOT_FILE, consumer);
+            return;
+        }
+        ArrayList<Bank> banks = new ArrayList<>();
+        int deltas = JSONDatabase.forEachMerged(BANKS_FILE, Bank.class, "bankId", banks::add);
+        banks.forEach(consumer);
+        if (deltas > BANK_COMPACTION_THRESHOLD) {
+            JSONDatabase.compact(banks, BANKS_FILE);
+        }
+    }
+
+    @Override
+    public void loadAccounts(Consumer<? super Account> consumer) {
+        if (isSnapshotCurrent()) {
+            BinarySnapshot.loadAccounts(SNAPSHOT_FILE, consumer);
+            return;
+        }
+        ArrayList<Account> accounts = new ArrayList<>();
+        int deltas = JSONDatabase.forEachMerged(ACCOUNTS_FILE, Account.class, "accountNumber", accounts::add);
+        accounts.forEach(consumer);
+        if (deltas > ACCOUNT_COMPACTION_THRESHOLD) {
+            JSONDatabase.compact(accounts, ACCOUNTS_FILE);
+        }
+    }
+
+    /**
+     * Loads the compacted transactions file, then replays every transaction journaled after
+     * the last compaction. The journal is compacted once at the end if it held any records.
+     */
+    @Override
+    public void loadTransactions(Consumer<? super Transaction> consumer) {
+        ArrayList<Transaction> transactions = JSONDatabase.loadData(TRANSACTIONS_FILE, Transaction.class);
+        int compacted = transactions.size();
+        journal.replay(record -> transactions.add(JSONDatabase.dataFromDict(record, Transaction.class)));
+        transactions.forEach(consumer);
+        if (transactions.size() > compacted) {
+            saveTransactions(transactions);
+        }
+    }
+
+    @Override
+    public void saveBanks(Iterable<Bank> changed) {
+        JSONDatabase.saveDeltas(changed, BANKS_FILE);
+    }
+
+    @Override
+    public void saveAccounts(Iterable<Account> changed) {
+        JSONDatabase.saveDeltas(changed, ACCOUNTS_FILE);
+    }
+
+    @Override
+    public void appendTransaction(Transaction transaction) {
+        journal.append(JSONDatabase.dataToDict(transaction));
+    }
+
+    @Override
+    public void flushTransactions() {
+        journal.flush();
+    }
+
+    @Override
+    public void syncTransactions() {
+        journal.sync();
+    }
+
+    /**
+     * Compacts the transaction journal. The full list of transactions is rewritten into the
+     * transactions file, and the journal is emptied afterwards.
+     */
+    @Override
+    public void saveTransactions(Iterable<Transaction> transactions) {
+        journal.flush();
+        JSONDatabase.saveData(transactions, TRANSACTIONS_FILE);
+        journal.reset();
+    }
+
+    /**
+     * Compacts the banks and accounts files, then writes the binary snapshot.
+     */
+    @Override
+    public boolean checkpoint(Iterable<Bank> banks) {
+        ArrayList<Account> accounts = new ArrayList<>();
+        for (Bank bank : banks) {
+            accounts.addAll(bank.accounts());
+        }
+        if (!JSONDatabase.compact(banks, BANKS_FILE) || !JSONDatabase.compact(accounts, ACCOUNTS_FILE)) {
+            return false;
+        }
+        writeSnapshot(banks);
+        return true;
+    }
+
+    /**
+     * Writes the binary snapshot after the last delta records were saved, then releases the journal.
+     */
+    @Override
+    public void close() {
+        writeSnapshot(BankLauncher.getBanks());
+        journal.close();
+    }
+
+    private void writeSnapshot(Iterable<Bank> banks) {
+        try {
+            BinarySnapshot.save(SNAPSHOT_FILE, banks);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Error saving snapshot file", e);
+        }
+    }
+
+    /**
+     * Checks if the snapshot can be used instead of the JSON files, which is the case when it is
+     * in the current format and newer than all of them.
+     */
+    private static boolean isSnapshotCurrent() {
+        try {
+            Path snapshot = Paths.get(SNAPSHOT_FILE);
+            if (!BinarySnapshot.isReadable(SNAPSHOT_FILE)) {
+                return false;
+            }
+            for (String source : new String[]{BANKS_FILE, BANKS_FILE + ".delta", ACCOUNTS_FILE, ACCOUNTS_FILE + ".delta"}) {
+                Path path = Paths.get(source);
+                if (Files.exists(path)
+                        && Files.getLastModifiedTime(path).compareTo(Files.getLastModifiedTime(snapshot)) > 0) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Error checking snapshot file", e);
+            return false;
+        }
+    }
+}
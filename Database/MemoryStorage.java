@@ -0,0 +1,97 @@
+package Database;
+
+import Accounts.Account;
+import Bank.Bank;
+import Processes.Transaction;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Keeps data in memory only. Nothing is written to disk, so data is lost when the program exits.
+ * Useful for tests, and as a baseline when comparing the cost of the other backends.
+ */
+public class MemoryStorage implements StorageBackend {
+
+    private final Map<Integer, Bank> banks = new LinkedHashMap<>();
+    private final Map<String, Account> accounts = new LinkedHashMap<>();
+    private final ArrayList<Transaction> transactions = new ArrayList<>();
+
+    @Override
+    public synchronized boolean hasData() {
+        return !banks.isEmpty() || !accounts.isEmpty() || !transactions.isEmpty();
+    }
+
+    @Override
+    public boolean isPersistent() {
+        return false;
+    }
+
+    @Override
+    public synchronized void loadBanks(Consumer<? super Bank> consumer) {
+        new ArrayList<>(banks.values()).forEach(consumer);
+    }
+
+    @Override
+    public synchronized void loadAccounts(Consumer<? super Account> consumer) {
+        new ArrayList<>(accounts.values()).forEach(consumer);
+    }
+
+    @Override
+    public synchronized void loadTransactions(Consumer<? super Transaction> consumer) {
+        new ArrayList<>(transactions).forEach(consumer);
+    }
+
+    @Override
+    public synchronized void saveBanks(Iterable<Bank> changed) {
+        for (Bank bank : changed) {
+            banks.put(bank.getBankId(), bank);
+        }
+    }
+
+    @Override
+    public synchronized void saveAccounts(Iterable<Account> changed) {
+        for (Account account : changed) {
+            accounts.put(account.getAccountNumber(), account);
+        }
+    }
+
+    @Override
+    public synchronized void appendTransaction(Transaction transaction) {
+        transactions.add(transaction);
+    }
+
+    @Override
+    public void flushTransactions() {
+        // Nothing is buffered
+    }
+
+    @Override
+    public void syncTransactions() {
+        // Nothing is written to disk
+    }
+
+    @Override
+    public synchronized void saveTransactions(Iterable<Transaction> transactionList) {
+        transactions.clear();
+        transactionList.forEach(transactions::add);
+    }
+
+    @Override
+    public synchronized boolean checkpoint(Iterable<Bank> bankList) {
+        banks.clear();
+        accounts.clear();
+        saveBanks(bankList);
+        for (Bank bank : bankList) {
+            saveAccounts(bank.accounts());
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release
+    }
+}
@@ -0,0 +1,257 @@
+package Database;
+
+import Accounts.Account;
+import Bank.Bank;
+import Bank.BankLauncher;
+import Processes.Transaction;
+
+import org.json.simple.JSONArray;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Stores every bank in a directory of its own, Database/banks/&lt;bankId&gt;/, holding the bank,
+ * its accounts and the transactions of its accounts in separate JSON files. Shards are independent,
+ * so they are loaded and saved in parallel on a fork-join pool, one task per bank.
+ * Transactions are appended to a journal shared by all banks, and sharded when they are saved.
+ */
+public class ShardedStorage implements StorageBackend {
+
+    // Logger instance for logging errors
+    private static final Logger LOGGER = Logger.getLogger(ShardedStorage.class.getName());
+
+    private static final String SHARDS_DIRECTORY = "Database/banks";
+    private static final String BANK_FILE = "bank.json", ACCOUNTS_FILE = "accounts.json",
+            TRANSACTIONS_FILE = "transactions.json";
+    //Append-only log of the transactions recorded since they were last sharded.
+    private static final String JOURNAL_FILE = SHARDS_DIRECTORY + "/Transactions.journal";
+
+    private final ForkJoinPool pool;
+    private final JSONJournal journal = new JSONJournal(JOURNAL_FILE, JSONJournal.FlushPolicy.BATCH, 32);
+
+    public ShardedStorage() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor for ShardedStorage.
+     *
+     * @param pool The pool shards are loaded and saved on.
+     */
+    public ShardedStorage(ForkJoinPool pool) {
+        this.pool = pool;
+        Runtime.getRuntime().addShutdownHook(new Thread(journal::close));
+    }
+
+    @Override
+    public boolean hasData() {
+        return !shards().isEmpty() || Files.exists(Paths.get(JOURNAL_FILE));
+    }
+
+    @Override
+    public boolean isPersistent() {
+        return true;
+    }
+
+    @Override
+    public void loadBanks(Consumer<? super Bank> consumer) {
+        List<Bank> banks = inParallel(shards(), shard -> JSONDatabase.loadData(file(shard, BANK_FILE), Bank.class));
+        banks.sort(Comparator.comparingInt(Bank::getBankId));
+        banks.forEach(consumer);
+    }
+
+    @Override
+    public void loadAccounts(Consumer<? super Account> consumer) {
+        List<Account> accounts = inParallel(shards(), shard -> JSONDatabase.loadData(file(shard, ACCOUNTS_FILE), Account.class));
+        accounts.forEach(consumer);
+    }
+
+    /**
+     * Loads the transactions of every shard, ordered by time, then replays the journal.
+     * The journal is sharded once at the end if it held any records.
+     */
+    @Override
+    public void loadTransactions(Consumer<? super Transaction> consumer) {
+        List<Transaction> transactions = inParallel(shards(), shard -> JSONDatabase.loadData(file(shard, TRANSACTIONS_FILE), Transaction.class));
+        transactions.sort(Comparator.comparingLong(Transaction::getEpochSecond).thenComparingInt(Transaction::getNano));
+        int sharded = transactions.size();
+        journal.replay(record -> transactions.add(JSONDatabase.dataFromDict(record, Transaction.class)));
+        transactions.forEach(consumer);
+        if (transactions.size() > sharded) {
+            saveTransactions(transactions);
+        }
+    }
+
+    @Override
+    public void saveBanks(Iterable<Bank> changed) {
+        List<Bank> banks = new ArrayList<>();
+        changed.forEach(banks::add);
+        inParallel(banks, bank -> {
+            writeBank(bank);
+            return List.of();
+        });
+    }
+
+    /**
+     * Rewrites the accounts file of every bank that has a changed account.
+     */
+    @Override
+    public void saveAccounts(Iterable<Account> changed) {
+        Map<Integer, Bank> banks = new LinkedHashMap<>();
+        for (Account account : changed) {
+            banks.put(account.getBank().getBankId(), account.getBank());
+        }
+        inParallel(new ArrayList<>(banks.values()), bank -> {
+            JSONDatabase.saveData(bank.accounts(), file(bank.getBankId(), ACCOUNTS_FILE));
+            return List.of();
+        });
+    }
+
+    @Override
+    public void appendTransaction(Transaction transaction) {
+        journal.append(JSONDatabase.dataToDict(transaction));
+    }
+
+    @Override
+    public void flushTransactions() {
+        journal.flush();
+    }
+
+    @Override
+    public void syncTransactions() {
+        journal.sync();
+    }
+
+    /**
+     * Splits the transactions by the bank of the account whose history holds them, and rewrites
+     * the transactions file of every bank. The account number of a transfer or payment is the
+     * other account, so it cannot be used to find the owner. Transactions that are in no history
+     * are sharded by their account number, and kept in the emptied journal if that is unknown too.
+     */
+    @Override
+    public void saveTransactions(Iterable<Transaction> transactions) {
+        journal.flush();
+        Map<String, Integer> bankOf = new HashMap<>();
+        Map<String, Integer> ownerOf = new HashMap<>();
+        Map<Integer, List<Transaction>> shards = new LinkedHashMap<>();
+        for (Bank bank : BankLauncher.getBanks()) {
+            shards.put(bank.getBankId(), new ArrayList<>());
+            for (Account account : bank.accounts()) {
+                bankOf.putIfAbsent(account.getAccountNumber(), bank.getBankId());
+                for (Transaction transaction : account.transactions()) {
+                    ownerOf.put(key(transaction), bank.getBankId());
+                }
+            }
+        }
+        List<Transaction> unsharded = new ArrayList<>();
+        for (Transaction transaction : transactions) {
+            Integer bankId = ownerOf.get(key(transaction));
+            if (bankId == null) {
+                bankId = bankOf.get(transaction.getAccountNumber());
+            }
+            if (bankId == null) {
+                LOGGER.log(Level.WARNING, "No bank found for transaction of account: {0}", transaction.getAccountNumber());
+                unsharded.add(transaction);
+                continue;
+            }
+            shards.get(bankId).add(transaction);
+        }
+        List<Boolean> saved = inParallel(new ArrayList<>(shards.entrySet()),
+                shard -> List.of(JSONDatabase.saveData(shard.getValue(), file(shard.getKey(), TRANSACTIONS_FILE))));
+        if (saved.contains(false)) {
+            // Keep the journal, so its transactions are sharded again on the next load
+            return;
+        }
+        journal.reset();
+        for (Transaction transaction : unsharded) {
+            journal.append(JSONDatabase.dataToDict(transaction));
+        }
+        journal.flush();
+    }
+
+    //Identifies a transaction by its content. Histories and saved transactions are loaded into different rows.
+    private static String key(Transaction transaction) {
+        return transaction.getAccountNumber() + '/' + transaction.getType() + '/'
+                + transaction.getEpochSecond() + '/' + transaction.getNano();
+    }
+
+    /**
+     * Rewrites the bank and accounts files of every shard.
+     *
+     * @return Flag if the files of every shard were written.
+     */
+    @Override
+    public boolean checkpoint(Iterable<Bank> banks) {
+        List<Bank> bankList = new ArrayList<>();
+        banks.forEach(bankList::add);
+        List<Boolean> saved = inParallel(bankList, bank -> List.of(writeBank(bank)
+                && JSONDatabase.saveData(bank.accounts(), file(bank.getBankId(), ACCOUNTS_FILE))));
+        return !saved.contains(false);
+    }
+
+    @Override
+    public void close() {
+        journal.close();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static boolean writeBank(Bank bank) {
+        JSONArray data = new JSONArray();
+        data.add(JSONDatabase.bankToDict(bank));
+        return JSONDatabase.save(data, file(bank.getBankId(), BANK_FILE));
+    }
+
+    /**
+     * Runs one task per item on the pool, and collects their results in the order of the items.
+     */
+    private <S, R> List<R> inParallel(List<S> items, Function<S, List<R>> task) {
+        return pool.submit(() -> items.parallelStream()
+                .map(task)
+                .flatMap(List::stream)
+                .collect(Collectors.toCollection(ArrayList::new))).join();
+    }
+
+    //Returns the IDs of every bank that has a shard directory.
+    private static List<Integer> shards() {
+        Path directory = Paths.get(SHARDS_DIRECTORY);
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> paths = Files.list(directory)) {
+            return paths.filter(Files::isDirectory)
+                    .map(path -> path.getFileName().toString())
+                    .filter(name -> name.chars().allMatch(Character::isDigit))
+                    .map(Integer::valueOf)
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Error listing bank shards", e);
+            return List.of();
+        }
+    }
+
+    private static String file(int bankId, String name) {
+        Path directory = Paths.get(SHARDS_DIRECTORY, String.valueOf(bankId));
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Error creating bank shard directory", e);
+        }
+        return directory.resolve(name).toString();
+    }
+}
@@ -0,0 +1,65 @@
+package Database;
+
+/**
+ * Selects the storage backend used by the launchers. The backend is chosen once at startup
+ * through the "bsystem.storage" system property:
+ * <ul>
+ *     <li>json - JSON files with delta records (default).</li>
+ *     <li>binary - Binary snapshot with a log of changed records.</li>
+ *     <li>sharded - One directory of JSON files per bank, loaded and saved in parallel.</li>
+ *     <li>memory - Kept in memory only, nothing is written to disk.</li>
+ * </ul>
+ */
+public class Storage {
+
+    //System property naming the backend to use.
+    public static final String BACKEND_PROPERTY = "bsystem.storage";
+
+    //Read on every transaction, so it is volatile rather than read under the lock of the class.
+    private static volatile StorageBackend backend;
+
+    /**
+     * Returns the backend in use, creating the one selected at startup if needed.
+     *
+     * @return The storage backend.
+     */
+    public static StorageBackend get() {
+        StorageBackend current = backend;
+        if (current == null) {
+            synchronized (Storage.class) {
+                // Another thread may have created it in the meantime
+                if (backend == null) {
+                    backend = create(System.getProperty(BACKEND_PROPERTY, "json"));
+                }
+                current = backend;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Replaces the backend in use. Must be called before any data is loaded.
+     *
+     * @param storageBackend The backend to use from now on.
+     */
+    public static synchronized void set(StorageBackend storageBackend) {
+        backend = storageBackend;
+    }
+
+    /**
+     * Creates a backend by name.
+     *
+     * @param name Name of the backend: json, binary, sharded or memory.
+     * @return A new backend of that kind.
+     * @throws IllegalArgumentException If there is no backend with that name.
+     */
+    public static StorageBackend create(String name) {
+        return switch (name.toLowerCase()) {
+            case "json" -> new JSONStorage();
+            case "binary" -> new BinaryStorage();
+            case "sharded" -> new ShardedStorage();
+            case "memory" -> new MemoryStorage();
+            default -> throw new IllegalArgumentException("Unknown storage backend: " + name);
+        };
+    }
+}
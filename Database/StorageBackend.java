@@ -0,0 +1,105 @@
+package Database;
+
+import Accounts.Account;
+import Bank.Bank;
+import Processes.Transaction;
+
+import java.util.function.Consumer;
+
+/**
+ * Persists banks, accounts and transactions between program executions.
+ * The launchers only talk to the backend returned by Storage.get(), so the way data is stored
+ * can be changed without touching them.
+ * <br><br>
+ * Banks are always loaded before accounts, since accounts are attached to their bank while loading.
+ */
+public interface StorageBackend {
+
+    /**
+     * Checks if anything was saved by an earlier run, so there is data to be loaded.
+     *
+     * @return Flag if saved data exists.
+     */
+    boolean hasData();
+
+    /**
+     * Checks if this backend keeps data between program executions. Changes made while it is
+     * in use only need to be logged for recovery if it does.
+     *
+     * @return Flag if data is written to disk.
+     */
+    boolean isPersistent();
+
+    /**
+     * Loads every saved bank.
+     *
+     * @param consumer Receives each bank.
+     */
+    void loadBanks(Consumer<? super Bank> consumer);
+
+    /**
+     * Loads every saved account, along with its balance and transaction history.
+     *
+     * @param consumer Receives each account.
+     */
+    void loadAccounts(Consumer<? super Account> consumer);
+
+    /**
+     * Loads every saved transaction, in the order they were recorded.
+     *
+     * @param consumer Receives each transaction.
+     */
+    void loadTransactions(Consumer<? super Transaction> consumer);
+
+    /**
+     * Saves the banks changed since the last save.
+     *
+     * @param changed The changed banks.
+     */
+    void saveBanks(Iterable<Bank> changed);
+
+    /**
+     * Saves the accounts changed since the last save.
+     *
+     * @param changed The changed accounts.
+     */
+    void saveAccounts(Iterable<Account> changed);
+
+    /**
+     * Records a new transaction. It may be buffered until flushTransactions() is called.
+     *
+     * @param transaction The transaction to be recorded.
+     */
+    void appendTransaction(Transaction transaction);
+
+    /**
+     * Write every buffered transaction.
+     */
+    void flushTransactions();
+
+    /**
+     * Write every buffered transaction and force them onto the storage device.
+     */
+    void syncTransactions();
+
+    /**
+     * Rewrites the saved transactions with the full list of transactions.
+     *
+     * @param transactions Every transaction, in the order they were recorded.
+     */
+    void saveTransactions(Iterable<Transaction> transactions);
+
+    /**
+     * Saves the full state of every bank and account, so earlier changes no longer need to be kept.
+     *
+     * @param banks Every registered bank. Accounts are saved through their bank.
+     * @return Flag if the full state was saved.
+     */
+    boolean checkpoint(Iterable<Bank> banks);
+
+    /**
+     * Called once when the program exits, after the changes were saved. Buffered data is written
+     * and files are released.
+     */
+    void close();
+}
@@ -0,0 +1,299 @@
+package Database;
+
+import Accounts.Account;
+import Bank.Bank;
+import Bank.BankLauncher;
+import Processes.Transaction;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A write-ahead log of every change made to the banking state. Each balance change is recorded,
+ * and forced onto the storage device, before the operation that made it reports success.
+ * Records hold the resulting balances rather than the amounts involved, so replaying a record
+ * more than once gives the same state. The transactions registered by an operation are forced
+ * onto the storage device before its record is, so an acknowledged operation never loses its history.
+ * Operations log their records while holding the locks of their accounts, and force the log once the
+ * locks are released. Threads forcing the log at the same time share one force of the storage device.
+ * <br><br>
+ * Every few records, a checkpoint has the storage backend save the full state, and the records it
+ * covers are dropped from the log. Checkpoints run on a thread of their own and save copies of the
+ * accounts, each taken while holding its lock, so no operation waits for one. On startup, the state
+ * is loaded from the latest checkpoint and the records logged after it are replayed. Recovery time
+ * is therefore bounded by the checkpoint interval.
+ * Nothing is logged while the storage backend keeps data in memory only.
+ */
+public class WriteAheadLog {
+
+    // Logger instance for logging errors
+    private static final Logger LOGGER = Logger.getLogger(WriteAheadLog.class.getName());
+
+    //The name of the file where the log is stored.
+    private static final String WAL_FILE = "Database/State.wal";
+    //Operation names used for records that open a new bank or account.
+    private static final String OPEN_BANK = "OpenBank", OPEN_ACCOUNT = "OpenAccount";
+
+    private static final JSONJournal log = new JSONJournal(WAL_FILE, JSONJournal.FlushPolicy.MANUAL, 1);
+    //Number of records after which a checkpoint is taken.
+    private static int checkpointInterval = 1000;
+    private static int recordsSinceCheckpoint;
+    //Set when a checkpoint is due, until the checkpoint thread starts it.
+    private static boolean checkpointRequested;
+    //Takes the checkpoints requested by append(). Started on the first request.
+    private static Thread checkpointer;
+    //Held while a checkpoint is taken, so only one is taken at a time.
+    private static final Object CHECKPOINT_LOCK = new Object();
+    //Set while the log is being replayed, so replayed changes are not logged again.
+    private static boolean recovering;
+    //Number of records appended so far, and how many of them were forced onto the storage device.
+    private static long appended;
+    private static long synced;
+    //Held while the log is forced, so threads waiting to force it share the next one.
+    private static final Object SYNC_LOCK = new Object();
+
+    /**
+     * Set the number of records after which a checkpoint is taken.
+     *
+     * @param interval Number of records between checkpoints. Cannot be lower than 1.
+     */
+    public static synchronized void setCheckpointInterval(int interval) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("Checkpoint interval cannot be lower than 1.");
+        }
+        checkpointInterval = interval;
+    }
+
+    /**
+     * Record the balances of the accounts changed by some operation, and force the log onto the
+     * storage device. Must not be called while holding the lock of an account: use recordUnforced()
+     * there, and sync() once the lock is released.
+     *
+     * @param operation Name of the operation, such as the type of transaction.
+     * @param accounts Accounts changed by the operation.
+     */
+    public static void record(String operation, Account... accounts) {
+        recordUnforced(operation, accounts);
+        sync();
+    }
+
+    /**
+     * Record the balances of the accounts changed by some operation, without forcing the log onto
+     * the storage device. A batch of operations is recorded this way, then forced once with sync()
+     * before any of them reports success.
+     *
+     * @param operation Name of the operation, such as the type of transaction.
+     * @param accounts Accounts changed by the operation.
+     */
+    public static synchronized void recordUnforced(String operation, Account... accounts) {
+        if (!isEnabled()) {
+            return;
+        }
+        append(balancesRecord(operation, accounts));
+    }
+
+    /**
+     * Force every record logged so far onto the storage device, along with the transactions
+     * registered before them. Threads that call this while the log is being forced wait for that,
+     * then force every record logged meanwhile at once, so concurrent operations share one force.
+     */
+    public static void sync() {
+        long target;
+        synchronized (WriteAheadLog.class) {
+            if (!isEnabled()) {
+                return;
+            }
+            target = appended;
+        }
+        synchronized (SYNC_LOCK) {
+            // The force that ran while this thread waited may have covered its records already
+            if (synced >= target) {
+                return;
+            }
+            long forced;
+            synchronized (WriteAheadLog.class) {
+                forced = appended;
+            }
+            Transaction.syncTransactions();
+            log.sync();
+            synced = forced;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static JSONObject balancesRecord(String operation, Account... accounts) {
+        JSONArray balances = new JSONArray();
+        for (Account account : accounts) {
+            JSONObject balance = new JSONObject();
+            balance.put("bankId", account.getBank().getBankId());
+            balance.put("accountNumber", account.getAccountNumber());
+            balance.put("balanceCents", account.getBalanceCents());
+            balances.add(balance);
+        }
+        JSONObject record = new JSONObject();
+        record.put("op", operation);
+        record.put("accounts", balances);
+        return record;
+    }
+
+    /**
+     * Record a newly registered bank.
+     *
+     * @param bank The bank that was registered.
+     */
+    @SuppressWarnings("unchecked")
+    public static void recordNewBank(Bank bank) {
+        JSONObject record = new JSONObject();
+        record.put("op", OPEN_BANK);
+        record.put("bank", JSONDatabase.dataToDict(bank));
+        appendIfEnabled(record);
+        sync();
+    }
+
+    /**
+     * Record a newly registered account.
+     *
+     * @param account The account that was registered.
+     */
+    @SuppressWarnings("unchecked")
+    public static void recordNewAccount(Account account) {
+        JSONObject record = new JSONObject();
+        record.put("op", OPEN_ACCOUNT);
+        record.put("account", JSONDatabase.dataToDict(account));
+        appendIfEnabled(record);
+        sync();
+    }
+
+    /**
+     * Take a checkpoint of the full state. The storage backend saves a copy of every bank and account,
+     * and the records logged before the copy was taken are dropped once it was written. Operations
+     * keep running meanwhile: records logged during the checkpoint are kept, and replaying them over
+     * the saved state gives the same balances, since records hold resulting balances.
+     */
+    public static void checkpoint() {
+        synchronized (CHECKPOINT_LOCK) {
+            long covered;
+            synchronized (WriteAheadLog.class) {
+                if (!Storage.get().isPersistent()) {
+                    return;
+                }
+                // Every record before this position was logged after its change was made, so the copy below includes it
+                covered = log.position();
+                recordsSinceCheckpoint = 0;
+            }
+            Transaction.flushTransactions();
+            if (Storage.get().checkpoint(BankLauncher.snapshotBanks())) {
+                log.discardBefore(covered);
+            } else {
+                LOGGER.log(Level.WARNING, "Checkpoint failed, keeping the write-ahead log");
+            }
+        }
+    }
+
+    //Wakes the checkpoint thread. Called while holding the lock of this class.
+    private static void requestCheckpoint() {
+        checkpointRequested = true;
+        if (checkpointer == null) {
+            checkpointer = new Thread(WriteAheadLog::takeCheckpoints, "wal-checkpoint");
+            checkpointer.setDaemon(true);
+            checkpointer.start();
+        }
+        WriteAheadLog.class.notifyAll();
+    }
+
+    private static void takeCheckpoints() {
+        while (true) {
+            synchronized (WriteAheadLog.class) {
+                while (!checkpointRequested) {
+                    try {
+                        WriteAheadLog.class.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                checkpointRequested = false;
+            }
+            try {
+                checkpoint();
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.SEVERE, "Checkpoint failed, keeping the write-ahead log", e);
+            }
+        }
+    }
+
+    /**
+     * Replay the records logged after the latest checkpoint. Must be called once the banks
+     * and accounts were loaded.
+     */
+    public static synchronized void recover() {
+        if (!Storage.get().isPersistent()) {
+            return;
+        }
+        recovering = true;
+        try {
+            log.replay(record -> {
+                replay(record);
+                recordsSinceCheckpoint++;
+            });
+        } finally {
+            recovering = false;
+        }
+    }
+
+    //Nothing is logged while replaying, or when the storage backend does not write to disk.
+    private static boolean isEnabled() {
+        return !recovering && Storage.get().isPersistent();
+    }
+
+    private static synchronized void appendIfEnabled(JSONObject record) {
+        if (isEnabled()) {
+            append(record);
+        }
+    }
+
+    //Called while holding the lock of this class.
+    private static void append(JSONObject record) {
+        log.append(record);
+        appended++;
+        if (++recordsSinceCheckpoint >= checkpointInterval) {
+            requestCheckpoint();
+        }
+    }
+
+    private static void replay(JSONObject record) {
+        String operation = (String) record.get("op");
+        if (OPEN_BANK.equals(operation)) {
+            Bank bank = JSONDatabase.dataFromDict((JSONObject) record.get("bank"), Bank.class);
+            if (bank != null && BankLauncher.getBankById(bank.getBankId()) == null) {
+                BankLauncher.restoreBank(bank);
+                bank.markChanged();
+            }
+        } else if (OPEN_ACCOUNT.equals(operation)) {
+            Account account = JSONDatabase.dataFromDict((JSONObject) record.get("account"), Account.class);
+            if (account != null && account.getBank().restoreAccount(account)) {
+                account.markChanged();
+            }
+        } else {
+            for (Object obj : (JSONArray) record.get("accounts")) {
+                JSONObject balance = (JSONObject) obj;
+                Bank bank = BankLauncher.getBankById(((Number) balance.get("bankId")).intValue());
+                String accountNumber = (String) balance.get("accountNumber");
+                Account account = bank == null ? null : bank.getBankAccount(bank, accountNumber);
+                if (account == null) {
+                    LOGGER.log(Level.WARNING, "Account not found while replaying: {0}", accountNumber);
+                    continue;
+                }
+                // Records written before balances were kept in centavos hold a decimal balance
+                if (balance.containsKey("balanceCents")) {
+                    account.restoreBalanceCents(((Number) balance.get("balanceCents")).longValue());
+                } else {
+                    account.restoreBalance(((Number) balance.get("balance")).doubleValue());
+                }
+                account.markChanged();
+            }
+        }
+    }
+}
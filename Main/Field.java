@@ -1,5 +1,7 @@
 package Main;
 
+import Processes.Money;
+
 /**
  * A Field Class that is used for data input on times when you are supposed
  * to input something, like for example, Bank Name and Bank Passcode.
@@ -105,12 +107,19 @@ public class Field<T, E> {
 
     /**
      * A Field Validator class to compare if some double value passes some given threshold.
+     * The value must also be an amount of money that can be converted into centavos.
      * Used for validation purposes.
      */
     public static class DoubleFieldValidator implements FieldValidator<Double, Double> {
 
         @Override
         public String validate(Double value, Double threshold) {
+            // Amounts are kept in centavos, so NaN, Infinity and amounts too large for a long are rejected here
+            try {
+                Money.toCents(value);
+            } catch (ArithmeticException err) {
+                return "Field input must be a valid amount.";
+            }
             if(value < threshold) {
                 return "Field input must be greater or equal to: " + threshold;
             }
@@ -4,8 +4,9 @@ import Accounts.AccountLauncher;
 import Processes.IllegalAccountType;
 import Processes.Transaction;
 import Bank.*;
+import Database.Storage;
+import Database.WriteAheadLog;
 import java.util.Scanner;
-import java.io.File;
 
 public class Main
 {
@@ -23,18 +24,16 @@ public class Main
             Integer.class, -1, new Field.IntegerFieldValidator());
 
     public static void main(String[] args) throws IllegalAccountType {
-        // Load banks, accounts, and transactions from JSON files if they exist
-        if (new File("Database/Banks.json").exists()) {
+        // Load banks, accounts, and transactions if the selected storage backend has saved any
+        if (Storage.get().hasData()) {
             BankLauncher.loadBanks();
             System.out.println("Banks loaded.");
-        }
-        if (new File("Database/Accounts.json").exists()) {
             AccountLauncher.loadAccounts();
             System.out.println("Accounts loaded.");
-        }
-        if (new File("Database/Transactions.json").exists()) {
             Transaction.loadTransactions();
         }
+        // Replay the changes logged after the latest checkpoint
+        WriteAheadLog.recover();
 
         while (true)
         {
@@ -81,6 +80,7 @@ public class Main
                     Transaction.saveTransactions();
                     AccountLauncher.saveAccounts();
                     BankLauncher.saveBanks();
+                    Storage.get().close();
                     System.exit(0);
 
                 default:
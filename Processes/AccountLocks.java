@@ -0,0 +1,70 @@
+package Processes;
+
+import Accounts.Account;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Striped locks guarding the balance and history of accounts. Each account maps to one of a fixed
+ * number of locks by its account number, so operations on accounts in different stripes never wait
+ * on each other, and no lock is kept per account.
+ * <br><br>
+ * Operations on two accounts always lock the lower stripe first, so two transfers going opposite
+ * ways between the same accounts cannot deadlock. The locks are reentrant, so an operation may call
+ * another one on the same accounts while holding them.
+ */
+public class AccountLocks {
+
+    //Number of stripes, as a power of two so a hash is mapped to a stripe with a mask.
+    private static final int STRIPES = Integer.highestOneBit(Math.max(64, Runtime.getRuntime().availableProcessors() * 16));
+
+    private static final ReentrantLock[] LOCKS = new ReentrantLock[STRIPES];
+
+    static {
+        for (int i = 0; i < STRIPES; i++) {
+            LOCKS[i] = new ReentrantLock();
+        }
+    }
+
+    private static int stripe(Account account) {
+        int hash = account.getAccountNumber().hashCode();
+        // Spread the high bits, since account numbers often only differ in their last digits
+        hash ^= (hash >>> 16);
+        return hash & (STRIPES - 1);
+    }
+
+    /**
+     * Lock one account.
+     *
+     * @param account The account to be locked.
+     */
+    public static void lock(Account account) {
+        LOCKS[stripe(account)].lock();
+    }
+
+    public static void unlock(Account account) {
+        LOCKS[stripe(account)].unlock();
+    }
+
+    /**
+     * Lock two accounts, in stripe order.
+     *
+     * @param first One of the accounts.
+     * @param second The other account.
+     */
+    public static void lock(Account first, Account second) {
+        int a = stripe(first), b = stripe(second);
+        LOCKS[Math.min(a, b)].lock();
+        if (a != b) {
+            LOCKS[Math.max(a, b)].lock();
+        }
+    }
+
+    public static void unlock(Account first, Account second) {
+        int a = stripe(first), b = stripe(second);
+        if (a != b) {
+            LOCKS[Math.max(a, b)].unlock();
+        }
+        LOCKS[Math.min(a, b)].unlock();
+    }
+}
@@ -3,11 +3,20 @@ package Processes;
 public interface Deposit {
 
 
+    /**
+     * Deposit an amount of money to some given account.
+     * @param amount Amount to be deposited, in centavos.
+     * @return Flag if transaction is successful or not.
+     */
+    public boolean cashDepositCents(long amount);
+
     /**
      * Deposit an amount of money to some given account.
      * @param amount Amount to be deposited.
      * @return Flag if transaction is successful or not.
      */
-    public boolean cashDeposit(double amount);
+    public default boolean cashDeposit(double amount) {
+        return cashDepositCents(Money.toCents(amount));
+    }
 
 }
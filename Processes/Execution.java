@@ -0,0 +1,93 @@
+package Processes;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Selects where transactions run. The mode is chosen once at startup through the "bsystem.execution"
+ * system property:
+ * <ul>
+ *     <li>direct - On the thread that makes the transaction, under the locks of its accounts (default).</li>
+ *     <li>partitioned - On the partition of each account in a PartitionedEngine, with as many
+ *     partitions as the "bsystem.partitions" system property, or one per processor. The thread that
+ *     makes the transaction waits for it to complete.</li>
+ * </ul>
+ * Deposits, withdrawals, credits, recompenses, payments and transfers between accounts of the same
+ * type follow the mode. External transfers, and transfers between business accounts, which charge
+ * a processing fee, always run directly.
+ */
+public class Execution {
+
+    //System property naming the execution mode to use.
+    public static final String MODE_PROPERTY = "bsystem.execution";
+    //System property with the number of partitions of the partitioned mode.
+    public static final String PARTITIONS_PROPERTY = "bsystem.partitions";
+
+    //Engine of the partitioned mode, or null when transactions run directly.
+    private static volatile PartitionedEngine engine;
+    //Set once the mode is chosen. Read on every transaction, so it is volatile.
+    private static volatile boolean selected;
+
+    /**
+     * Returns the engine transactions run on, choosing the mode selected at startup if needed.
+     *
+     * @return The partitioned engine, or null if transactions run directly.
+     */
+    public static PartitionedEngine engine() {
+        if (!selected) {
+            synchronized (Execution.class) {
+                // Another thread may have chosen it in the meantime
+                if (!selected) {
+                    engine = create(System.getProperty(MODE_PROPERTY, "direct"));
+                    selected = true;
+                }
+            }
+        }
+        return engine;
+    }
+
+    /**
+     * Replaces the engine transactions run on. The engine in use before is not closed.
+     *
+     * @param partitionedEngine The engine to use from now on, or null to run transactions directly.
+     */
+    public static synchronized void set(PartitionedEngine partitionedEngine) {
+        engine = partitionedEngine;
+        selected = true;
+    }
+
+    /**
+     * Creates the engine of an execution mode by name.
+     *
+     * @param name Name of the mode: direct or partitioned.
+     * @return A new engine, or null for the direct mode.
+     * @throws IllegalArgumentException If there is no mode with that name.
+     */
+    public static PartitionedEngine create(String name) {
+        return switch (name.toLowerCase()) {
+            case "direct" -> null;
+            case "partitioned" -> new PartitionedEngine(
+                    Integer.getInteger(PARTITIONS_PROPERTY, Runtime.getRuntime().availableProcessors()));
+            default -> throw new IllegalArgumentException("Unknown execution mode: " + name);
+        };
+    }
+
+    /**
+     * Wait for a transaction queued to the engine, and rethrow the exception that made it fail.
+     *
+     * @param transaction The queued transaction.
+     * @return The result of the transaction.
+     */
+    public static boolean await(CompletableFuture<Boolean> transaction) {
+        try {
+            return transaction.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            } else if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -16,11 +16,19 @@ public interface FundTransfer{
      * </ul>
      * @param bank Bank.Bank ID of the recepient's account.
      * @param account Recipient's account number.
-     * @param amount Amount of money to be transferred.
+     * @param amount Amount of money to be transferred, in centavos.
      * @throws IllegalAccountType This error is thrown depending on the rules set upon. Generally
      * occurs when fund transferring from an incompatible account type.
      */
-    public boolean transfer(Bank bank, Account account, double amount) throws IllegalAccountType;
+    public boolean transferCents(Bank bank, Account account, long amount) throws IllegalAccountType;
+
+    /**
+     * Same as transferCents(), with an amount of money in pesos.
+     * @param amount Amount of money to be transferred.
+     */
+    public default boolean transfer(Bank bank, Account account, double amount) throws IllegalAccountType {
+        return transferCents(bank, account, Money.toCents(amount));
+    }
 
     /**
      * Transfer money from one account on the same bank, using the
@@ -33,9 +41,17 @@ public interface FundTransfer{
      *     <li>Recepient account is from another bank.</li>
      * </ul>
      * @param account Accounts.Account number of the recepient.
-     * @param amount Amount of money to be transferred.
+     * @param amount Amount of money to be transferred, in centavos.
      * @throws IllegalAccountType This error is thrown depending on the rules set upon. Generally occurs
      * when fund transferring from an incompatible account type.
      */
-    public boolean transfer(Account account, double amount) throws IllegalAccountType;
+    public boolean transferCents(Account account, long amount) throws IllegalAccountType;
+
+    /**
+     * Same as transferCents(), with an amount of money in pesos.
+     * @param amount Amount of money to be transferred.
+     */
+    public default boolean transfer(Account account, double amount) throws IllegalAccountType {
+        return transferCents(account, Money.toCents(amount));
+    }
 }
\ No newline at end of file
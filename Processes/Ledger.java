@@ -0,0 +1,482 @@
+package Processes;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A columnar store of transactions. Each transaction is a row, and each of its fields is kept in
+ * a column of primitives: timestamps, amounts and fees as longs, types as bytes, and account numbers
+ * and bank names as ints pointing into a dictionary of distinct strings. Transaction objects are
+ * flyweight views over a row, so the ledger holds no object per transaction.
+ * <br><br>
+ * Columns grow by whole chunks, so appending never copies the rows stored so far. Rows are never
+ * removed. As in TransactionLog, each append claims its row with an atomic increment of the tail and
+ * writes its columns without locks, so threads appending at once never wait on each other; the lock
+ * of the ledger is only taken to add a chunk or to archive chunks. A row can be read without locks
+ * from any thread that obtained its index from the thread that appended it.
+ * <br><br>
+ * Full chunks whose transactions are all older than the archive age are moved off the heap, into
+ * fixed-size records in direct memory, so years of history stay readable without being scanned by
+ * the garbage collector. The age is read from the "bsystem.archive.days" system property, and
+ * archived rows are read the same way as recent ones.
+ * <br><br>
+ * Archiving is never done while appending. Each chunk keeps the timestamp of its newest row as rows
+ * are appended, and archive() only looks at chunks that became full since its last call, plus a queue
+ * of full chunks waiting to get old enough, so a call costs nothing when there is nothing to archive.
+ * Transaction calls it from its background thread. Chunks are archived whole, so a chunk holding
+ * one recent row stays on the heap with all of its rows; history loaded out of order can stay on
+ * the heap until its newest rows get old enough.
+ */
+public class Ledger {
+
+    //System property with the age, in days, after which full chunks are archived off the heap.
+    public static final String ARCHIVE_DAYS_PROPERTY = "bsystem.archive.days";
+    private static final long DEFAULT_ARCHIVE_DAYS = 90;
+
+    //Number of rows per chunk, as a power of two so a row is split into chunk and offset with shifts.
+    private static final int CHUNK_SHIFT = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    //Marks a row without a bank name, or without a kept description.
+    private static final int NONE = -1;
+
+    //Layout of an archived record, longs first so every field is aligned.
+    private static final int EPOCH_SECOND = 0;
+    private static final int AMOUNT = 8;
+    private static final int FEE = 16;
+    private static final int NANO = 24;
+    private static final int ACCOUNT = 28;
+    private static final int BANK = 32;
+    private static final int DESCRIPTION = 36;
+    private static final int TYPE = 40;
+    private static final int RECORD_SIZE = 48;
+
+    //Chunks of rows, on the heap or archived. A chunk is replaced as a whole when it is archived.
+    //The array is only replaced, under the lock of the ledger, and is volatile since rows are read without it.
+    private volatile Chunk[] chunks = new Chunk[0];
+    //Row of the next transaction to be appended.
+    private final AtomicInteger tail = new AtomicInteger();
+    //Full chunks still on the heap, the one whose newest row is oldest first.
+    private final PriorityQueue<HeapChunk> waiting = new PriorityQueue<>(Comparator.comparingLong(heap -> heap.newestEpochSecond.get()));
+    //Chunks before this one are archived or waiting to be.
+    private int queued;
+    private volatile int archivedChunks;
+    private final long archiveDays;
+
+    //Distinct account numbers and bank names, referred to by their position.
+    private final Strings names = new Strings();
+    private final ConcurrentHashMap<String, Integer> nameIds = new ConcurrentHashMap<>();
+    //Descriptions kept as text, for transactions loaded from files that only kept the text.
+    private final Strings texts = new Strings();
+
+    private static final Transaction.Transactions[] TYPES = Transaction.Transactions.values();
+
+    public Ledger() {
+        this(Long.getLong(ARCHIVE_DAYS_PROPERTY, DEFAULT_ARCHIVE_DAYS));
+    }
+
+    /**
+     * Create a ledger with a given archive age.
+     *
+     * @param archiveDays Age, in days, after which full chunks are archived off the heap.
+     */
+    public Ledger(long archiveDays) {
+        if (archiveDays < 0) {
+            throw new IllegalArgumentException("Archive age cannot be negative.");
+        }
+        this.archiveDays = archiveDays;
+    }
+
+    /**
+     * Append a transaction.
+     *
+     * @param accountNumber Account number that triggered the transaction.
+     * @param type Type of the transaction.
+     * @param description Description kept as text, or null to render it from the amount.
+     * @param amount Amount of money involved, in centavos.
+     * @param fee Processing fee charged, in centavos.
+     * @param bankName Name of the other bank involved, or null.
+     * @param epochSecond Seconds of the local date-time of the transaction since the epoch.
+     * @param nano Nanoseconds within the second.
+     * @return Row of the transaction.
+     */
+    public int append(String accountNumber, Transaction.Transactions type, String description,
+                      long amount, long fee, String bankName, long epochSecond, int nano) {
+        int row = tail.getAndIncrement();
+        if (row < 0) {
+            throw new IllegalStateException("Ledger is full.");
+        }
+        int offset = row & CHUNK_MASK;
+        // A chunk is only archived once all of its rows are written, so this one is still on the heap
+        HeapChunk heap = (HeapChunk) chunk(row >>> CHUNK_SHIFT);
+        heap.seen(epochSecond);
+        heap.epochSeconds[offset] = epochSecond;
+        heap.nanos[offset] = nano;
+        heap.amounts[offset] = amount;
+        heap.fees[offset] = fee;
+        heap.types[offset] = (byte) type.ordinal();
+        heap.accounts[offset] = nameId(accountNumber);
+        heap.banks[offset] = nameId(bankName);
+        if (description == null) {
+            heap.descriptions[offset] = NONE;
+        } else {
+            heap.descriptions[offset] = texts.add(description);
+        }
+        heap.written.incrementAndGet();
+        return row;
+    }
+
+    private Chunk chunk(int chunk) {
+        Chunk[] current = chunks;
+        if (chunk < current.length) {
+            return current[chunk];
+        }
+        synchronized (this) {
+            if (chunk >= chunks.length) {
+                // Rows appended concurrently may need more than one new chunk.
+                // The new chunks are in place before readers can see the grown array
+                Chunk[] grown = Arrays.copyOf(chunks, chunk + 1);
+                for (int i = chunks.length; i <= chunk; i++) {
+                    grown[i] = new HeapChunk(i);
+                }
+                chunks = grown;
+            }
+            return chunks[chunk];
+        }
+    }
+
+    /**
+     * Move every full chunk whose transactions all occurred before some time off the heap.
+     * The chunk being appended to always stays on the heap.
+     *
+     * @param before Transactions older than this may be archived.
+     * @return Number of chunks archived.
+     */
+    public synchronized int archive(LocalDateTime before) {
+        long cutoff = before.toEpochSecond(ZoneOffset.UTC);
+        // Only chunks whose rows were all written since the last call are added to the queue
+        while (queued < chunks.length && ((HeapChunk) chunks[queued]).written.get() == CHUNK_SIZE) {
+            waiting.add((HeapChunk) chunks[queued++]);
+        }
+        int archived = 0;
+        while (!waiting.isEmpty() && waiting.peek().newestEpochSecond.get() < cutoff) {
+            HeapChunk heap = waiting.poll();
+            // The array is replaced rather than changed, so readers see the archived chunk through the volatile field
+            Chunk[] replaced = chunks.clone();
+            replaced[heap.index] = heap.archive();
+            chunks = replaced;
+            archived++;
+        }
+        archivedChunks += archived;
+        return archived;
+    }
+
+    /**
+     * Move every full chunk whose transactions are all older than the archive age off the heap.
+     *
+     * @return Number of chunks archived.
+     */
+    public int archiveExpired() {
+        return archive(LocalDateTime.now().minusDays(archiveDays));
+    }
+
+    /**
+     * Get the number of rows kept off the heap.
+     *
+     * @return Number of archived transactions.
+     */
+    public int archivedSize() {
+        return archivedChunks * CHUNK_SIZE;
+    }
+
+    private int nameId(String name) {
+        if (name == null) {
+            return NONE;
+        }
+        // The name is stored before its position is handed out, so any reader of the row finds it
+        return nameIds.computeIfAbsent(name, names::add);
+    }
+
+    /**
+     * Get the number of rows in this ledger. Rows being appended at the time are counted too.
+     *
+     * @return Number of transactions appended so far.
+     */
+    public int size() {
+        return tail.get();
+    }
+
+    public long epochSecond(int row) {
+        return chunks[row >>> CHUNK_SHIFT].epochSecond(row & CHUNK_MASK);
+    }
+
+    public int nano(int row) {
+        return chunks[row >>> CHUNK_SHIFT].nano(row & CHUNK_MASK);
+    }
+
+    public long amount(int row) {
+        return chunks[row >>> CHUNK_SHIFT].amount(row & CHUNK_MASK);
+    }
+
+    public long fee(int row) {
+        return chunks[row >>> CHUNK_SHIFT].fee(row & CHUNK_MASK);
+    }
+
+    public Transaction.Transactions type(int row) {
+        return TYPES[chunks[row >>> CHUNK_SHIFT].type(row & CHUNK_MASK)];
+    }
+
+    public String accountNumber(int row) {
+        return names.get(chunks[row >>> CHUNK_SHIFT].account(row & CHUNK_MASK));
+    }
+
+    public String bankName(int row) {
+        int id = chunks[row >>> CHUNK_SHIFT].bank(row & CHUNK_MASK);
+        return id == NONE ? null : names.get(id);
+    }
+
+    /**
+     * Get the description kept as text for a row.
+     *
+     * @param row Row of the transaction.
+     * @return The description, or null if it is rendered from the amount.
+     */
+    public String description(int row) {
+        int id = chunks[row >>> CHUNK_SHIFT].description(row & CHUNK_MASK);
+        return id == NONE ? null : texts.get(id);
+    }
+
+    /**
+     * An append-only list of strings, read without locks. Each string claims its position with an
+     * atomic increment, and is written into a chunk that is never copied, before its position is
+     * handed out. A reader finds it through the row that refers to it, so it sees the string
+     * whenever it can see the row. The lock of the list is only taken to add a chunk.
+     */
+    private static final class Strings {
+        //Chunks of strings. Only the array of chunks is replaced when it grows, under the lock of the list.
+        private volatile String[][] chunks = new String[0][];
+        //Position of the next string to be added.
+        private final AtomicInteger size = new AtomicInteger();
+
+        int add(String string) {
+            int id = size.getAndIncrement();
+            if (id < 0) {
+                throw new IllegalStateException("Ledger dictionary is full.");
+            }
+            chunk(id >>> CHUNK_SHIFT)[id & CHUNK_MASK] = string;
+            return id;
+        }
+
+        private String[] chunk(int chunk) {
+            String[][] current = chunks;
+            if (chunk < current.length) {
+                return current[chunk];
+            }
+            synchronized (this) {
+                if (chunk >= chunks.length) {
+                    // Strings added concurrently may need more than one new chunk
+                    String[][] grown = Arrays.copyOf(chunks, chunk + 1);
+                    for (int i = chunks.length; i <= chunk; i++) {
+                        grown[i] = new String[CHUNK_SIZE];
+                    }
+                    chunks = grown;
+                }
+                return chunks[chunk];
+            }
+        }
+
+        String get(int id) {
+            return chunks[id >>> CHUNK_SHIFT][id & CHUNK_MASK];
+        }
+    }
+
+    /**
+     * The rows of one chunk, read by their offset within the chunk.
+     */
+    private abstract static class Chunk {
+        abstract long epochSecond(int offset);
+        abstract int nano(int offset);
+        abstract long amount(int offset);
+        abstract long fee(int offset);
+        abstract byte type(int offset);
+        abstract int account(int offset);
+        abstract int bank(int offset);
+        abstract int description(int offset);
+    }
+
+    /**
+     * A chunk kept on the heap, one array per column.
+     */
+    private static final class HeapChunk extends Chunk {
+        //Position of this chunk in the ledger.
+        private final int index;
+        //Timestamp of the newest row appended so far.
+        private final AtomicLong newestEpochSecond = new AtomicLong(Long.MIN_VALUE);
+        //Number of rows written. Once it reaches the size of the chunk, every column can be read by the archive.
+        private final AtomicInteger written = new AtomicInteger();
+        private final long[] epochSeconds = new long[CHUNK_SIZE];
+        private final int[] nanos = new int[CHUNK_SIZE];
+        private final long[] amounts = new long[CHUNK_SIZE];
+        private final long[] fees = new long[CHUNK_SIZE];
+        private final byte[] types = new byte[CHUNK_SIZE];
+        private final int[] accounts = new int[CHUNK_SIZE];
+        private final int[] banks = new int[CHUNK_SIZE];
+        private final int[] descriptions = new int[CHUNK_SIZE];
+
+        long epochSecond(int offset) { return epochSeconds[offset]; }
+        int nano(int offset) { return nanos[offset]; }
+        long amount(int offset) { return amounts[offset]; }
+        long fee(int offset) { return fees[offset]; }
+        byte type(int offset) { return types[offset]; }
+        int account(int offset) { return accounts[offset]; }
+        int bank(int offset) { return banks[offset]; }
+        int description(int offset) { return descriptions[offset]; }
+
+        private HeapChunk(int index) {
+            this.index = index;
+        }
+
+        private void seen(long epochSecond) {
+            long newest = newestEpochSecond.get();
+            // Rows are mostly appended in time order, so this rarely retries
+            while (epochSecond > newest && !newestEpochSecond.compareAndSet(newest, epochSecond)) {
+                newest = newestEpochSecond.get();
+            }
+        }
+
+        private ArchivedChunk archive() {
+            ByteBuffer records = ByteBuffer.allocateDirect(CHUNK_SIZE * RECORD_SIZE).order(ByteOrder.nativeOrder());
+            for (int offset = 0; offset < CHUNK_SIZE; offset++) {
+                int record = offset * RECORD_SIZE;
+                records.putLong(record + EPOCH_SECOND, epochSeconds[offset]);
+                records.putLong(record + AMOUNT, amounts[offset]);
+                records.putLong(record + FEE, fees[offset]);
+                records.putInt(record + NANO, nanos[offset]);
+                records.putInt(record + ACCOUNT, accounts[offset]);
+                records.putInt(record + BANK, banks[offset]);
+                records.putInt(record + DESCRIPTION, descriptions[offset]);
+                records.put(record + TYPE, types[offset]);
+            }
+            return new ArchivedChunk(records);
+        }
+    }
+
+    /**
+     * A chunk kept off the heap, as fixed-size records in direct memory. Records are only read
+     * with absolute gets, so the buffer can be shared by every reader. The buffer is filled before
+     * the chunk is built and is only reached through a final field, so any thread that sees the
+     * chunk sees its records.
+     */
+    private static final class ArchivedChunk extends Chunk {
+        private final ByteBuffer records;
+
+        private ArchivedChunk(ByteBuffer records) {
+            this.records = records;
+        }
+
+        long epochSecond(int offset) { return records.getLong(offset * RECORD_SIZE + EPOCH_SECOND); }
+        int nano(int offset) { return records.getInt(offset * RECORD_SIZE + NANO); }
+        long amount(int offset) { return records.getLong(offset * RECORD_SIZE + AMOUNT); }
+        long fee(int offset) { return records.getLong(offset * RECORD_SIZE + FEE); }
+        byte type(int offset) { return records.get(offset * RECORD_SIZE + TYPE); }
+        int account(int offset) { return records.getInt(offset * RECORD_SIZE + ACCOUNT); }
+        int bank(int offset) { return records.getInt(offset * RECORD_SIZE + BANK); }
+        int description(int offset) { return records.getInt(offset * RECORD_SIZE + DESCRIPTION); }
+    }
+
+    /**
+     * A growable list of rows, such as the history of one account. Rows are kept as ints, so a list
+     * holds no object per transaction.
+     * <br><br>
+     * A list can be shared without copying its rows: the shared list reads the same array, up to
+     * the size at the time it was shared. The original list keeps adding rows past that size in
+     * place, and only copies the array before moving rows that were shared. The shared list copies
+     * the array before it changes anything.
+     */
+    public static class Rows {
+        private int[] rows;
+        private int size;
+        //Set once another list reads the array, so the rows in it are never moved in place.
+        private boolean shared;
+        //Set on a list reading the array of another, so it never writes into that array.
+        private boolean borrowed;
+
+        public Rows() {
+            this(new int[8], 0);
+        }
+
+        private Rows(int[] rows, int size) {
+            this.rows = rows;
+            this.size = size;
+        }
+
+        public void add(int row) {
+            if (size == rows.length || borrowed) {
+                own(size * 2);
+            }
+            rows[size++] = row;
+        }
+
+        /**
+         * Insert a row at some position, moving the rows after it.
+         *
+         * @param index Position of the new row.
+         * @param row The row to be inserted.
+         */
+        public void insert(int index, int row) {
+            if (size == rows.length || shared || borrowed) {
+                own(size * 2);
+            }
+            System.arraycopy(rows, index, rows, index + 1, size - index);
+            rows[index] = row;
+            size++;
+        }
+
+        //Move the rows to a new array of this list only.
+        private void own(int capacity) {
+            rows = Arrays.copyOf(rows, Math.max(capacity, 8));
+            shared = false;
+            borrowed = false;
+        }
+
+        public int get(int index) {
+            if (index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+            }
+            return rows[index];
+        }
+
+        public void ensureCapacity(int capacity) {
+            if (capacity > rows.length) {
+                own(Math.max(capacity, rows.length * 2));
+            }
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Get a list of the rows added so far, sharing the array of this list instead of copying it.
+         * This list can keep changing meanwhile, and the shared list can be read from any thread
+         * that got it from the thread that shared it.
+         *
+         * @return A list of the same rows.
+         */
+        public Rows share() {
+            shared = true;
+            Rows copy = new Rows(rows, size);
+            copy.borrowed = true;
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package Processes;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Amounts of money are kept as a whole number of centavos in a long, so that balances and limits are
+ * exact and updated with plain integer arithmetic. This class converts between centavos and the
+ * decimal amounts that users enter and that are written to the JSON files.
+ */
+public final class Money {
+
+    //Number of centavos in one peso.
+    public static final long CENTS_PER_UNIT = 100;
+
+    private Money() {
+    }
+
+    /**
+     * Convert a decimal amount into centavos, rounding half up to the nearest centavo.
+     *
+     * @param amount Amount of money, in pesos.
+     * @return The same amount, in centavos.
+     * @throws ArithmeticException If the amount is not a finite number, or does not fit in a long.
+     */
+    public static long toCents(double amount) {
+        if (Double.isNaN(amount) || Double.isInfinite(amount)) {
+            throw new ArithmeticException("Amount is not a number: " + amount);
+        }
+        return BigDecimal.valueOf(amount).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Convert an amount in centavos into a decimal amount.
+     *
+     * @param cents Amount of money, in centavos.
+     * @return The same amount, in pesos.
+     */
+    public static double toAmount(long cents) {
+        return cents / (double) CENTS_PER_UNIT;
+    }
+
+    /**
+     * Format an amount in centavos with two decimal places, such as "1500.25".
+     *
+     * @param cents Amount of money, in centavos.
+     * @return The formatted amount.
+     */
+    public static String format(long cents) {
+        long units = Math.abs(cents / CENTS_PER_UNIT);
+        long fraction = Math.abs(cents % CENTS_PER_UNIT);
+        return String.format(cents < 0 ? "-%d.%02d" : "%d.%02d", units, fraction);
+    }
+}
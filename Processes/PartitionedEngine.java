@@ -0,0 +1,286 @@
+package Processes;
+
+import Accounts.Account;
+import Accounts.CreditAccount;
+import Accounts.SavingsAccount;
+import Accounts.StudentAccount;
+import Database.WriteAheadLog;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs transactions on a fixed number of single-threaded partitions. Every account belongs to one
+ * partition by the hash of its account number, and every change to an account made through the
+ * engine runs on the thread of its partition, so a hot account never has two threads contending
+ * for it. Transactions are queued to their partition and complete asynchronously.
+ * <br><br>
+ * Transfers between accounts of different partitions run in two steps. The sender is debited on
+ * its partition, then the recipient is credited, and its transaction logged, on its own. Back on
+ * the partition of the sender, its transaction is logged and both balances are recorded in the
+ * write-ahead log. If the credit fails, the sender is refunded and the transfer completes as failed.
+ * If logging on the partition of the sender fails once the recipient was credited, the credit is
+ * taken back from the recipient, with a reversal logged in its history, then the sender is refunded
+ * and the transfer completes as failed. A recipient may have spent the credit by then; the transfer
+ * stands in that case, and completes exceptionally with the error that made it fail.
+ * <br><br>
+ * Execution selects the engine for the launchers through the "bsystem.execution" system property.
+ * Operations still log their transactions through the accounts, whose locks are then only taken by
+ * the thread of their partition. All amounts of money are in centavos.
+ */
+public class PartitionedEngine implements AutoCloseable {
+
+    // Logger instance for logging errors
+    private static final Logger LOGGER = Logger.getLogger(PartitionedEngine.class.getName());
+    //Prefix of the write-ahead log operation recorded for a transfer that is taken back.
+    private static final String REVERSAL = "Reverse";
+
+    private final ExecutorService[] partitions;
+
+    /**
+     * Constructor for PartitionedEngine.
+     *
+     * @param partitions Number of partitions, each with its own thread.
+     */
+    public PartitionedEngine(int partitions) {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("There must be at least one partition.");
+        }
+        this.partitions = new ExecutorService[partitions];
+        for (int i = 0; i < partitions; i++) {
+            String name = "partition-" + i;
+            this.partitions[i] = Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(task, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Get the partition that owns an account.
+     *
+     * @param account The account.
+     * @return Index of the partition of that account.
+     */
+    public int partitionOf(Account account) {
+        int hash = account.getAccountNumber().hashCode();
+        // Spread the high bits, since account numbers often only differ in their last digits
+        hash ^= (hash >>> 16);
+        return Math.floorMod(hash, partitions.length);
+    }
+
+    private ExecutorService executorOf(Account account) {
+        return partitions[partitionOf(account)];
+    }
+
+    private CompletableFuture<Boolean> submit(Account account, BooleanSupplier operation) {
+        return CompletableFuture.supplyAsync(operation::getAsBoolean, executorOf(account));
+    }
+
+    public CompletableFuture<Boolean> deposit(Account account, long amount) {
+        return submit(account, () -> TransactionManager.applyDeposit(account, amount));
+    }
+
+    public CompletableFuture<Boolean> withdraw(Account account, long amount) {
+        return submit(account, () -> TransactionManager.applyWithdraw(account, amount));
+    }
+
+    public CompletableFuture<Boolean> credit(Account account, long amount) {
+        return submit(account, () -> TransactionManager.applyCredit(account, amount));
+    }
+
+    public CompletableFuture<Boolean> recompense(Account account, long amount) {
+        return submit(account, () -> TransactionManager.applyRecompense(account, amount));
+    }
+
+    /**
+     * Transfer funds between two accounts of the same type, within the same bank.
+     *
+     * @param sender The account from which the funds will be transferred.
+     * @param recipient The account to which the funds will be transferred.
+     * @param amount The amount to be transferred, in centavos.
+     * @return Completes with true if the transfer succeeded, false otherwise. Completes exceptionally
+     *         with IllegalAccountType if the accounts cannot transfer funds to each other.
+     */
+    public CompletableFuture<Boolean> transfer(Account sender, Account recipient, long amount) {
+        if (sender instanceof CreditAccount || sender.getClass() != recipient.getClass()) {
+            return CompletableFuture.failedFuture(
+                    new IllegalAccountType("Can only transfer funds between accounts of the same type."));
+        }
+        if (sender instanceof StudentAccount student && !student.isEligibleForStudentAccount()) {
+            return CompletableFuture.failedFuture(
+                    new IllegalArgumentException("Account holder must be between 18 and 25 years old."));
+        }
+        return twoStep(sender, recipient, amount,
+                () -> {
+                    if (amount <= 0 || amount > sender.getBank().getWithdrawLimitCents()
+                            || !sender.getBalanceCell().tryAdd(-amount)) {
+                        System.out.println("Transfer failed: Insufficient balance or exceeds withdrawal limit.");
+                        return false;
+                    }
+                    return true;
+                },
+                () -> sender.getBalanceCell().add(amount),
+                Transaction.Transactions.FundTransfer, Transaction.Transactions.ReceiveTransfer);
+    }
+
+    /**
+     * Pay from a credit account to a savings account. The payment is added to the loan of the sender.
+     *
+     * @param sender The credit account from which the payment will be made.
+     * @param recipient The savings account to which the payment will be received.
+     * @param amount The amount to be paid, in centavos.
+     * @return Completes with true if the payment succeeded, false otherwise.
+     */
+    public CompletableFuture<Boolean> pay(CreditAccount sender, SavingsAccount recipient, long amount) {
+        return twoStep(sender, recipient, amount,
+                () -> {
+                    if (amount <= 0) {
+                        System.out.println("Payment amount must be greater than zero.");
+                        return false;
+                    }
+                    // The loan check and the update are one compare-and-set
+                    if (!sender.getBalanceCell().tryAdd(amount, sender.getBank().getCreditLimitCents())) {
+                        System.out.println("Payment failed: Exceeds credit limit.");
+                        return false;
+                    }
+                    return true;
+                },
+                () -> sender.getBalanceCell().add(-amount),
+                Transaction.Transactions.Payment, Transaction.Transactions.ReceivePayment);
+    }
+
+    //Outcome of the steps of a transfer, handed back to the partition of the sender.
+    private enum Outcome {
+        REJECTED, CREDITED, CREDIT_FAILED
+    }
+
+    /**
+     * Move money from one account to another: debit the sender on its partition, credit the
+     * recipient and log its transaction on its partition, then log the transaction of the sender
+     * and record both balances back on the partition of the sender. If the credit fails, it is undone
+     * on the partition of the recipient, then the debit is undone on the partition of the sender.
+     * If the last step fails, the whole transfer is taken back through takeBack().
+     */
+    private CompletableFuture<Boolean> twoStep(Account sender, Account recipient, long amount,
+                                               BooleanSupplier debit, Runnable refund,
+                                               Transaction.Transactions sent, Transaction.Transactions received) {
+        ExecutorService senderPartition = executorOf(sender);
+        return CompletableFuture.supplyAsync(() -> {
+            boolean debited = debit.getAsBoolean();
+            if (debited) {
+                sender.markChanged();
+            }
+            return debited;
+        }, senderPartition).thenApplyAsync(debited -> {
+            if (!debited) {
+                return Outcome.REJECTED;
+            }
+            try {
+                recipient.getBalanceCell().add(amount);
+            } catch (RuntimeException e) {
+                // Nothing was credited, such as when the balance would overflow
+                System.out.println("Transfer failed: " + e.getMessage());
+                return Outcome.CREDIT_FAILED;
+            }
+            recipient.markChanged();
+            try {
+                recipient.addNewTransaction(sender.getAccountNumber(), received, amount);
+                return Outcome.CREDITED;
+            } catch (RuntimeException e) {
+                // Take the credit back before the sender is refunded. Only this partition changes the recipient
+                recipient.getBalanceCell().add(-amount);
+                System.out.println("Transfer failed: " + e.getMessage());
+                return Outcome.CREDIT_FAILED;
+            }
+        }, executorOf(recipient)).thenComposeAsync(outcome -> switch (outcome) {
+            case REJECTED -> CompletableFuture.completedFuture(false);
+            case CREDITED -> {
+                boolean logged = false;
+                try {
+                    sender.addNewTransaction(recipient.getAccountNumber(), sent, amount);
+                    logged = true;
+                    WriteAheadLog.record(sent.name(), sender, recipient);
+                    yield CompletableFuture.completedFuture(true);
+                } catch (RuntimeException e) {
+                    yield takeBack(sender, recipient, amount, refund, sent, received, logged, e);
+                }
+            }
+            case CREDIT_FAILED -> {
+                // Compensate the debit, since the recipient was never credited
+                refund.run();
+                sender.markChanged();
+                yield CompletableFuture.completedFuture(false);
+            }
+        }, senderPartition);
+    }
+
+    /**
+     * Take back a transfer whose last step failed on the partition of the sender, once the recipient
+     * was credited. The credit is taken back on the partition of the recipient, unless it was spent
+     * meanwhile, then the sender is refunded on its partition. Reversals are logged into the
+     * histories the transfer was logged into, and the restored balances are recorded.
+     *
+     * @param senderLogged Whether the transaction of the sender was logged before the failure.
+     * @param failure What made the last step fail.
+     * @return Completes with false once the transfer is taken back, or exceptionally with the
+     *         failure if the recipient spent the credit, so the transfer stands.
+     */
+    private CompletableFuture<Boolean> takeBack(Account sender, Account recipient, long amount, Runnable refund,
+                                                Transaction.Transactions sent, Transaction.Transactions received,
+                                                boolean senderLogged, RuntimeException failure) {
+        return CompletableFuture.supplyAsync(() -> {
+            if (!recipient.getBalanceCell().tryAdd(-amount)) {
+                return false;
+            }
+            recipient.markChanged();
+            try {
+                recipient.addNewTransaction(sender.getAccountNumber(), sent, amount);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.SEVERE, "Could not log the reversal of a transfer to " + recipient.getAccountNumber(), e);
+            }
+            return true;
+        }, executorOf(recipient)).thenApplyAsync(takenBack -> {
+            if (!takenBack) {
+                LOGGER.log(Level.SEVERE, "Transfer to " + recipient.getAccountNumber() + " stands, its credit was spent", failure);
+                throw new CompletionException(failure);
+            }
+            refund.run();
+            sender.markChanged();
+            try {
+                if (senderLogged) {
+                    sender.addNewTransaction(recipient.getAccountNumber(), received, amount);
+                }
+                WriteAheadLog.recordUnforced(REVERSAL + sent.name(), sender, recipient);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.SEVERE, "Could not log the reversal of a transfer from " + sender.getAccountNumber(), e);
+            }
+            System.out.println("Transfer failed: " + failure.getMessage());
+            return false;
+        }, executorOf(sender));
+    }
+
+    /**
+     * Stop accepting transactions, and wait for every queued one to complete.
+     */
+    @Override
+    public void close() {
+        for (ExecutorService partition : partitions) {
+            partition.shutdown();
+        }
+        try {
+            for (ExecutorService partition : partitions) {
+                partition.awaitTermination(1, TimeUnit.MINUTES);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
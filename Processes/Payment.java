@@ -9,9 +9,19 @@ public interface Payment {
      * This is different from Fund Transfer as paying does not have any sort of
      * processing fee.
      * @param account Target account to pay money into.
-     * @param amount
+     * @param amount Amount of money to be paid, in centavos.
      * @throws IllegalAccountType Payment can only be processed between legal account types.
      */
-    public boolean pay(Account account, double amount) throws IllegalAccountType;
+    public boolean payCents(Account account, long amount) throws IllegalAccountType;
+
+    /**
+     * Pay a certain amount of money into a given account object.
+     * @param account Target account to pay money into.
+     * @param amount Amount of money to be paid.
+     * @throws IllegalAccountType Payment can only be processed between legal account types.
+     */
+    public default boolean pay(Account account, double amount) throws IllegalAccountType {
+        return payCents(account, Money.toCents(amount));
+    }
 
 }
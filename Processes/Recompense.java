@@ -2,11 +2,21 @@ package Processes;
 
 public interface Recompense {
 
+    /**
+     * Recompense some amount of money to the bank and reduce the value of loan recorded in this account.
+     * Must not be greater than the current credit.
+     * @param amount Amount of money to be recompensed, in centavos.
+     * @return Flag if compensation was successful.
+     */
+    public boolean recompenseCents(long amount);
+
     /**
      * Recompense some amount of money to the bank and reduce the value of loan recorded in this account.
      * Must not be greater than the current credit.
      * @param amount Amount of money to be recompensed.
      * @return Flag if compensation was successful.
      */
-    public boolean recompense(double amount);
+    public default boolean recompense(double amount) {
+        return recompenseCents(Money.toCents(amount));
+    }
 }
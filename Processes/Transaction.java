@@ -1,13 +1,27 @@
 package Processes;
 
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
-import Database.JSONDatabase;
-import java.util.ArrayList;
+import Database.Storage;
+import Database.StorageBackend;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * The Transaction class records details of a specific account transaction.
- * Transactions are immutable once created.
+ * Transactions are immutable once created. Every transaction is stored as a row of the ledger,
+ * and Transaction objects are flyweight views over that row, so any number of them may stand
+ * for the same transaction; compare them with equals(). Transactions made by accounts keep their
+ * amount, fee and timestamp as primitives, and only render their description when it is shown.
+ * Transactions loaded from files that only kept the text keep their description as is.
+ * <br><br>
+ * Registered transactions are appended to a lock-free log, and a single background thread hands
+ * them to storage in batches, so threads making transactions never wait on storage or on each other.
  */
 public class Transaction {
 
@@ -22,45 +36,188 @@ public class Transaction {
         Recompense, Credit, ReceivePayment
     }
 
+    //Every transaction, made in this run or loaded from the database.
+    public static final Ledger LEDGER = new Ledger();
+
+    //Row of this transaction in the ledger.
+    private final int row;
+
+    // Logger instance for logging errors
+    private static final Logger LOGGER = Logger.getLogger(Transaction.class.getName());
+    //How long the consumer sleeps when there is nothing to persist, unless woken by a new transaction.
+    private static final long CONSUMER_WAIT_MILLIS = 50;
+
+    //Rows of every registered transaction, in the order they were registered.
+    private static volatile TransactionLog transactions = new TransactionLog();
+    //Held while transactions are handed to storage, so batches are never interleaved.
+    private static final Object PERSIST_LOCK = new Object();
+    //Every transaction before this index of the log has been handed to storage.
+    private static volatile int persisted;
+    //Set while the consumer sleeps, so only then do new transactions wake it up.
+    private static volatile boolean consumerWaiting;
+    private static final Thread CONSUMER = startConsumer();
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    public Transaction(String accountNumber, Transactions transactionType, String description) {
+        this(accountNumber, transactionType, description, 0, 0, null, LocalDateTime.now(), true);
+    }
+
+    public Transaction(String accountNumber, Transactions transactionType, String description, LocalDateTime timestamp) {
+        this(accountNumber, transactionType, description, 0, 0, null, timestamp, true);
+    }
+
     /**
-     * Account number that triggered this transaction.
+     * Record a transaction whose description is rendered from its amount only when it is shown.
+     *
+     * @param accountNumber Account number that triggered the transaction.
+     * @param transactionType Type of the transaction.
+     * @param amount Amount of money involved, in centavos.
+     * @param fee Processing fee charged, in centavos.
+     * @param bankName Name of the other bank involved, or null.
      */
-    public String accountNumber;
+    public Transaction(String accountNumber, Transactions transactionType, long amount, long fee, String bankName) {
+        this(accountNumber, transactionType, null, amount, fee, bankName, LocalDateTime.now(), true);
+    }
+
+    private Transaction(String accountNumber, Transactions transactionType, String description,
+                        long amount, long fee, String bankName, LocalDateTime timestamp, boolean register) {
+        this.row = LEDGER.append(accountNumber, transactionType, description, amount, fee, bankName,
+                timestamp.toEpochSecond(ZoneOffset.UTC), timestamp.getNano());
+        if (register) {
+            registerTransaction();
+        }
+    }
+
+    private Transaction(int row) {
+        this.row = row;
+    }
+
     /**
-     * Type of transaction that was triggered.
+     * Get a view of a transaction already stored in the ledger.
+     *
+     * @param row Row of the transaction in the ledger.
+     * @return A view of the transaction.
      */
-    public Transactions transactionType;
+    public static Transaction ofRow(int row) {
+        return new Transaction(row);
+    }
+
     /**
-     * Description of the transaction.
+     * Rebuilds a previously recorded transaction without registering it. Hydrated transactions
+     * are neither added to the global transaction list nor appended to storage, which makes this
+     * the path used when bulk loading history from the database.
+     *
+     * @param accountNumber Account number that triggered the transaction.
+     * @param transactionType Type of the transaction.
+     * @param description Description of the transaction.
+     * @param timestamp Original time the transaction occurred.
+     * @return The rebuilt transaction.
+     */
+    public static Transaction hydrate(String accountNumber, Transactions transactionType, String description,
+                                      LocalDateTime timestamp) {
+        return new Transaction(accountNumber, transactionType, description, 0, 0, null, timestamp, false);
+    }
+
+    /**
+     * Rebuilds a previously recorded transaction from its amount, without registering it.
+     *
+     * @param accountNumber Account number that triggered the transaction.
+     * @param transactionType Type of the transaction.
+     * @param amount Amount of money involved, in centavos.
+     * @param fee Processing fee charged, in centavos.
+     * @param bankName Name of the other bank involved, or null.
+     * @param timestamp Original time the transaction occurred.
+     * @return The rebuilt transaction.
      */
-    public String description;
+    public static Transaction hydrate(String accountNumber, Transactions transactionType, long amount, long fee,
+                                      String bankName, LocalDateTime timestamp) {
+        return new Transaction(accountNumber, transactionType, null, amount, fee, bankName, timestamp, false);
+    }
 
-    private final LocalDateTime timestamp;
+    private void registerTransaction() {
+        transactions.append(row);
+        if (consumerWaiting) {
+            LockSupport.unpark(CONSUMER);
+        }
+    }
 
-    private static final String TRANSACTIONS_FILE = "Database/Transactions.json";
+    private static Thread startConsumer() {
+        Thread thread = new Thread(Transaction::consume, "transaction-log");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
 
-    private static final ArrayList<Transaction> transactions = new ArrayList<>();
+    //Hands every published transaction to storage, then sleeps until there are more.
+    //Old rows of the ledger are archived on the way, so appending never does it.
+    private static void consume() {
+        while (true) {
+            try {
+                LEDGER.archiveExpired();
+                if (persistPublished() == 0) {
+                    consumerWaiting = true;
+                    // Checked again after setting the flag, so a transaction registered in between is not missed
+                    if (transactions.publish() <= persisted) {
+                        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(CONSUMER_WAIT_MILLIS));
+                    }
+                    consumerWaiting = false;
+                }
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.SEVERE, "Failed to persist transactions: " + e.getMessage(), e);
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(CONSUMER_WAIT_MILLIS));
+            }
+        }
+    }
 
-    public Transaction(String accountNumber, Transactions transactionType, String description) {
-        this.accountNumber = accountNumber;
-        this.transactionType = transactionType;
-        this.description = description;
-        this.timestamp = LocalDateTime.now();
-        registerTransaction();
+    /**
+     * Hand every published transaction not persisted yet to storage, as one batch.
+     *
+     * @return Number of transactions handed to storage.
+     */
+    private static int persistPublished() {
+        synchronized (PERSIST_LOCK) {
+            TransactionLog log = transactions;
+            int end = log.publish();
+            if (end <= persisted) {
+                return 0;
+            }
+            StorageBackend storage = Storage.get();
+            int count = end - persisted;
+            for (int i = persisted; i < end; i++) {
+                storage.appendTransaction(new Transaction(log.get(i)));
+                // Advanced per transaction, so a batch that fails halfway resumes after the last one written
+                persisted = i + 1;
+            }
+            return count;
         }
+    }
 
-    public Transaction(String accountNumber, Transactions transactionType, String description, LocalDateTime timestamp) {
-        this.accountNumber = accountNumber;
-        this.transactionType = transactionType;
-        this.description = description;
-        this.timestamp = timestamp;
-        registerTransaction();
+    /**
+     * Get the row of this transaction in the ledger.
+     *
+     * @return Row of this transaction.
+     */
+    public int getRow() {
+        return row;
     }
 
-    private void registerTransaction() {
-        transactions.add(this);
-        saveTransactions();
-}
+    /**
+     * Get the account number that triggered this transaction.
+     *
+     * @return Account number of the transaction.
+     */
+    public String getAccountNumber() {
+        return LEDGER.accountNumber(row);
+    }
+
+    /**
+     * Get the type of transaction that was triggered.
+     *
+     * @return Type of the transaction.
+     */
+    public Transactions getType() {
+        return LEDGER.type(row);
+    }
 
     /**
      * Retrieves the timestamp when this transaction occurred.
@@ -68,7 +225,75 @@ public class Transaction {
      * @return Transaction timestamp.
      */
     public LocalDateTime getTimestamp() {
-        return timestamp;
+        return LocalDateTime.ofEpochSecond(getEpochSecond(), getNano(), ZoneOffset.UTC);
+    }
+
+    /**
+     * Get the seconds part of the timestamp of this transaction, since the epoch, without building the timestamp.
+     *
+     * @return Seconds of the local date-time of this transaction since 1970-01-01T00:00.
+     */
+    public long getEpochSecond() {
+        return LEDGER.epochSecond(row);
+    }
+
+    /**
+     * Get the nanoseconds part of the timestamp of this transaction.
+     *
+     * @return Nanoseconds within the second, from 0 to 999,999,999.
+     */
+    public int getNano() {
+        return LEDGER.nano(row);
+    }
+
+    /**
+     * Check if the description of this transaction is rendered from its amount, rather than
+     * kept as text.
+     *
+     * @return True if the transaction holds its amount.
+     */
+    public boolean hasAmount() {
+        return LEDGER.description(row) == null;
+    }
+
+    public long getAmountCents() {
+        return LEDGER.amount(row);
+    }
+
+    public long getFeeCents() {
+        return LEDGER.fee(row);
+    }
+
+    public String getBankName() {
+        return LEDGER.bankName(row);
+    }
+
+    /**
+     * Get the description of this transaction. Descriptions of transactions that hold their
+     * amount are rendered on every call.
+     *
+     * @return Description of the transaction.
+     */
+    public String getDescription() {
+        String description = LEDGER.description(row);
+        if (description != null) {
+            return description;
+        }
+        String accountNumber = getAccountNumber();
+        String bankName = getBankName();
+        String php = "Php " + Money.format(getAmountCents());
+        return switch (getType()) {
+            case Deposit -> "Deposited " + php;
+            case Withdraw -> "Withdraw " + php;
+            case Credit -> "Credited " + php;
+            case Recompense -> "Recompensed " + php;
+            case FundTransfer -> "Transferred " + php + " to " + accountNumber;
+            case ExternalTransfer -> "Transferred " + php + " to " + accountNumber + " at " + bankName
+                    + " (Fee: Php " + Money.format(getFeeCents()) + ")";
+            case ReceiveTransfer -> "Received " + php + " from " + accountNumber + (bankName == null ? "" : " at " + bankName);
+            case Payment -> "Paid " + php + " to " + accountNumber;
+            case ReceivePayment -> "Received " + php + " from " + accountNumber;
+        };
     }
 
     /**
@@ -78,18 +303,88 @@ public class Transaction {
      */
     @Override
     public String toString() {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
         return String.format("Transaction{Time: %s, Source: %s, Type: %s, Description: %s}",
-                getTimestamp().format(formatter), accountNumber, transactionType, description);
+                getTimestamp().format(FORMATTER), getAccountNumber(), getType(), getDescription());
     }
 
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof Transaction other && other.row == row;
+    }
+
+    @Override
+    public int hashCode() {
+        return Integer.hashCode(row);
+    }
+
+    /**
+     * Get every registered transaction, up to the last one published in the log. Transactions
+     * registered afterwards are not part of the snapshot.
+     *
+     * @return A read-only snapshot of the registered transactions, in the order they were registered.
+     */
+    public static List<Transaction> snapshot() {
+        TransactionLog log = transactions;
+        int end = log.publish();
+        return new AbstractList<>() {
+            @Override
+            public Transaction get(int index) {
+                if (index >= end) {
+                    throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + end);
+                }
+                return new Transaction(log.get(index));
+            }
+
+            @Override
+            public int size() {
+                return end;
+            }
+        };
+    }
+
+    /**
+     * Write every buffered transaction to storage, including every transaction registered
+     * before this call that the background consumer has not handed to storage yet.
+     */
+    public static void flushTransactions() {
+        transactions.publishThrough(transactions.claimed());
+        persistPublished();
+        Storage.get().flushTransactions();
+    }
+
+    /**
+     * Writes every registered transaction and forces them onto the storage device, so they
+     * survive a crash.
+     */
+    public static void syncTransactions() {
+        transactions.publishThrough(transactions.claimed());
+        persistPublished();
+        Storage.get().syncTransactions();
+    }
+
+    /**
+     * Rewrites the saved transactions with the full list of transactions.
+     */
     public static void saveTransactions() {
-        JSONDatabase.saveData(transactions, TRANSACTIONS_FILE);
+        synchronized (PERSIST_LOCK) {
+            TransactionLog log = transactions;
+            log.publishThrough(log.claimed());
+            List<Transaction> snapshot = snapshot();
+            Storage.get().saveTransactions(snapshot);
+            persisted = snapshot.size();
+        }
     }
 
+    /**
+     * Loads every saved transaction. Transactions are hydrated without side effects.
+     * Must be called before any transaction is registered.
+     */
     public static void loadTransactions() {
-        ArrayList<Transaction> loadedTransactions = JSONDatabase.loadData(TRANSACTIONS_FILE, Transaction.class);
-        transactions.clear();
-        transactions.addAll(loadedTransactions);
+        TransactionLog loadedTransactions = new TransactionLog();
+        Storage.get().loadTransactions(transaction -> loadedTransactions.append(transaction.row));
+        synchronized (PERSIST_LOCK) {
+            transactions = loadedTransactions;
+            persisted = loadedTransactions.publish();
+        }
     }
 }
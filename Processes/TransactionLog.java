@@ -0,0 +1,119 @@
+package Processes;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * An append-only log of ledger rows that many threads append to without locks. Each append claims
+ * the next index with an atomic increment of the tail and then writes its row into that slot, so
+ * producers never wait on each other. Slots are kept in chunks that are allocated on first use,
+ * so appending never copies the log.
+ * <br><br>
+ * A slot can be claimed before it is written, so readers only see the log up to its published
+ * index: the end of the longest prefix whose slots have all been written. Everything before a
+ * published index is final, which gives readers a consistent snapshot of the log.
+ */
+public class TransactionLog {
+
+    //Number of slots per chunk, as a power of two so an index is split into chunk and offset with shifts.
+    private static final int CHUNK_SHIFT = 14;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int MAX_CHUNKS = 1 << 16;
+
+    //Chunks of slots. A slot holds its row plus one, so 0 marks a slot that is claimed but not written yet.
+    private final AtomicReferenceArray<AtomicIntegerArray> chunks = new AtomicReferenceArray<>(MAX_CHUNKS);
+    //Index of the next slot to be claimed.
+    private final AtomicInteger tail = new AtomicInteger();
+    //Every slot before this index has been written.
+    private final AtomicInteger published = new AtomicInteger();
+
+    /**
+     * Append a row at the end of the log.
+     *
+     * @param row Row of a transaction in the ledger.
+     * @return Index of the row in the log.
+     * @throws IllegalStateException If the log is full.
+     */
+    public int append(int row) {
+        int index = tail.getAndIncrement();
+        if (index < 0 || index >>> CHUNK_SHIFT >= MAX_CHUNKS) {
+            throw new IllegalStateException("Transaction log is full.");
+        }
+        chunk(index >>> CHUNK_SHIFT).set(index & CHUNK_MASK, row + 1);
+        return index;
+    }
+
+    private AtomicIntegerArray chunk(int chunk) {
+        AtomicIntegerArray slots = chunks.get(chunk);
+        if (slots == null) {
+            // Producers racing for a new chunk agree on the first one set
+            chunks.compareAndSet(chunk, null, new AtomicIntegerArray(CHUNK_SIZE));
+            slots = chunks.get(chunk);
+        }
+        return slots;
+    }
+
+    private boolean isWritten(int index) {
+        AtomicIntegerArray slots = chunks.get(index >>> CHUNK_SHIFT);
+        return slots != null && slots.get(index & CHUNK_MASK) != 0;
+    }
+
+    /**
+     * Get the number of slots claimed so far, written or not.
+     *
+     * @return Index of the next slot to be claimed.
+     */
+    public int claimed() {
+        return Math.min(tail.get(), MAX_CHUNKS << CHUNK_SHIFT);
+    }
+
+    /**
+     * Advance the published index over every slot written since, and get it.
+     *
+     * @return Every row before this index can be read.
+     */
+    public int publish() {
+        int current = published.get();
+        int end = current;
+        int claimed = claimed();
+        while (end < claimed && isWritten(end)) {
+            end++;
+        }
+        // Another reader may have published further in the meantime
+        while (current < end && !published.compareAndSet(current, end)) {
+            current = published.get();
+        }
+        return Math.max(current, end);
+    }
+
+    /**
+     * Wait until every slot before some index is written, and publish them. Slots are written
+     * right after they are claimed, so this only spins while another producer finishes its append.
+     *
+     * @param index Index to be published.
+     * @return The published index, at least the given one.
+     */
+    public int publishThrough(int index) {
+        int end = publish();
+        while (end < index) {
+            Thread.onSpinWait();
+            end = publish();
+        }
+        return end;
+    }
+
+    /**
+     * Get a published row.
+     *
+     * @param index Index of the row in the log, below the published index.
+     * @return Row of the transaction in the ledger.
+     */
+    public int get(int index) {
+        if (index < 0 || index >= published.get()) {
+            throw new IndexOutOfBoundsException("Index " + index + " is not published.");
+        }
+        return chunks.get(index >>> CHUNK_SHIFT).get(index & CHUNK_MASK) - 1;
+    }
+}
@@ -6,39 +6,58 @@ import Accounts.CreditAccount;
 import Accounts.SavingsAccount;
 import Accounts.StudentAccount;
 import Bank.Bank;
+import Database.WriteAheadLog;
 
+/**
+ * Carries out the transactions of every account type. All amounts of money are in centavos.
+ * Deposits and withdrawals update the balance of their account without locks, through its
+ * BalanceCell; only that update is lock-free. Their transaction is then logged into the history
+ * of the account under its lock in AccountLocks, and recorded in the write-ahead log, which
+ * forces the log once per group of concurrent records. Transactions on a loan or on two accounts
+ * hold the locks of their accounts through AccountLocks for the whole transaction.
+ * <br><br>
+ * In the partitioned execution mode selected through Execution, each transaction is queued to the
+ * partitions of its accounts instead, and the calling thread waits for it to complete.
+ */
 public class TransactionManager {
-    
+
     /**
      * This function is responsible for depositing an amount into a specified account.
      *
      * @param account The account into which the deposit will be made.
-     * @param amount The amount to be deposited.
+     * @param amount The amount to be deposited, in centavos.
      *
      * @return A boolean value indicating the success of the deposit operation.
      *         Returns true if the deposit is successful, false otherwise.
      *
      * @throws IllegalArgumentException If the deposit amount exceeds the bank's deposit limit.
      */
-    public static boolean deposit(Account account, double amount) {
+    public static boolean deposit(Account account, long amount) {
+        PartitionedEngine engine = Execution.engine();
+        return engine == null ? applyDeposit(account, amount) : Execution.await(engine.deposit(account, amount));
+    }
+
+    //Carries out a deposit on the calling thread, as in the direct execution mode and on the partitions of the engine.
+    static boolean applyDeposit(Account account, long amount) {
         // Check if the amount is within the bank's deposit limit
-        if (amount > account.getBank().getDepositLimit()) {
+        if (amount > account.getBank().getDepositLimitCents()) {
             System.out.println("Deposit amount exceeds the bank's limit.");
             return false;
         }
-        
-        // Adjust the account balance based on the account type
-        if (account instanceof SavingsAccount) {
-            ((SavingsAccount) account).adjustAccountBalance(amount);
-        } else if (account instanceof StudentAccount studentAccount) {
-            studentAccount.adjustAccountBalance(amount);
-        } else if (account instanceof BusinessAccount businessAccount) {
-            businessAccount.adjustAccountBalance(amount);
+        if (amount <= 0) {
+            System.out.println("Deposit amount must be greater than zero.");
+            return false;
+        }
+
+        // Credit accounts hold a loan rather than a balance
+        if (!(account instanceof CreditAccount)) {
+            account.getBalanceCell().add(amount);
+            account.markChanged();
         }
-        
+
         // Add a new transaction record for the deposit
-        account.addNewTransaction(account.getAccountNumber(), Transaction.Transactions.Deposit,
-                "Deposited Php " + amount);
+        account.addNewTransaction(account.getAccountNumber(), Transaction.Transactions.Deposit, amount);
+        WriteAheadLog.record(Transaction.Transactions.Deposit.name(), account);
         return true;
     }
 
@@ -46,7 +65,7 @@ public class TransactionManager {
      * This function is responsible for withdrawing an amount from a specified account.
      *
      * @param account The account from which the withdrawal will be made.
-     * @param amount The amount to be withdrawn.
+     * @param amount The amount to be withdrawn, in centavos.
      *
      * @return A boolean value indicating the success of the withdrawal operation.
      *         Returns true if the withdrawal is successful, false otherwise.
@@ -55,25 +74,31 @@ public class TransactionManager {
      *
      * @throws IllegalArgumentException If the withdrawal amount exceeds the bank's withdrawal limit.
      */
-    public static boolean withdraw(Account account, double amount) {
+    public static boolean withdraw(Account account, long amount) {
+        PartitionedEngine engine = Execution.engine();
+        return engine == null ? applyWithdraw(account, amount) : Execution.await(engine.withdraw(account, amount));
+    }
+
+    //Carries out a withdrawal on the calling thread, as in the direct execution mode and on the partitions of the engine.
+    static boolean applyWithdraw(Account account, long amount) {
         // Check if the amount is valid and within the bank's withdrawal limit
-        if (amount <= 0 || amount > account.getBank().getWithdrawLimit()) {
+        if (amount <= 0 || amount > account.getBank().getWithdrawLimitCents()) {
             System.out.println("Warning: Insufficient balance or exceeds withdrawal limit.");
             return false;
         }
-        
-        // Adjust the account balance based on the account type
-        if (account instanceof SavingsAccount savingsAccount) {
-            savingsAccount.adjustAccountBalance(-amount);
-        } else if (account instanceof StudentAccount studentAccount) {
-            studentAccount.adjustAccountBalance(-amount);
-        } else if (account instanceof BusinessAccount businessAccount) {
-            businessAccount.adjustAccountBalance(-amount);
+
+        // The balance check and the update are one compare-and-set, so concurrent withdrawals cannot overdraw
+        if (!(account instanceof CreditAccount)) {
+            if (!account.getBalanceCell().tryAdd(-amount)) {
+                System.out.println("Warning: Insufficient balance or exceeds withdrawal limit.");
+                return false;
+            }
+            account.markChanged();
         }
-        
+
         // Add a new transaction record for the withdrawal
-        account.addNewTransaction(account.getAccountNumber(), Transaction.Transactions.Withdraw,
-                String.format("Withdraw Php %.2f", amount));
+        account.addNewTransaction(account.getAccountNumber(), Transaction.Transactions.Withdraw, amount);
+        WriteAheadLog.record(Transaction.Transactions.Withdraw.name(), account);
         return true;
     }
 
@@ -82,7 +107,7 @@ public class TransactionManager {
      *
      * @param sender The account from which the funds will be transferred.
      * @param recipient The account to which the funds will be transferred.
-     * @param amount The amount to be transferred.
+     * @param amount The amount to be transferred, in centavos.
      *
      * @return A boolean value indicating the success of the transfer operation.
      *         Returns true if the transfer is successful, false otherwise.
@@ -91,15 +116,16 @@ public class TransactionManager {
      *
      * @throws IllegalAccountType If the sender account is not a SavingsAccount or BusinessAccount.
      */
-    public static boolean internalTransfer(Account sender, Account recipient, double amount) throws IllegalAccountType {
-        if (amount <= 0 || amount > sender.getBank().getWithdrawLimit()) {
+    public static boolean internalTransfer(Account sender, Account recipient, long amount) throws IllegalAccountType {
+        if (amount <= 0 || amount > sender.getBank().getWithdrawLimitCents()) {
             System.out.println("Transfer failed: Insufficient balance or exceeds withdrawal limit.");
             return false;
         }
+        // The transfer locks both accounts itself, and forces the write-ahead log once they are released
         if (sender instanceof SavingsAccount savingsAccount) {
-            return savingsAccount.transfer(recipient, amount);
+            return savingsAccount.transferCents(recipient, amount);
         } else if (sender instanceof BusinessAccount businessAccount) {
-            return businessAccount.transfer(recipient, amount);
+            return businessAccount.transferCents(recipient, amount);
         }
         System.out.println("Internal transfer failed: Unsupported account type.");
         return false;
@@ -109,7 +135,7 @@ public class TransactionManager {
      * This function is responsible for crediting an amount to a specified credit account.
      *
      * @param account The credit account to which the credit will be applied.
-     * @param amount The amount to be credited.
+     * @param amount The amount to be credited, in centavos.
      *
      * @return A boolean value indicating the success of the credit operation.
      *         Returns true if the credit is successful, false otherwise.
@@ -118,19 +144,32 @@ public class TransactionManager {
      *
      * @throws IllegalArgumentException If the credit account is not a CreditAccount.
      */
-    public static boolean credit(Account account, double amount) {
-        if (!(account instanceof CreditAccount)) {
-            System.out.println("Credit failed: Only CreditAccounts can be credited.");
-            return false;
-        }
-        if (amount <= 0 || amount > account.getBank().getCreditLimit()) {
-            System.out.println("Credit failed: Invalid or exceeded credit limit.");
-            return false;
+    public static boolean credit(Account account, long amount) {
+        PartitionedEngine engine = Execution.engine();
+        return engine == null ? applyCredit(account, amount) : Execution.await(engine.credit(account, amount));
+    }
+
+    //Carries out a credit on the calling thread, as in the direct execution mode and on the partitions of the engine.
+    static boolean applyCredit(Account account, long amount) {
+        AccountLocks.lock(account);
+        try {
+            if (!(account instanceof CreditAccount)) {
+                System.out.println("Credit failed: Only CreditAccounts can be credited.");
+                return false;
+            }
+            if (amount <= 0 || amount > account.getBank().getCreditLimitCents()) {
+                System.out.println("Credit failed: Invalid or exceeded credit limit.");
+                return false;
+            }
+            CreditAccount creditAccount = (CreditAccount) account;
+            creditAccount.adjustLoanCents(amount);
+            creditAccount.addNewTransaction(creditAccount.getAccountNumber(), Transaction.Transactions.Credit, amount);
+            WriteAheadLog.recordUnforced(Transaction.Transactions.Credit.name(), creditAccount);
+        } finally {
+            AccountLocks.unlock(account);
         }
-        CreditAccount creditAccount = (CreditAccount) account;
-        creditAccount.adjustLoanAmount(amount);
-        creditAccount.addNewTransaction(creditAccount.getAccountNumber(), Transaction.Transactions.Credit,
-                "Credited Php " + amount);
+        // Force the log only once the lock is released
+        WriteAheadLog.sync();
         return true;
     }
 
@@ -139,7 +178,7 @@ public class TransactionManager {
      * This function is responsible for recompensing a specified amount from a credit account.
      *
      * @param account The credit account from which the recompense will be applied.
-     * @param amount The amount to be recompensed.
+     * @param amount The amount to be recompensed, in centavos.
      *
      * @return A boolean value indicating the success of the recompense operation.
      *         Returns true if the recompense is successful, false otherwise.
@@ -148,19 +187,31 @@ public class TransactionManager {
      *
      * @throws IllegalArgumentException If the account is not a CreditAccount.
      */
-    public static boolean recompense(Account account, double amount) {
-        if (!(account instanceof CreditAccount)) {
-            System.out.println("Recompense failed: Only CreditAccounts can recompense.");
-            return false;
-        }
-        CreditAccount creditAccount = (CreditAccount) account;
-        if (amount <= 0 || amount > creditAccount.getLoan()) {
-            System.out.println("Recompense failed: Invalid amount or amount exceeds current loan balance.");
-            return false;
+    public static boolean recompense(Account account, long amount) {
+        PartitionedEngine engine = Execution.engine();
+        return engine == null ? applyRecompense(account, amount) : Execution.await(engine.recompense(account, amount));
+    }
+
+    //Carries out a recompense on the calling thread, as in the direct execution mode and on the partitions of the engine.
+    static boolean applyRecompense(Account account, long amount) {
+        AccountLocks.lock(account);
+        try {
+            if (!(account instanceof CreditAccount)) {
+                System.out.println("Recompense failed: Only CreditAccounts can recompense.");
+                return false;
+            }
+            CreditAccount creditAccount = (CreditAccount) account;
+            if (amount <= 0 || amount > creditAccount.getLoanCents()) {
+                System.out.println("Recompense failed: Invalid amount or amount exceeds current loan balance.");
+                return false;
+            }
+            creditAccount.adjustLoanCents(-amount);
+            creditAccount.addNewTransaction(creditAccount.getAccountNumber(), Transaction.Transactions.Recompense, amount);
+            WriteAheadLog.recordUnforced(Transaction.Transactions.Recompense.name(), creditAccount);
+        } finally {
+            AccountLocks.unlock(account);
         }
-        creditAccount.adjustLoanAmount(-amount);
-        creditAccount.addNewTransaction(creditAccount.getAccountNumber(), Transaction.Transactions.Recompense,
-                "Recompensed Php " + amount);
+        WriteAheadLog.sync();
         System.out.println("Recompense successful.");
         return true;
     }
@@ -171,34 +222,55 @@ public class TransactionManager {
      *
      * @param sender The CreditAccount from which the payment will be made.
      * @param recipient The SavingsAccount to which the payment will be received.
-     * @param amount The amount to be paid.
+     * @param amount The amount to be paid, in centavos.
      *
      * @return A boolean value indicating the success of the payment operation.
      *         Returns true if the payment is successful, false otherwise.
      *         If the sender is not a CreditAccount or the recipient is not a SavingsAccount,
      *         the function will print a warning message and return false.
      *
+     *         If the payment would raise the loan above the credit limit of the bank, it fails too.
+     *
      * @throws IllegalArgumentException If the payment amount is less than or equal to zero.
      */
-    public static boolean pay(Account sender, Account recipient, double amount) {
-        if (!(sender instanceof CreditAccount) || !(recipient instanceof SavingsAccount)) {
-            System.out.println("Payment failed: CreditAccounts can only pay to SavingsAccounts.");
-            return false;
+    public static boolean pay(Account sender, Account recipient, long amount) {
+        PartitionedEngine engine = Execution.engine();
+        if (engine != null && sender instanceof CreditAccount creditSender && recipient instanceof SavingsAccount savingsRecipient) {
+            return Execution.await(engine.pay(creditSender, savingsRecipient, amount));
         }
-        CreditAccount creditSender = (CreditAccount) sender;
-        SavingsAccount savingsRecipient = (SavingsAccount) recipient;
+        long loan;
+        AccountLocks.lock(sender, recipient);
+        try {
+            if (!(sender instanceof CreditAccount) || !(recipient instanceof SavingsAccount)) {
+                System.out.println("Payment failed: CreditAccounts can only pay to SavingsAccounts.");
+                return false;
+            }
+            CreditAccount creditSender = (CreditAccount) sender;
+            SavingsAccount savingsRecipient = (SavingsAccount) recipient;
 
-        // Increase the loan balance by the payment amount
-        creditSender.adjustLoanAmount(amount);
-        savingsRecipient.adjustAccountBalance(amount);
+            if (amount <= 0) {
+                System.out.println("Payment amount must be greater than zero.");
+                return false;
+            }
+            // Increase the loan balance by the payment amount. The limit check and the update are one compare-and-set
+            if (!creditSender.getBalanceCell().tryAdd(amount, creditSender.getBank().getCreditLimitCents())) {
+                System.out.println("Payment failed: Exceeds credit limit.");
+                return false;
+            }
+            creditSender.markChanged();
+            savingsRecipient.adjustBalanceCents(amount);
 
-        // Add transactions for both accounts
-        creditSender.addNewTransaction(savingsRecipient.getAccountNumber(), Transaction.Transactions.Payment,
-                "Paid Php " + amount + " to " + savingsRecipient.getAccountNumber());
-        savingsRecipient.addNewTransaction(creditSender.getAccountNumber(), Transaction.Transactions.ReceivePayment,
-                "Received Php " + amount + " from " + creditSender.getAccountNumber());
+            // Add transactions for both accounts
+            creditSender.addNewTransaction(savingsRecipient.getAccountNumber(), Transaction.Transactions.Payment, amount);
+            savingsRecipient.addNewTransaction(creditSender.getAccountNumber(), Transaction.Transactions.ReceivePayment, amount);
+            WriteAheadLog.recordUnforced(Transaction.Transactions.Payment.name(), creditSender, savingsRecipient);
+            loan = creditSender.getLoanCents();
+        } finally {
+            AccountLocks.unlock(sender, recipient);
+        }
+        WriteAheadLog.sync();
 
-        System.out.println("Payment successful. New loan balance: Php " + creditSender.getLoan());
+        System.out.println("Payment successful. New loan balance: Php " + Money.format(loan));
         return true;
     }
 
@@ -0,0 +1,424 @@
+package Processes;
+
+import Accounts.Account;
+import Accounts.CreditAccount;
+import Bank.Bank;
+import Database.WriteAheadLog;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A high-rate intake for transactions. Commands are written into a ring of preallocated entries and
+ * pass through four stages, each on its own thread: validate against the limits of the bank, apply
+ * the balance change, append to the transaction history and the write-ahead log, then publish the
+ * result. Entries are reused once every stage is done with them, so the ring itself allocates
+ * nothing once it is running.
+ * <br><br>
+ * Every producer and stage keeps a sequence number. Producers claim the next sequence and wait
+ * while the ring is full, and each stage processes every entry up to the sequence reached by the
+ * stage before it. A stage that falls behind therefore catches up in one batch, and the journal
+ * stage forces the write-ahead log once per batch rather than once per transaction.
+ * <br><br>
+ * A command that throws in any stage completes as FAILED, and the stage goes on with the next one.
+ * A command that fails once its balance change is applied, because it could not be logged or the
+ * write-ahead log could not be forced, has its balance change taken back. The reversal is logged
+ * into every history the command was already logged into, and its balances are recorded again.
+ * <br><br>
+ * Supported commands are Deposit, Withdraw, Credit, Recompense and FundTransfer between two
+ * accounts of the same type. All amounts of money are in centavos.
+ */
+public class TransactionPipeline implements AutoCloseable {
+
+    /**
+     * Outcome of a command, set by the stage that accepted or rejected it.
+     */
+    public enum Result {
+        PENDING, OK, INVALID, EXCEEDS_LIMIT, INSUFFICIENT_BALANCE,
+        //A stage threw while processing the command. A balance change it made is taken back.
+        FAILED
+    }
+
+    /**
+     * A command in the ring. Entries are reused, so a command must only be read from the result
+     * handler while it is being published.
+     */
+    public static final class Command {
+        private Transaction.Transactions type;
+        private Account account;
+        private Account recipient;
+        private long amount;
+        private Result result;
+        //Number of histories the journal stage logged the command into.
+        private int logged;
+
+        public Transaction.Transactions getType() {
+            return type;
+        }
+
+        public Account getAccount() {
+            return account;
+        }
+
+        public Account getRecipient() {
+            return recipient;
+        }
+
+        public long getAmount() {
+            return amount;
+        }
+
+        public Result getResult() {
+            return result;
+        }
+    }
+
+    /**
+     * Receives every processed command, in sequence order, on the thread of the publish stage.
+     */
+    @FunctionalInterface
+    public interface ResultHandler {
+        void onResult(long sequence, Command command);
+    }
+
+    //Processes one entry. The last entry of each batch is flagged, so a stage can act once per batch.
+    @FunctionalInterface
+    private interface Stage {
+        void handle(long sequence, Command command, boolean endOfBatch);
+    }
+
+    // Logger instance for logging errors
+    private static final Logger LOGGER = Logger.getLogger(TransactionPipeline.class.getName());
+
+    //Prefix of the write-ahead log operation recorded for a command whose balance change is taken back.
+    private static final String REVERSAL = "Reverse";
+
+    //How long an idle stage or a producer facing a full ring sleeps between checks, in nanoseconds.
+    private static final long IDLE_NANOS = 50_000;
+    private static final int SPINS = 100;
+
+    private final Command[] entries;
+    private final int mask;
+    private final int shift;
+    //Lap of the ring in which each entry was last published, so consumers can tell it is ready.
+    private final AtomicIntegerArray published;
+    //Highest sequence claimed by a producer.
+    private final AtomicLong cursor = new AtomicLong(-1);
+    //Highest sequence each stage is done with, in stage order.
+    private final AtomicLong[] sequences = new AtomicLong[4];
+    private final Thread[] threads = new Thread[4];
+    private final ResultHandler resultHandler;
+    private volatile boolean running = true;
+    //Number of producers inside submit(). Stages keep running until they are done, so no claimed sequence is left behind.
+    private final AtomicInteger submitting = new AtomicInteger();
+    //First sequence the journal stage logged in its current batch, or -1, so the log is forced once at its end.
+    private long journaledFrom = -1;
+
+    /**
+     * Constructor for TransactionPipeline.
+     *
+     * @param size Number of entries in the ring, a power of two.
+     * @param resultHandler Receives every processed command.
+     */
+    public TransactionPipeline(int size, ResultHandler resultHandler) {
+        if (size < 1 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("Ring size must be a power of two.");
+        }
+        this.entries = new Command[size];
+        for (int i = 0; i < size; i++) {
+            entries[i] = new Command();
+        }
+        this.mask = size - 1;
+        this.shift = Integer.numberOfTrailingZeros(size);
+        this.published = new AtomicIntegerArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1);
+        }
+        this.resultHandler = resultHandler;
+
+        Stage[] stages = {this::validate, this::apply, this::journal, this::publish};
+        String[] names = {"validate", "apply", "journal", "publish"};
+        for (int i = 0; i < stages.length; i++) {
+            sequences[i] = new AtomicLong(-1);
+            int stage = i;
+            threads[i] = new Thread(() -> run(stage, stages[stage]), "pipeline-" + names[i]);
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+    }
+
+    /**
+     * Put a command into the ring. Waits while the ring is full.
+     *
+     * @param type Type of the transaction.
+     * @param account Account of the transaction, or the sender of a transfer.
+     * @param recipient Recipient of a transfer, or null.
+     * @param amount Amount of money involved, in centavos.
+     * @return Sequence of the command, as handed to the result handler.
+     */
+    public long submit(Transaction.Transactions type, Account account, Account recipient, long amount) {
+        // Counted before checking that the pipeline runs, so close() cannot miss this command
+        submitting.incrementAndGet();
+        try {
+            if (!running) {
+                throw new IllegalStateException("Pipeline is closed.");
+            }
+            long sequence = cursor.incrementAndGet();
+            // The entry is free once the last stage is done with the command a whole ring earlier
+            long wrapPoint = sequence - entries.length;
+            int spins = 0;
+            while (sequences[3].get() < wrapPoint) {
+                spins = idle(spins);
+            }
+            Command command = entries[(int) sequence & mask];
+            command.type = type;
+            command.account = account;
+            command.recipient = recipient;
+            command.amount = amount;
+            command.result = Result.PENDING;
+            command.logged = 0;
+            published.set((int) sequence & mask, (int) (sequence >>> shift));
+            return sequence;
+        } finally {
+            submitting.decrementAndGet();
+        }
+    }
+
+    //Highest sequence from some point on whose entries have all been published by producers.
+    private long highestPublished(long from, long claimed) {
+        for (long sequence = from; sequence <= claimed; sequence++) {
+            if (published.get((int) sequence & mask) != (int) (sequence >>> shift)) {
+                return sequence - 1;
+            }
+        }
+        return claimed;
+    }
+
+    private void run(int stage, Stage handler) {
+        AtomicLong sequence = sequences[stage];
+        int spins = 0;
+        while (running || submitting.get() > 0 || sequence.get() < cursor.get()) {
+            long next = sequence.get() + 1;
+            long available = stage == 0 ? highestPublished(next, cursor.get()) : sequences[stage - 1].get();
+            if (available < next) {
+                spins = idle(spins);
+                continue;
+            }
+            spins = 0;
+            for (long current = next; current <= available; current++) {
+                Command command = entries[(int) current & mask];
+                try {
+                    handler.handle(current, command, current == available);
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.SEVERE, "Pipeline stage " + stage + " failed on command " + current, e);
+                    command.result = Result.FAILED;
+                }
+            }
+            sequence.set(available);
+        }
+    }
+
+    private static int idle(int spins) {
+        if (spins < SPINS) {
+            Thread.onSpinWait();
+            return spins + 1;
+        }
+        LockSupport.parkNanos(IDLE_NANOS);
+        return spins;
+    }
+
+    //Stage 1: check the command against the limits of the bank.
+    private void validate(long sequence, Command command, boolean endOfBatch) {
+        Account account = command.account;
+        long amount = command.amount;
+        if (account == null || amount <= 0) {
+            command.result = Result.INVALID;
+            return;
+        }
+        Bank bank = account.getBank();
+        boolean credit = account instanceof CreditAccount;
+        command.result = switch (command.type) {
+            case Deposit -> credit ? Result.INVALID
+                    : amount > bank.getDepositLimitCents() ? Result.EXCEEDS_LIMIT : Result.PENDING;
+            case Withdraw -> credit ? Result.INVALID
+                    : amount > bank.getWithdrawLimitCents() ? Result.EXCEEDS_LIMIT : Result.PENDING;
+            case Credit -> !credit ? Result.INVALID
+                    : amount > bank.getCreditLimitCents() ? Result.EXCEEDS_LIMIT : Result.PENDING;
+            case Recompense -> credit ? Result.PENDING : Result.INVALID;
+            case FundTransfer -> credit || command.recipient == null || command.recipient.getClass() != account.getClass()
+                    ? Result.INVALID
+                    : amount > bank.getWithdrawLimitCents() ? Result.EXCEEDS_LIMIT : Result.PENDING;
+            default -> Result.INVALID;
+        };
+    }
+
+    //Stage 2: change the balances. Balance cells keep the checks and updates atomic against other threads.
+    private void apply(long sequence, Command command, boolean endOfBatch) {
+        if (command.result != Result.PENDING) {
+            return;
+        }
+        Account account = command.account;
+        long amount = command.amount;
+        boolean applied = switch (command.type) {
+            case Deposit, Credit -> {
+                account.getBalanceCell().add(amount);
+                yield true;
+            }
+            case Withdraw, Recompense -> account.getBalanceCell().tryAdd(-amount);
+            case FundTransfer -> {
+                if (!account.getBalanceCell().tryAdd(-amount)) {
+                    yield false;
+                }
+                try {
+                    command.recipient.getBalanceCell().add(amount);
+                } catch (RuntimeException e) {
+                    // Refund the sender, since the recipient could not be credited
+                    account.getBalanceCell().add(amount);
+                    throw e;
+                }
+                command.recipient.markChanged();
+                yield true;
+            }
+            default -> false;
+        };
+        if (applied) {
+            account.markChanged();
+            command.result = Result.OK;
+        } else {
+            command.result = Result.INSUFFICIENT_BALANCE;
+        }
+    }
+
+    //Stage 3: log the transactions, and force the write-ahead log once at the end of each batch.
+    private void journal(long sequence, Command command, boolean endOfBatch) {
+        if (command.result == Result.OK) {
+            if (journaledFrom < 0) {
+                journaledFrom = sequence;
+            }
+            try {
+                Account account = command.account;
+                if (command.type == Transaction.Transactions.FundTransfer) {
+                    Account recipient = command.recipient;
+                    account.addNewTransaction(recipient.getAccountNumber(), command.type, command.amount);
+                    command.logged++;
+                    recipient.addNewTransaction(account.getAccountNumber(), Transaction.Transactions.ReceiveTransfer, command.amount);
+                    command.logged++;
+                    WriteAheadLog.recordUnforced(command.type.name(), account, recipient);
+                } else {
+                    account.addNewTransaction(account.getAccountNumber(), command.type, command.amount);
+                    command.logged++;
+                    WriteAheadLog.recordUnforced(command.type.name(), account);
+                }
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.SEVERE, "Could not log command " + sequence, e);
+                compensate(sequence, command);
+            }
+        }
+        if (endOfBatch && journaledFrom >= 0) {
+            try {
+                WriteAheadLog.sync();
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.SEVERE, "Could not force the write-ahead log", e);
+                // The batch is not published yet, so none of it reports success
+                for (long current = journaledFrom; current <= sequence; current++) {
+                    Command logged = entries[(int) current & mask];
+                    if (logged.result == Result.OK) {
+                        compensate(current, logged);
+                    }
+                }
+            } finally {
+                journaledFrom = -1;
+            }
+        }
+    }
+
+    //Take back the balance change of an applied command that failed, and mark it FAILED.
+    //The reversal is logged into the histories the command was logged into, so they agree with the balances.
+    private void compensate(long sequence, Command command) {
+        command.result = Result.FAILED;
+        Account account = command.account;
+        Account recipient = command.recipient;
+        long amount = command.amount;
+        try {
+            switch (command.type) {
+                case Deposit, Credit -> account.getBalanceCell().add(-amount);
+                case Withdraw, Recompense -> account.getBalanceCell().add(amount);
+                case FundTransfer -> {
+                    recipient.getBalanceCell().add(-amount);
+                    account.getBalanceCell().add(amount);
+                    recipient.markChanged();
+                }
+                default -> {
+                    return;
+                }
+            }
+            account.markChanged();
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Could not take back command " + sequence, e);
+            return;
+        }
+        try {
+            if (command.type == Transaction.Transactions.FundTransfer) {
+                if (command.logged > 0) {
+                    account.addNewTransaction(recipient.getAccountNumber(), Transaction.Transactions.ReceiveTransfer, amount);
+                }
+                if (command.logged > 1) {
+                    recipient.addNewTransaction(account.getAccountNumber(), Transaction.Transactions.FundTransfer, amount);
+                }
+                WriteAheadLog.recordUnforced(REVERSAL + command.type.name(), account, recipient);
+            } else {
+                if (command.logged > 0) {
+                    account.addNewTransaction(account.getAccountNumber(), reversal(command.type), amount);
+                }
+                WriteAheadLog.recordUnforced(REVERSAL + command.type.name(), account);
+            }
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Could not log the reversal of command " + sequence, e);
+        }
+    }
+
+    //Type of the transaction that takes back one of some type, on the same account.
+    private static Transaction.Transactions reversal(Transaction.Transactions type) {
+        return switch (type) {
+            case Deposit -> Transaction.Transactions.Withdraw;
+            case Withdraw -> Transaction.Transactions.Deposit;
+            case Credit -> Transaction.Transactions.Recompense;
+            default -> Transaction.Transactions.Credit;
+        };
+    }
+
+    //Stage 4: hand the result over, then release the accounts so the entry holds no reference.
+    private void publish(long sequence, Command command, boolean endOfBatch) {
+        try {
+            if (resultHandler != null) {
+                resultHandler.onResult(sequence, command);
+            }
+        } catch (RuntimeException e) {
+            // The command is done either way, so a failing handler must not stop the ones after it
+            LOGGER.log(Level.SEVERE, "Result handler failed on command " + sequence, e);
+        } finally {
+            command.account = null;
+            command.recipient = null;
+        }
+    }
+
+    /**
+     * Stop accepting commands, and wait until every submitted one is published.
+     */
+    @Override
+    public void close() {
+        running = false;
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
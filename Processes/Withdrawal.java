@@ -1,9 +1,17 @@
 package Processes;
 
 public interface Withdrawal {
+    /**
+     * Withdraws an amount of money using a given medium.
+     * @param amount Amount of money to be withdrawn from, in centavos.
+     */
+    public boolean withdrawalCents(long amount);
+
     /**
      * Withdraws an amount of money using a given medium.
      * @param amount Amount of money to be withdrawn from.
      */
-    public boolean withdrawal(double amount);
+    public default boolean withdrawal(double amount) {
+        return withdrawalCents(Money.toCents(amount));
+    }
 }
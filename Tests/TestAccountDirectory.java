@@ -0,0 +1,105 @@
+package Tests;
+
+import Accounts.SavingsAccount;
+import Bank.AccountDirectory;
+import Bank.Bank;
+import Bank.BankLauncher;
+import Database.MemoryStorage;
+import Database.Storage;
+import Database.StorageBackend;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+public class TestAccountDirectory {
+
+    private static final Bank FIRST = new Bank(82, "First Directory Bank", "1234", 1e6, 1e6, 1e6, 0);
+    private static final Bank SECOND = new Bank(83, "Second Directory Bank", "1234", 1e6, 1e6, 1e6, 0);
+
+    static {
+        BankLauncher.restoreBank(FIRST);
+        BankLauncher.restoreBank(SECOND);
+    }
+
+    private static SavingsAccount account(Bank bank, String accountNumber) {
+        return new SavingsAccount(bank, accountNumber, "1234", "John", "Doe", "jd@gmail.com", 0.0);
+    }
+
+    /**
+     * Test that an account number taken in one bank cannot be registered in another
+     */
+    @Test
+    public void test1() {
+        StorageBackend previous = Storage.get();
+        Storage.set(new MemoryStorage());
+        try {
+            SavingsAccount original = account(FIRST, "20082-00001");
+            FIRST.addNewAccount(original);
+            Assert.assertSame(original, AccountDirectory.find("20082-00001"));
+            Assert.assertTrue(AccountDirectory.contains("20082-00001"));
+
+            // The colliding account is rejected, and the directory keeps the original
+            SECOND.addNewAccount(account(SECOND, "20082-00001"));
+            Assert.assertNull(SECOND.getBankAccount(SECOND, "20082-00001"));
+            Assert.assertSame(original, AccountDirectory.find("20082-00001"));
+
+            // A colliding account loaded from the database is kept by its bank, but not by the directory
+            SavingsAccount restored = account(SECOND, "20082-00001");
+            Assert.assertTrue(SECOND.restoreAccount(restored));
+            Assert.assertSame(restored, SECOND.getBankAccount(SECOND, "20082-00001"));
+            Assert.assertSame(original, AccountDirectory.find("20082-00001"));
+
+            Assert.assertNull(AccountDirectory.find("20082-00002"));
+            Assert.assertNull(AccountDirectory.find(null));
+        } finally {
+            Storage.set(previous);
+        }
+    }
+
+    /**
+     * Test that only one of several banks registering the same account number at once succeeds
+     */
+    @Test
+    public void test2() throws Exception {
+        StorageBackend previous = Storage.get();
+        Storage.set(new MemoryStorage());
+        try {
+            for (int round = 0; round < 200; round++) {
+                String number = String.format("20082-1%04d", round);
+                SavingsAccount first = account(FIRST, number);
+                SavingsAccount second = account(SECOND, number);
+                CountDownLatch start = new CountDownLatch(1);
+                List<Thread> threads = new ArrayList<>();
+                threads.add(new Thread(() -> register(start, FIRST, first)));
+                threads.add(new Thread(() -> register(start, SECOND, second)));
+                for (Thread thread : threads) {
+                    thread.start();
+                }
+                start.countDown();
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+
+                boolean firstWon = FIRST.getBankAccount(FIRST, number) != null;
+                boolean secondWon = SECOND.getBankAccount(SECOND, number) != null;
+                Assert.assertTrue(firstWon ^ secondWon);
+                Assert.assertSame(firstWon ? first : second, AccountDirectory.find(number));
+            }
+        } finally {
+            Storage.set(previous);
+        }
+    }
+
+    private static void register(CountDownLatch start, Bank bank, SavingsAccount account) {
+        try {
+            start.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        bank.addNewAccount(account);
+    }
+}
@@ -0,0 +1,104 @@
+package Tests;
+
+import Accounts.SavingsAccount;
+import Bank.Bank;
+import Bank.BankLauncher;
+import Database.MemoryStorage;
+import Database.Storage;
+import Database.StorageBackend;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class TestAccountIndex {
+
+    private static final Bank BANK = new Bank(84, "Index Bank", "1234", 1e6, 1e6, 1e6, 0);
+
+    static {
+        BankLauncher.restoreBank(BANK);
+    }
+
+    private static SavingsAccount account(String accountNumber) {
+        return new SavingsAccount(BANK, accountNumber, "1234", "John", "Doe", "jd@gmail.com", 0.0);
+    }
+
+    /**
+     * Test looking up accounts by account number
+     */
+    @Test
+    public void test1() {
+        StorageBackend previous = Storage.get();
+        Storage.set(new MemoryStorage());
+        try {
+            SavingsAccount first = account("20084-00001");
+            SavingsAccount second = account("20084-00002");
+            Assert.assertTrue(BANK.restoreAccount(first));
+            Assert.assertTrue(BANK.restoreAccount(second));
+            // The same account number cannot be added twice to a bank
+            Assert.assertFalse(BANK.restoreAccount(account("20084-00001")));
+
+            Assert.assertSame(first, BANK.getBankAccount(BANK, "20084-00001"));
+            Assert.assertSame(second, BANK.getBankAccount(BANK, "20084-00002"));
+            Assert.assertNull(BANK.getBankAccount(BANK, "20084-00003"));
+            Assert.assertTrue(Bank.accountExists(BANK, "20084-00002"));
+            Assert.assertFalse(Bank.accountExists(BANK, "20084-00003"));
+            Assert.assertFalse(Bank.accountExists(null, "20084-00001"));
+        } finally {
+            Storage.set(previous);
+        }
+    }
+
+    /**
+     * Test that accounts are always found while other accounts are being registered
+     */
+    @Test
+    public void test2() throws Exception {
+        StorageBackend previous = Storage.get();
+        Storage.set(new MemoryStorage());
+        try {
+            int accounts = 20_000;
+            List<String> numbers = new ArrayList<>();
+            for (int i = 0; i < accounts; i++) {
+                numbers.add(String.format("20084-1%05d", i));
+            }
+            // Number of accounts registered so far
+            AtomicInteger registered = new AtomicInteger();
+            AtomicBoolean registering = new AtomicBoolean(true);
+            AtomicReference<String> failure = new AtomicReference<>();
+
+            List<Thread> readers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                Thread reader = new Thread(() -> {
+                    while (registering.get() && failure.get() == null) {
+                        int count = registered.get();
+                        for (int i = 0; i < count; i++) {
+                            String number = numbers.get(i);
+                            if (BANK.getBankAccount(BANK, number) == null || !Bank.accountExists(BANK, number)) {
+                                failure.set("Registered account " + number + " was not found");
+                                return;
+                            }
+                        }
+                    }
+                });
+                readers.add(reader);
+                reader.start();
+            }
+            for (String number : numbers) {
+                Assert.assertTrue(BANK.restoreAccount(account(number)));
+                registered.incrementAndGet();
+            }
+            registering.set(false);
+            for (Thread reader : readers) {
+                reader.join();
+            }
+            Assert.assertNull(failure.get());
+        } finally {
+            Storage.set(previous);
+        }
+    }
+}
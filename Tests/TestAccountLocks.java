@@ -0,0 +1,79 @@
+package Tests;
+
+import Accounts.SavingsAccount;
+import Bank.Bank;
+import Bank.BankLauncher;
+import Database.MemoryStorage;
+import Database.Storage;
+import Database.StorageBackend;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class TestAccountLocks {
+
+    private static final Bank BANK = new Bank(92, "Lock Bank", "1234", 1e6, 1e6, 1e6, 0);
+
+    static {
+        BankLauncher.restoreBank(BANK);
+    }
+
+    /**
+     * Test that transfers going opposite ways between the same accounts neither deadlock nor lose money
+     */
+    @Test
+    public void test1() throws Exception {
+        StorageBackend previous = Storage.get();
+        Storage.set(new MemoryStorage());
+        try {
+            SavingsAccount first = new SavingsAccount(BANK, "20092-00001", "1234", "John", "Doe", "jd@gmail.com", 100_000.0);
+            SavingsAccount second = new SavingsAccount(BANK, "20092-00002", "1234", "Jane", "Doe", "jane@gmail.com", 100_000.0);
+            BANK.restoreAccount(first);
+            BANK.restoreAccount(second);
+            long total = first.getBalanceCents() + second.getBalanceCents();
+
+            int threads = 4, transfers = 5_000;
+            AtomicInteger succeeded = new AtomicInteger();
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads * 2; t++) {
+                // Half of the threads send from the first account, the other half from the second
+                SavingsAccount sender = t % 2 == 0 ? first : second;
+                SavingsAccount recipient = t % 2 == 0 ? second : first;
+                Thread worker = new Thread(() -> {
+                    try {
+                        for (int i = 0; i < transfers; i++) {
+                            if (sender.transferCents(recipient, 1 + i % 7)) {
+                                succeeded.incrementAndGet();
+                            }
+                        }
+                    } catch (Throwable e) {
+                        failure.set(e);
+                    }
+                });
+                worker.setDaemon(true);
+                workers.add(worker);
+                worker.start();
+            }
+            for (Thread worker : workers) {
+                worker.join(60_000);
+                // A deadlock leaves the worker running
+                Assert.assertFalse(worker.isAlive());
+            }
+            Assert.assertNull(failure.get());
+
+            // Every transfer succeeded, and no money was created or lost
+            Assert.assertEquals(threads * 2 * transfers, succeeded.get());
+            Assert.assertEquals(total, first.getBalanceCents() + second.getBalanceCents());
+            // Each transfer is in the history of both accounts
+            Assert.assertEquals(threads * 2 * transfers, first.getTransactionCount());
+            Assert.assertEquals(threads * 2 * transfers, second.getTransactionCount());
+        } finally {
+            Storage.set(previous);
+        }
+    }
+}
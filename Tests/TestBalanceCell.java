@@ -0,0 +1,86 @@
+package Tests;
+
+import Accounts.BalanceCell;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class TestBalanceCell {
+
+    /**
+     * Test the bounds of each update
+     */
+    @Test
+    public void test1() {
+        BalanceCell cell = new BalanceCell(1_000);
+        Assert.assertTrue(cell.tryAdd(-1_000));
+        Assert.assertFalse(cell.tryAdd(-1));
+        Assert.assertEquals(0, cell.get());
+
+        // The ceiling is inclusive
+        Assert.assertTrue(cell.tryAdd(500, 500));
+        Assert.assertFalse(cell.tryAdd(1, 500));
+        Assert.assertEquals(500, cell.get());
+
+        // Clamped at zero
+        cell.add(-800);
+        Assert.assertEquals(0, cell.get());
+
+        // Overflow is an error, and leaves the balance unchanged
+        cell.set(Long.MAX_VALUE - 1);
+        Assert.assertThrows(ArithmeticException.class, () -> cell.add(2));
+        Assert.assertThrows(ArithmeticException.class, () -> cell.tryAdd(2));
+        Assert.assertEquals(Long.MAX_VALUE - 1, cell.get());
+    }
+
+    /**
+     * Test that concurrent withdrawals never overdraw and concurrent deposits are never lost
+     */
+    @Test
+    public void test2() throws Exception {
+        BalanceCell cell = new BalanceCell(10_000);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Integer>> tasks = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                tasks.add(() -> {
+                    int succeeded = 0;
+                    for (int i = 0; i < 5_000; i++) {
+                        if (cell.tryAdd(-1)) {
+                            succeeded++;
+                        }
+                    }
+                    return succeeded;
+                });
+            }
+            int withdrawn = 0;
+            for (Future<Integer> result : executor.invokeAll(tasks)) {
+                withdrawn += result.get();
+            }
+            Assert.assertEquals(10_000, withdrawn);
+            Assert.assertEquals(0, cell.get());
+
+            List<Callable<Integer>> deposits = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                deposits.add(() -> {
+                    for (int i = 0; i < 5_000; i++) {
+                        cell.add(3);
+                    }
+                    return 0;
+                });
+            }
+            for (Future<Integer> result : executor.invokeAll(deposits)) {
+                result.get();
+            }
+            Assert.assertEquals(120_000, cell.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package Tests;
+
+import Bank.Bank;
+import Bank.BankRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class TestBankRegistry {
+
+    @Test
+    public void test1() {
+        BankRegistry registry = new BankRegistry();
+        Bank bdo = new Bank(0, "BDO", "1234");
+        Bank bpi = new Bank(3, "BPI", "1234");
+
+        Assert.assertTrue(registry.add(bdo));
+        Assert.assertTrue(registry.add(bpi));
+        // Bank IDs cannot be registered twice
+        Assert.assertFalse(registry.add(new Bank(3, "Metrobank", "1234")));
+
+        Assert.assertSame(bpi, registry.getById(3));
+        Assert.assertSame(bdo, registry.getByName("  bdo "));
+        Assert.assertNull(registry.getById(1));
+        Assert.assertEquals(2, registry.size());
+        // New IDs follow the highest registered ID, not the number of banks
+        Assert.assertEquals(4, registry.nextId());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void test2() {
+        BankRegistry registry = new BankRegistry();
+        registry.add(new Bank(0, "BDO", "1234"));
+
+        Assert.assertEquals(1, registry.banks().size());
+        registry.banks().clear();
+    }
+
+    /**
+     * Test that banks created by many threads at once each get their own ID
+     */
+    @Test
+    public void test3() throws Exception {
+        BankRegistry registry = new BankRegistry();
+        registry.add(new Bank(4, "BDO", "1234"));
+        int threads = 8, created = 500;
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int worker = t;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < created; i++) {
+                    String name = "Bank " + worker + "/" + i;
+                    registry.register(bankId -> new Bank(bankId, name, "1234"));
+                }
+            });
+            workers.add(thread);
+            thread.start();
+        }
+        for (Thread thread : workers) {
+            thread.join();
+        }
+
+        Assert.assertEquals(1 + threads * created, registry.size());
+        Set<Integer> ids = new HashSet<>();
+        for (Bank bank : registry.copyOfBanks()) {
+            Assert.assertTrue(ids.add(bank.getBankId()));
+            Assert.assertSame(bank, registry.getById(bank.getBankId()));
+        }
+        // IDs follow the highest registered ID without gaps
+        Assert.assertEquals(5 + threads * created, registry.nextId());
+
+        // The bank must use the ID it is given
+        Assert.assertThrows(IllegalArgumentException.class, () -> registry.register(bankId -> new Bank(0, "BPI", "1234")));
+        Assert.assertNull(registry.getByName("BPI"));
+    }
+}
@@ -0,0 +1,195 @@
+package Tests;
+
+import Accounts.Account;
+import Accounts.BusinessAccount;
+import Accounts.CreditAccount;
+import Accounts.SavingsAccount;
+import Accounts.StudentAccount;
+import Bank.Bank;
+import Bank.BankLauncher;
+import Database.BinarySnapshot;
+import Database.MemoryStorage;
+import Database.Storage;
+import Database.StorageBackend;
+import Processes.Transaction;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestBinarySnapshot {
+
+    private static final int MAGIC = 0x42534E50;
+
+    private static final Bank BANK = new Bank(81, "Snapshot Bank", "1234", 50_000.0, 50_000.0, 100_000.0, 10.0);
+
+    static {
+        BankLauncher.restoreBank(BANK);
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length + 1);
+        out.write(bytes);
+    }
+
+    private static void writeRecord(DataOutputStream out, ByteArrayOutputStream record) throws IOException {
+        out.writeInt(record.size());
+        record.writeTo(out);
+    }
+
+    private static List<Account> loadAccounts(Path file) {
+        List<Account> accounts = new ArrayList<>();
+        BinarySnapshot.loadAccounts(file.toString(), accounts::add);
+        return accounts;
+    }
+
+    /**
+     * Test saving and loading every account type in the current format
+     */
+    @Test
+    public void test1() throws IOException {
+        StorageBackend previous = Storage.get();
+        Storage.set(new MemoryStorage());
+        Path file = Files.createTempFile("snapshot", ".bin");
+        try {
+            Bank bank = new Bank(81, "Snapshot Bank", "1234", 50_000.0, 50_000.0, 100_000.0, 10.0);
+            SavingsAccount savings = new SavingsAccount(bank, "20081-00001", "1234", "John", "Doe", "jd@gmail.com", 1_234.56);
+            savings.addNewTransaction("20081-00002", Transaction.Transactions.ExternalTransfer, 10_050, 1_000, "BPI");
+            CreditAccount credit = new CreditAccount(bank, "20081-00002", "1234", "Jane", "Doe", "jane@gmail.com");
+            credit.adjustLoanCents(75_025);
+            StudentAccount student = new StudentAccount(bank, "20081-00003", "1234", "Jim", "Doe", "jim@gmail.com",
+                    LocalDate.now().getYear() - 20, "S-1");
+            BusinessAccount business = new BusinessAccount(bank, "20081-00004", "1234", "Joy", "Doe", "joy@gmail.com",
+                    "P-1", "Doe Corp", 2_500_000.0, 9_999.99);
+            for (Account account : List.of(savings, credit, student, business)) {
+                bank.restoreAccount(account);
+            }
+            BinarySnapshot.save(file.toString(), List.of(bank));
+            Assert.assertTrue(BinarySnapshot.isReadable(file.toString()));
+
+            List<Bank> banks = new ArrayList<>();
+            BinarySnapshot.loadBanks(file.toString(), banks::add);
+            Assert.assertEquals(1, banks.size());
+            Assert.assertEquals(81, banks.get(0).getBankId());
+            Assert.assertEquals(5_000_000, banks.get(0).getDepositLimitCents());
+            Assert.assertEquals(1_000, banks.get(0).getProcessingFeeCents());
+
+            List<Account> accounts = loadAccounts(file);
+            Assert.assertEquals(4, accounts.size());
+            Assert.assertEquals(123_456, accounts.get(0).getBalanceCents());
+            Transaction transfer = accounts.get(0).getTransactions().get(0);
+            Assert.assertEquals(10_050, transfer.getAmountCents());
+            Assert.assertEquals(1_000, transfer.getFeeCents());
+            Assert.assertEquals("BPI", transfer.getBankName());
+            Assert.assertEquals(savings.getTransactions().get(0).getDescription(), transfer.getDescription());
+            Assert.assertEquals(75_025, ((CreditAccount) accounts.get(1)).getLoanCents());
+            Assert.assertEquals("S-1", ((StudentAccount) accounts.get(2)).getStudentId());
+            Assert.assertEquals("Doe Corp", ((BusinessAccount) accounts.get(3)).getBusinessName());
+            Assert.assertEquals(999_999, accounts.get(3).getBalanceCents());
+        } finally {
+            Storage.set(previous);
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Test loading a version 2 snapshot, which stores transactions by their description
+     */
+    @Test
+    public void test2() throws IOException {
+        Path file = Files.createTempFile("snapshot", ".bin");
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeShort(2);
+
+            ByteArrayOutputStream bankRecord = new ByteArrayOutputStream();
+            DataOutputStream bank = new DataOutputStream(bankRecord);
+            writeVarInt(bank, 81);
+            writeString(bank, "Snapshot Bank");
+            writeString(bank, "1234");
+            bank.writeLong(5_000_000);
+            bank.writeLong(5_000_000);
+            bank.writeLong(10_000_000);
+            bank.writeLong(1_000);
+            writeVarInt(out, 1);
+            writeRecord(out, bankRecord);
+
+            ByteArrayOutputStream accountRecord = new ByteArrayOutputStream();
+            DataOutputStream account = new DataOutputStream(accountRecord);
+            writeVarInt(account, 81);
+            account.writeByte(0);
+            writeString(account, "20081-00010");
+            writeString(account, "1234");
+            writeString(account, "John");
+            writeString(account, "Doe");
+            writeString(account, "jd@gmail.com");
+            account.writeLong(50_075);
+            writeVarInt(account, 1);
+            writeString(account, "20081-00010");
+            account.writeByte(Transaction.Transactions.Deposit.ordinal());
+            writeString(account, "Deposited Php 500.75");
+            account.writeLong(LocalDateTime.of(2024, 1, 1, 8, 30).toEpochSecond(ZoneOffset.UTC));
+            writeVarInt(account, 0);
+            writeVarInt(out, 1);
+            writeRecord(out, accountRecord);
+            Files.write(file, bytes.toByteArray());
+
+            Assert.assertTrue(BinarySnapshot.isReadable(file.toString()));
+            List<Account> accounts = loadAccounts(file);
+            Assert.assertEquals(1, accounts.size());
+            Assert.assertEquals(50_075, accounts.get(0).getBalanceCents());
+            Transaction deposit = accounts.get(0).getTransactions().get(0);
+            Assert.assertEquals("Deposited Php 500.75", deposit.getDescription());
+            Assert.assertEquals(LocalDateTime.of(2024, 1, 1, 8, 30), deposit.getTimestamp());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Test that snapshots of other versions are not loaded
+     */
+    @Test
+    public void test3() throws IOException {
+        Path file = Files.createTempFile("snapshot", ".bin");
+        try {
+            for (short version : new short[]{1, 4}) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(bytes);
+                out.writeInt(MAGIC);
+                out.writeShort(version);
+                writeVarInt(out, 0);
+                writeVarInt(out, 0);
+                Files.write(file, bytes.toByteArray());
+
+                Assert.assertFalse(BinarySnapshot.isReadable(file.toString()));
+                List<Bank> banks = new ArrayList<>();
+                BinarySnapshot.loadBanks(file.toString(), banks::add);
+                Assert.assertTrue(banks.isEmpty());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package Tests;
+
+import Accounts.Account;
+import Accounts.SavingsAccount;
+import Bank.Bank;
+import Bank.BankLauncher;
+import Database.JSONDatabase;
+import Database.MemoryStorage;
+import Database.Storage;
+import Database.StorageBackend;
+import Processes.Transaction;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+public class TestDeltaRecords {
+
+    private static final Bank BANK = new Bank(61, "Delta Bank", "1234", 1e6, 1e6, 1e6, 0);
+
+    static {
+        BankLauncher.restoreBank(BANK);
+    }
+
+    private static SavingsAccount account(String accountNumber, double balance) {
+        return new SavingsAccount(BANK, accountNumber, "1234", "John", "Doe", "jd@gmail.com", balance);
+    }
+
+    /**
+     * Test merging several delta records of an account, and accounts only saved as delta records
+     */
+    @Test
+    public void test1() throws IOException {
+        StorageBackend previous = Storage.get();
+        Storage.set(new MemoryStorage());
+        Path directory = Files.createTempDirectory("deltas");
+        String file = directory.resolve("Accounts.json").toString();
+        try {
+            SavingsAccount saved = account("20061-00001", 10.0);
+            saved.addNewTransaction(saved.getAccountNumber(), Transaction.Transactions.Deposit, 1_000);
+            Assert.assertTrue(JSONDatabase.compact(List.of(saved), file));
+
+            // Two delta records of the same account, the later one holding the latest balance
+            saved.getBalanceCell().add(200);
+            saved.addNewTransaction(saved.getAccountNumber(), Transaction.Transactions.Deposit, 200);
+            JSONDatabase.saveDeltas(List.of(saved), file);
+            saved.getBalanceCell().add(-50);
+            saved.addNewTransaction(saved.getAccountNumber(), Transaction.Transactions.Withdraw, 50);
+            JSONDatabase.saveDeltas(List.of(saved), file);
+
+            SavingsAccount added = account("20061-00002", 3.0);
+            added.addNewTransaction(added.getAccountNumber(), Transaction.Transactions.Deposit, 300);
+            JSONDatabase.saveDeltas(List.of(added), file);
+
+            List<Account> merged = new ArrayList<>();
+            Assert.assertEquals(3, JSONDatabase.forEachMerged(file, Account.class, "accountNumber", merged::add));
+            // Accounts of the data file come first
+            Assert.assertEquals(2, merged.size());
+            Account first = merged.get(0);
+            Assert.assertEquals("20061-00001", first.getAccountNumber());
+            Assert.assertEquals(1_150, first.getBalanceCents());
+            Assert.assertEquals(3, first.getTransactionCount());
+            Assert.assertEquals(Transaction.Transactions.Withdraw, first.getTransactions().get(2).getType());
+            Account second = merged.get(1);
+            Assert.assertEquals("20061-00002", second.getAccountNumber());
+            Assert.assertEquals(300, second.getBalanceCents());
+            Assert.assertEquals(1, second.getTransactionCount());
+        } finally {
+            Storage.set(previous);
+            Files.deleteIfExists(Paths.get(file + ".delta"));
+            Files.deleteIfExists(Paths.get(file));
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    /**
+     * Test that an account marked changed while changes are drained is never left behind
+     */
+    @Test
+    public void test2() throws Exception {
+        Account.drainChangedAccounts();
+        int accounts = 64;
+        List<SavingsAccount> marked = new ArrayList<>();
+        for (int i = 0; i < accounts; i++) {
+            marked.add(account(String.format("20061-1%04d", i), 0.0));
+        }
+        // Version of each account, and the version last seen by a drain
+        AtomicIntegerArray versions = new AtomicIntegerArray(accounts);
+        Map<Account, Integer> indexes = new HashMap<>();
+        for (int i = 0; i < accounts; i++) {
+            indexes.put(marked.get(i), i);
+        }
+        int[] drained = new int[accounts];
+        AtomicBoolean marking = new AtomicBoolean(true);
+
+        List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread producer = new Thread(() -> {
+                for (int round = 0; round < 20_000; round++) {
+                    int index = round % accounts;
+                    versions.incrementAndGet(index);
+                    marked.get(index).markChanged();
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+        Thread drainer = new Thread(() -> {
+            while (marking.get()) {
+                for (Account account : Account.drainChangedAccounts()) {
+                    Integer index = indexes.get(account);
+                    if (index != null) {
+                        drained[index] = versions.get(index);
+                    }
+                }
+            }
+        });
+        drainer.start();
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        marking.set(false);
+        drainer.join();
+        for (Account account : Account.drainChangedAccounts()) {
+            Integer index = indexes.get(account);
+            if (index != null) {
+                drained[index] = versions.get(index);
+            }
+        }
+        // Every change was seen by the drain that followed it
+        for (int i = 0; i < accounts; i++) {
+            Assert.assertEquals(versions.get(i), drained[i]);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package Tests;
+
+import Accounts.Account;
+import Accounts.CreditAccount;
+import Accounts.SavingsAccount;
+import Bank.Bank;
+import Bank.BankLauncher;
+import Database.JSONDataReader;
+import Database.JSONDataWriter;
+import Database.JSONDatabase;
+import Database.MemoryStorage;
+import Database.Storage;
+import Database.StorageBackend;
+import Processes.Transaction;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestJSONData {
+
+    private static final Bank BANK = new Bank(121, "Stream Bank", "1234", 50_000.0, 50_000.0, 100_000.0, 10.0);
+
+    static {
+        BankLauncher.restoreBank(BANK);
+    }
+
+    private static <T> List<T> readAll(Path file, Class<T> clazz) {
+        List<T> read = new ArrayList<>();
+        try (JSONDataReader<T> reader = new JSONDataReader<>(file.toString(), clazz)) {
+            reader.forEachRemaining(read::add);
+        }
+        return read;
+    }
+
+    /**
+     * Test reading records one at a time, from whole, cut off and missing files
+     */
+    @Test
+    public void test1() throws IOException {
+        Path directory = Files.createTempDirectory("records");
+        Path file = directory.resolve("Transactions.json");
+        try {
+            String records = "[{\"accountNum\":\"20121-00001\",\"type\":\"Deposit\",\"description\":\"first\",\"time\":\"2024-01-01T00:00\"},"
+                    + "{\"accountNum\":\"20121-00001\",\"type\":\"Withdraw\",\"amountCents\":250,\"feeCents\":0,\"time\":\"2024-01-02T00:00\"},"
+                    + "{\"accountNum\":\"20121-00002\",\"type\":\"Deposit\",\"description\":\"third\",\"nested\":{\"list\":[1,2.5,null]},\"time\":\"2024-01-03T00:00\"}]";
+            Files.writeString(file, records, StandardCharsets.UTF_8);
+
+            List<Transaction> transactions = readAll(file, Transaction.class);
+            Assert.assertEquals(3, transactions.size());
+            Assert.assertEquals("first", transactions.get(0).getDescription());
+            Assert.assertEquals(250, transactions.get(1).getAmountCents());
+            Assert.assertEquals("20121-00002", transactions.get(2).getAccountNumber());
+
+            // Records can be read as they are, with the value types of the json-simple parser
+            List<JSONObject> objects = readAll(file, JSONObject.class);
+            Assert.assertEquals(3, objects.size());
+            Assert.assertEquals(250L, objects.get(1).get("amountCents"));
+            Assert.assertEquals(List.of(1L, 2.5), ((List<?>) ((JSONObject) objects.get(2).get("nested")).get("list")).subList(0, 2));
+
+            // A file cut off in the middle of a record yields the whole records before it
+            Files.writeString(file, records.substring(0, records.indexOf("\"third\"")), StandardCharsets.UTF_8);
+            Assert.assertEquals(2, readAll(file, Transaction.class).size());
+
+            // A missing file is created empty
+            Files.delete(file);
+            Assert.assertTrue(readAll(file, Transaction.class).isEmpty());
+            Assert.assertTrue(Files.exists(file));
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    /**
+     * Test that objects written one at a time hold the same fields as the JSON records, and load back
+     */
+    @Test
+    public void test2() throws Exception {
+        StorageBackend previous = Storage.get();
+        Storage.set(new MemoryStorage());
+        Path file = Files.createTempFile("accounts", ".json");
+        try {
+            SavingsAccount savings = new SavingsAccount(BANK, "20121-00011", "1234", "John", "Doe", "jd@gmail.com", 1_234.56);
+            savings.addNewTransaction("20121-00012", Transaction.Transactions.ExternalTransfer, 10_050, 1_000, "BPI");
+            savings.addNewTransaction(savings.getAccountNumber(), Transaction.Transactions.Deposit, "Opening deposit");
+            CreditAccount credit = new CreditAccount(BANK, "20121-00012", "1234", "Jane", "Doe", "jane@gmail.com");
+            List<Object> written = List.of(savings, credit, BANK);
+            try (JSONDataWriter writer = new JSONDataWriter(file, true)) {
+                for (Object data : written) {
+                    writer.write(data);
+                }
+            }
+
+            // Each record equals the one built as a tree, once both are parsed the same way
+            List<JSONObject> records = readAll(file, JSONObject.class);
+            Assert.assertEquals(written.size(), records.size());
+            JSONParser parser = new JSONParser();
+            for (int i = 0; i < written.size(); i++) {
+                Assert.assertEquals(parser.parse(JSONDatabase.dataToDict(written.get(i)).toJSONString()), records.get(i));
+            }
+
+            List<Account> accounts = new ArrayList<>();
+            try (JSONDataReader<Account> reader = new JSONDataReader<>(file.toString(), Account.class)) {
+                accounts.add(reader.next());
+                accounts.add(reader.next());
+            }
+            Assert.assertEquals(savings.getBalanceCents(), accounts.get(0).getBalanceCents());
+            Assert.assertEquals(2, accounts.get(0).getTransactionCount());
+            Assert.assertEquals(savings.transactions().get(0).getDescription(), accounts.get(0).transactions().get(0).getDescription());
+            Assert.assertTrue(accounts.get(1) instanceof CreditAccount);
+        } finally {
+            Storage.set(previous);
+            Files.deleteIfExists(file);
+        }
+    }
+}
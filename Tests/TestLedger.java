@@ -0,0 +1,123 @@
+package Tests;
+
+import Processes.Ledger;
+import Processes.Transaction;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class TestLedger {
+
+    /**
+     * Test archiving full chunks off the heap, and reading their rows
+     */
+    @Test
+    public void test1() {
+        Ledger ledger = new Ledger(30);
+        long old = LocalDateTime.of(2020, 1, 1, 0, 0).toEpochSecond(ZoneOffset.UTC);
+        // Fill two chunks, then start a third so the first two are full
+        for (int i = 0; i < 8193; i++) {
+            ledger.append("0001", Transaction.Transactions.ExternalTransfer, i == 5 ? "kept" : null,
+                    i, 15, i % 2 == 0 ? "BPI" : null, old + i, i);
+        }
+        // Appending never archives
+        Assert.assertEquals(0, ledger.archivedSize());
+        Assert.assertEquals(2, ledger.archiveExpired());
+        Assert.assertEquals(8192, ledger.archivedSize());
+        Assert.assertEquals(old + 4100, ledger.epochSecond(4100));
+        Assert.assertEquals(4100, ledger.nano(4100));
+        Assert.assertEquals(4100, ledger.amount(4100));
+        Assert.assertEquals(15, ledger.fee(4100));
+        Assert.assertEquals(Transaction.Transactions.ExternalTransfer, ledger.type(4100));
+        Assert.assertEquals("0001", ledger.accountNumber(4100));
+        Assert.assertEquals("BPI", ledger.bankName(4100));
+        Assert.assertNull(ledger.bankName(4101));
+        Assert.assertEquals("kept", ledger.description(5));
+        Assert.assertNull(ledger.description(6));
+        // The chunk being appended to stays on the heap
+        Assert.assertEquals(0, ledger.archive(LocalDateTime.now()));
+
+        // A full chunk holding one recent row stays on the heap until that row gets old enough
+        long recent = LocalDateTime.now().minusDays(1).toEpochSecond(ZoneOffset.UTC);
+        for (int i = 8193; i < 12289; i++) {
+            ledger.append("0002", Transaction.Transactions.Deposit, null, i, 0, null, i == 9000 ? recent : old, 0);
+        }
+        Assert.assertEquals(0, ledger.archiveExpired());
+        Assert.assertEquals(1, ledger.archive(LocalDateTime.now()));
+        Assert.assertEquals(12288, ledger.archivedSize());
+        Assert.assertEquals(recent, ledger.epochSecond(9000));
+    }
+
+    /**
+     * Test reading account numbers, bank names and descriptions while rows are appended
+     */
+    @Test
+    public void test2() throws Exception {
+        Ledger ledger = new Ledger();
+        int rows = 20_000;
+        // Rows before this one were appended, and handed to the reader through it
+        AtomicInteger appended = new AtomicInteger();
+        AtomicReference<String> failure = new AtomicReference<>();
+
+        Thread reader = new Thread(() -> {
+            int read = 0;
+            while (read < rows && failure.get() == null) {
+                int end = appended.get();
+                for (; read < end; read++) {
+                    if (!account(read % 700).equals(ledger.accountNumber(read))
+                            || !Objects.equals(read % 3 == 0 ? "Text " + read : null, ledger.description(read))
+                            || !Objects.equals(read % 2 == 0 ? "Bank " + read % 50 : null, ledger.bankName(read))) {
+                        failure.set("Row " + read + " read wrong");
+                        return;
+                    }
+                }
+            }
+        });
+        reader.start();
+        for (int row = 0; row < rows; row++) {
+            Assert.assertEquals(row, ledger.append(account(row % 700), Transaction.Transactions.Deposit,
+                    row % 3 == 0 ? "Text " + row : null, row, 0, row % 2 == 0 ? "Bank " + row % 50 : null, row, 0));
+            appended.set(row + 1);
+        }
+        reader.join();
+        Assert.assertNull(failure.get());
+        Assert.assertEquals(rows, ledger.size());
+    }
+
+    /**
+     * Test that archived transactions read the same through their views
+     */
+    @Test
+    public void test3() {
+        LocalDateTime old = LocalDateTime.of(2001, 2, 3, 4, 5, 6, 7);
+        int before = Transaction.LEDGER.archivedSize();
+        int[] rows = new int[3 * 4096];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = Transaction.hydrate("30001-" + i % 10, Transaction.Transactions.ExternalTransfer, i, 25,
+                    i % 2 == 0 ? "BDO" : "BPI", old.plusSeconds(i)).getRow();
+        }
+        // At least two of the chunks only hold rows hydrated here. The background thread may archive them first
+        Transaction.LEDGER.archiveExpired();
+        Assert.assertTrue(Transaction.LEDGER.archivedSize() >= before + 8192);
+
+        for (int i = 0; i < rows.length; i++) {
+            Transaction transaction = Transaction.ofRow(rows[i]);
+            Assert.assertEquals("30001-" + i % 10, transaction.getAccountNumber());
+            Assert.assertEquals(Transaction.Transactions.ExternalTransfer, transaction.getType());
+            Assert.assertEquals(i, transaction.getAmountCents());
+            Assert.assertEquals(25, transaction.getFeeCents());
+            Assert.assertEquals(old.plusSeconds(i), transaction.getTimestamp());
+            Assert.assertTrue(transaction.hasAmount());
+        }
+        Assert.assertEquals("Transferred Php 1.00 to 30001-0 at BDO (Fee: Php 0.25)", Transaction.ofRow(rows[100]).getDescription());
+    }
+
+    private static String account(int number) {
+        return String.format("%05d", number);
+    }
+}
@@ -0,0 +1,100 @@
+package Tests;
+
+import Accounts.CreditAccount;
+import Accounts.SavingsAccount;
+import Bank.Bank;
+import Database.MemoryStorage;
+import Database.Storage;
+import Database.StorageBackend;
+import Main.Field;
+import Processes.Money;
+import Processes.TransactionManager;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+public class TestMoney {
+
+    /**
+     * Test converting between pesos and centavos
+     */
+    @Test
+    public void test1() {
+        Assert.assertEquals(150_025, Money.toCents(1500.25));
+        Assert.assertEquals(30, Money.toCents(0.1 + 0.2));
+        // Half a centavo is rounded up, away from zero
+        Assert.assertEquals(11, Money.toCents(0.105));
+        Assert.assertEquals(101, Money.toCents(1.005));
+        Assert.assertEquals(-1, Money.toCents(-0.005));
+        Assert.assertEquals(0, Money.toCents(0.004));
+        Assert.assertThrows(ArithmeticException.class, () -> Money.toCents(Double.NaN));
+        Assert.assertThrows(ArithmeticException.class, () -> Money.toCents(Double.POSITIVE_INFINITY));
+        Assert.assertThrows(ArithmeticException.class, () -> Money.toCents(1e17));
+
+        Assert.assertEquals(1500.25, Money.toAmount(150_025), 0.0);
+        Assert.assertEquals("1500.25", Money.format(150_025));
+        Assert.assertEquals("0.05", Money.format(5));
+        Assert.assertEquals("-0.05", Money.format(-5));
+        Assert.assertEquals("-12.30", Money.format(-1_230));
+    }
+
+    /**
+     * Test that repeated deposits of a decimal amount add up exactly
+     */
+    @Test
+    public void test2() {
+        StorageBackend previous = Storage.get();
+        Storage.set(new MemoryStorage());
+        try {
+            Bank bank = new Bank(117, "Money Bank", "1234", 1e6, 1e6, 1e6, 0);
+            SavingsAccount account = new SavingsAccount(bank, "20117-00001", "1234", "John", "Doe", "jd@gmail.com", 0.0);
+            for (int i = 0; i < 10; i++) {
+                Assert.assertTrue(account.cashDeposit(0.1));
+            }
+            Assert.assertEquals(100, account.getBalanceCents());
+            Assert.assertEquals(1.0, account.getAccountBalance(), 0.0);
+        } finally {
+            Storage.set(previous);
+        }
+    }
+
+    /**
+     * Test that amounts typed at a prompt which cannot be converted into centavos are rejected
+     */
+    @Test
+    public void test3() {
+        Field.DoubleFieldValidator validator = new Field.DoubleFieldValidator();
+        Assert.assertNull(validator.validate(1.0, 1.0));
+        Assert.assertNotNull(validator.validate(0.5, 1.0));
+        Assert.assertNotNull(validator.validate(Double.NaN, 1.0));
+        Assert.assertNotNull(validator.validate(Double.POSITIVE_INFINITY, 1.0));
+        Assert.assertNotNull(validator.validate(1e17, 1.0));
+    }
+
+    /**
+     * Test that a payment of no amount is refused as such, and not as exceeding the credit limit
+     */
+    @Test
+    public void test4() {
+        StorageBackend previous = Storage.get();
+        Storage.set(new MemoryStorage());
+        PrintStream original = System.out;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try {
+            Bank bank = new Bank(118, "Payment Bank", "1234", 1e6, 1e6, 1e6, 0);
+            CreditAccount sender = new CreditAccount(bank, "20118-00001", "1234", "John", "Doe", "jd@gmail.com");
+            SavingsAccount recipient = new SavingsAccount(bank, "20118-00002", "1234", "Jane", "Doe", "jane@gmail.com", 0.0);
+            System.setOut(new PrintStream(output, true));
+            Assert.assertFalse(TransactionManager.pay(sender, recipient, 0));
+            Assert.assertFalse(TransactionManager.pay(sender, recipient, -100));
+        } finally {
+            System.setOut(original);
+            Storage.set(previous);
+        }
+        String printed = output.toString();
+        Assert.assertTrue(printed.contains("Payment amount must be greater than zero."));
+        Assert.assertFalse(printed.contains("Exceeds credit limit"));
+    }
+}
@@ -0,0 +1,168 @@
+package Tests;
+
+import Accounts.Account;
+import Accounts.CreditAccount;
+import Accounts.SavingsAccount;
+import Bank.Bank;
+import Database.MemoryStorage;
+import Database.Storage;
+import Processes.Execution;
+import Processes.PartitionedEngine;
+import Processes.Transaction;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+public class TestPartitionedEngine {
+
+    private static final Bank BANK = new Bank(7, "Partition Bank", "1234", 1e9, 1e9, 1e9, 0);
+
+    private static SavingsAccount account(String accountNumber, double balance) {
+        return new SavingsAccount(BANK, accountNumber, "1234", "John", "Doe", "jd@gmail.com", balance);
+    }
+
+    // Create an account on another partition than the given one
+    private static SavingsAccount onOtherPartition(PartitionedEngine engine, Account other,
+                                                   Function<String, SavingsAccount> create) {
+        for (int i = 0; ; i++) {
+            SavingsAccount account = create.apply("20070-" + (10000 + i));
+            if (engine.partitionOf(account) != engine.partitionOf(other)) {
+                return account;
+            }
+        }
+    }
+
+    /**
+     * Test a transfer between accounts on two partitions
+     */
+    @Test
+    public void test1() throws Exception {
+        Storage.set(new MemoryStorage());
+        try (PartitionedEngine engine = new PartitionedEngine(4)) {
+            SavingsAccount sender = account("20070-00001", 500.0);
+            SavingsAccount recipient = onOtherPartition(engine, sender, number -> account(number, 100.0));
+
+            Assert.assertTrue(engine.transfer(sender, recipient, 12_550).get());
+            Assert.assertEquals(37_450, sender.getBalanceCents());
+            Assert.assertEquals(22_550, recipient.getBalanceCents());
+            Assert.assertEquals(Transaction.Transactions.FundTransfer, sender.getTransactions().get(0).getType());
+            Assert.assertEquals(Transaction.Transactions.ReceiveTransfer, recipient.getTransactions().get(0).getType());
+        }
+    }
+
+    /**
+     * Test a transfer that is rejected on the partition of the sender
+     */
+    @Test
+    public void test2() throws Exception {
+        Storage.set(new MemoryStorage());
+        try (PartitionedEngine engine = new PartitionedEngine(4)) {
+            SavingsAccount sender = account("20070-00002", 50.0);
+            SavingsAccount recipient = onOtherPartition(engine, sender, number -> account(number, 0.0));
+
+            Assert.assertFalse(engine.transfer(sender, recipient, 5_001).get());
+            Assert.assertEquals(5_000, sender.getBalanceCents());
+            Assert.assertEquals(0, recipient.getBalanceCents());
+            Assert.assertEquals(0, sender.getTransactionCount());
+            Assert.assertEquals(0, recipient.getTransactionCount());
+        }
+    }
+
+    /**
+     * Test that a failed credit is compensated, so no money is created or lost
+     */
+    @Test
+    public void test3() throws Exception {
+        Storage.set(new MemoryStorage());
+        try (PartitionedEngine engine = new PartitionedEngine(4)) {
+            // The recipient is credited, but logging its transaction fails
+            CreditAccount payer = new CreditAccount(BANK, "20070-00003", "1234", "John", "Doe", "jd@gmail.com");
+            SavingsAccount failing = onOtherPartition(engine, payer, number ->
+                    new SavingsAccount(BANK, number, "1234", "Jane", "Doe", "jane@gmail.com", 100.0) {
+                        @Override
+                        public void addNewTransaction(String accountNum, Transaction.Transactions type, long amount,
+                                                      long fee, String bankName) {
+                            throw new IllegalStateException("History unavailable");
+                        }
+                    });
+            Assert.assertFalse(engine.pay(payer, failing, 20_000).get());
+            Assert.assertEquals(0, payer.getLoanCents());
+            Assert.assertEquals(10_000, failing.getBalanceCents());
+            Assert.assertEquals(0, payer.getTransactionCount());
+
+            // The recipient cannot be credited at all, since its balance would overflow
+            SavingsAccount sender = account("20070-00004", 500.0);
+            SavingsAccount full = onOtherPartition(engine, sender, number -> account(number, 0.0));
+            full.restoreBalanceCents(Long.MAX_VALUE);
+            Assert.assertFalse(engine.transfer(sender, full, 20_000).get());
+            Assert.assertEquals(50_000, sender.getBalanceCents());
+            Assert.assertEquals(Long.MAX_VALUE, full.getBalanceCents());
+        }
+    }
+
+    /**
+     * Test that a transfer is taken back from the recipient when the sender cannot log it
+     */
+    @Test
+    public void test4() throws Exception {
+        Storage.set(new MemoryStorage());
+        try (PartitionedEngine engine = new PartitionedEngine(4)) {
+            CreditAccount payer = new CreditAccount(BANK, "20070-00005", "1234", "John", "Doe", "jd@gmail.com") {
+                @Override
+                public void addNewTransaction(String accountNum, Transaction.Transactions type, long amount,
+                                              long fee, String bankName) {
+                    throw new IllegalStateException("History unavailable");
+                }
+            };
+            SavingsAccount recipient = onOtherPartition(engine, payer, number -> account(number, 100.0));
+
+            Assert.assertFalse(engine.pay(payer, recipient, 20_000).get());
+            Assert.assertEquals(0, payer.getLoanCents());
+            Assert.assertEquals(10_000, recipient.getBalanceCents());
+            // The credit and its reversal are both in the history of the recipient
+            List<Transaction> history = recipient.transactions();
+            Assert.assertEquals(2, history.size());
+            Assert.assertEquals(Transaction.Transactions.ReceivePayment, history.get(0).getType());
+            Assert.assertEquals(Transaction.Transactions.Payment, history.get(1).getType());
+        }
+    }
+
+    /**
+     * Test that transactions run on the partitions of their accounts once the engine is selected
+     */
+    @Test
+    public void test5() throws Exception {
+        Storage.set(new MemoryStorage());
+        Assert.assertNull(Execution.create("Direct"));
+        Assert.assertThrows(IllegalArgumentException.class, () -> Execution.create("parallel"));
+        List<String> threads = new CopyOnWriteArrayList<>();
+        try (PartitionedEngine engine = new PartitionedEngine(2)) {
+            Execution.set(engine);
+            SavingsAccount sender = new SavingsAccount(BANK, "20070-00006", "1234", "John", "Doe", "jd@gmail.com", 100.0);
+            SavingsAccount recipient = new SavingsAccount(BANK, "20070-00007", "1234", "Jane", "Doe", "jane@gmail.com", 0.0) {
+                @Override
+                public void addNewTransaction(String accountNum, Transaction.Transactions type, long amount) {
+                    threads.add(Thread.currentThread().getName());
+                    super.addNewTransaction(accountNum, type, amount);
+                }
+            };
+            Assert.assertTrue(recipient.cashDeposit(5.0));
+            Assert.assertTrue(recipient.withdrawal(2.5));
+            Assert.assertTrue(new CreditAccount(BANK, "20070-00008", "1234", "John", "Doe", "jd@gmail.com").pay(recipient, 1.0));
+            Assert.assertEquals(350, recipient.getBalanceCents());
+            Assert.assertEquals(3, threads.size());
+            Assert.assertTrue(threads.stream().allMatch(name -> name.equals("partition-" + engine.partitionOf(recipient))));
+
+            // Transfers between accounts of the same type run in two steps
+            SavingsAccount other = new SavingsAccount(BANK, "20070-00009", "1234", "Jane", "Doe", "jane@gmail.com", 0.0);
+            Assert.assertTrue(sender.transfer(other, 40.0));
+            Assert.assertEquals(6_000, sender.getBalanceCents());
+            Assert.assertEquals(4_000, other.getBalanceCents());
+        } finally {
+            Execution.set(null);
+        }
+    }
+}
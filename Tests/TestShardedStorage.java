@@ -0,0 +1,96 @@
+package Tests;
+
+import Accounts.SavingsAccount;
+import Bank.Bank;
+import Bank.BankLauncher;
+import Database.JSONDatabase;
+import Database.MemoryStorage;
+import Database.ShardedStorage;
+import Database.Storage;
+import Database.StorageBackend;
+import Processes.Transaction;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class TestShardedStorage {
+
+    private static final Path SHARDS = Paths.get("Database/banks");
+
+    private static void deleteShards() throws IOException {
+        try (Stream<Path> paths = Files.walk(SHARDS)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /**
+     * Test that banks, accounts and transactions are saved to the shard of their bank
+     */
+    @Test
+    public void test1() throws IOException {
+        // Never overwrite the shards of an actual database
+        Assume.assumeFalse(Files.exists(SHARDS));
+        StorageBackend previous = Storage.get();
+        Storage.set(new MemoryStorage());
+        try {
+            Bank first = new Bank(101, "First Shard", "1234", 1e6, 1e6, 1e6, 0);
+            Bank second = new Bank(102, "Second Shard", "1234", 1e6, 1e6, 1e6, 0);
+            BankLauncher.restoreBank(first);
+            BankLauncher.restoreBank(second);
+            SavingsAccount sender = new SavingsAccount(first, "20101-00001", "1234", "John", "Doe", "jd@gmail.com", 100.0);
+            SavingsAccount recipient = new SavingsAccount(second, "20102-00001", "1234", "Jane", "Doe", "jane@gmail.com", 0.0);
+            first.restoreAccount(sender);
+            second.restoreAccount(recipient);
+
+            // Each transaction names the other account, not the one whose history holds it
+            sender.addNewTransaction(recipient.getAccountNumber(), Transaction.Transactions.ExternalTransfer, 5_000, 0, "Second Shard");
+            recipient.addNewTransaction(sender.getAccountNumber(), Transaction.Transactions.ReceiveTransfer, 5_000, 0, "First Shard");
+
+            ShardedStorage storage = new ShardedStorage();
+            Assert.assertTrue(storage.checkpoint(List.of(first, second)));
+            List<Transaction> transactions = new ArrayList<>(sender.transactions());
+            transactions.addAll(recipient.transactions());
+            storage.saveTransactions(transactions);
+            storage.close();
+
+            List<Transaction> firstShard = JSONDatabase.loadData("Database/banks/101/transactions.json", Transaction.class);
+            Assert.assertEquals(1, firstShard.size());
+            Assert.assertEquals(Transaction.Transactions.ExternalTransfer, firstShard.get(0).getType());
+            List<Transaction> secondShard = JSONDatabase.loadData("Database/banks/102/transactions.json", Transaction.class);
+            Assert.assertEquals(1, secondShard.size());
+            Assert.assertEquals(Transaction.Transactions.ReceiveTransfer, secondShard.get(0).getType());
+
+            ShardedStorage reloaded = new ShardedStorage();
+            Assert.assertTrue(reloaded.hasData());
+            List<Bank> banks = new ArrayList<>();
+            reloaded.loadBanks(banks::add);
+            Assert.assertEquals(2, banks.size());
+            Assert.assertEquals(101, banks.get(0).getBankId());
+            Assert.assertEquals(102, banks.get(1).getBankId());
+            List<String> accounts = new ArrayList<>();
+            reloaded.loadAccounts(account -> accounts.add(account.getAccountNumber()));
+            accounts.sort(null);
+            Assert.assertEquals(List.of("20101-00001", "20102-00001"), accounts);
+            List<Transaction> loaded = new ArrayList<>();
+            reloaded.loadTransactions(loaded::add);
+            Assert.assertEquals(2, loaded.size());
+            reloaded.close();
+        } finally {
+            Storage.set(previous);
+            if (Files.exists(SHARDS)) {
+                deleteShards();
+            }
+        }
+    }
+}
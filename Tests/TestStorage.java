@@ -0,0 +1,81 @@
+package Tests;
+
+import Accounts.Account;
+import Accounts.SavingsAccount;
+import Bank.Bank;
+import Database.BinaryStorage;
+import Database.JSONStorage;
+import Database.MemoryStorage;
+import Database.ShardedStorage;
+import Database.Storage;
+import Database.StorageBackend;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestStorage {
+
+    /**
+     * Test selecting a backend by name and through the system property
+     */
+    @Test
+    public void test1() {
+        Assert.assertTrue(Storage.create("json") instanceof JSONStorage);
+        Assert.assertTrue(Storage.create("Binary") instanceof BinaryStorage);
+        Assert.assertTrue(Storage.create("SHARDED") instanceof ShardedStorage);
+        Assert.assertTrue(Storage.create("memory") instanceof MemoryStorage);
+        Assert.assertThrows(IllegalArgumentException.class, () -> Storage.create("xml"));
+
+        StorageBackend previous = Storage.get();
+        String property = System.getProperty(Storage.BACKEND_PROPERTY);
+        try {
+            System.setProperty(Storage.BACKEND_PROPERTY, "memory");
+            Storage.set(null);
+            Assert.assertTrue(Storage.get() instanceof MemoryStorage);
+            Assert.assertFalse(Storage.get().isPersistent());
+            // The backend is only chosen once
+            Assert.assertSame(Storage.get(), Storage.get());
+        } finally {
+            if (property == null) {
+                System.clearProperty(Storage.BACKEND_PROPERTY);
+            } else {
+                System.setProperty(Storage.BACKEND_PROPERTY, property);
+            }
+            Storage.set(previous);
+        }
+    }
+
+    /**
+     * Test saving and loading through the in-memory backend
+     */
+    @Test
+    public void test2() {
+        MemoryStorage storage = new MemoryStorage();
+        Assert.assertFalse(storage.hasData());
+
+        Bank bank = new Bank(91, "Storage Bank", "1234", 1e6, 1e6, 1e6, 0);
+        SavingsAccount first = new SavingsAccount(bank, "20091-00001", "1234", "John", "Doe", "jd@gmail.com", 10.0);
+        SavingsAccount second = new SavingsAccount(bank, "20091-00002", "1234", "Jane", "Doe", "jane@gmail.com", 20.0);
+        storage.saveBanks(List.of(bank));
+        storage.saveAccounts(List.of(first, second));
+        // Saving an account again replaces it
+        storage.saveAccounts(List.of(first));
+        Assert.assertTrue(storage.hasData());
+
+        List<Bank> banks = new ArrayList<>();
+        storage.loadBanks(banks::add);
+        Assert.assertEquals(List.of(bank), banks);
+        List<Account> accounts = new ArrayList<>();
+        storage.loadAccounts(accounts::add);
+        Assert.assertEquals(List.of(first, second), accounts);
+
+        // A checkpoint replaces everything with the accounts of the banks
+        bank.restoreAccount(second);
+        Assert.assertTrue(storage.checkpoint(List.of(bank)));
+        accounts.clear();
+        storage.loadAccounts(accounts::add);
+        Assert.assertEquals(List.of(second), accounts);
+    }
+}
@@ -0,0 +1,93 @@
+package Tests;
+
+import Accounts.Account;
+import Accounts.SavingsAccount;
+import Bank.Bank;
+import Database.JSONDatabase;
+import Database.MemoryStorage;
+import Database.Storage;
+import Database.StorageBackend;
+import Processes.Transaction;
+import org.json.simple.JSONObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class TestTransaction {
+
+    /**
+     * Test that hydrated transactions are neither registered nor persisted, and restoring them changes nothing else
+     */
+    @Test
+    public void test1() {
+        Set<Integer> persisted = new HashSet<>();
+        StorageBackend previous = Storage.get();
+        Storage.set(new MemoryStorage() {
+            @Override
+            public synchronized void appendTransaction(Transaction transaction) {
+                persisted.add(transaction.getRow());
+            }
+        });
+        try {
+            Bank bank = new Bank(119, "Hydrate Bank", "1234", 1e6, 1e6, 1e6, 0);
+            SavingsAccount account = new SavingsAccount(bank, "20119-00001", "1234", "John", "Doe", "jd@gmail.com", 0.0);
+            Account.drainChangedAccounts();
+            int registered = Transaction.snapshot().size();
+
+            LocalDateTime time = LocalDateTime.of(2024, 1, 1, 12, 30, 15);
+            List<Transaction> history = new ArrayList<>();
+            history.add(Transaction.hydrate(account.getAccountNumber(), Transaction.Transactions.Deposit, 5_000, 0, null, time));
+            history.add(Transaction.hydrate(account.getAccountNumber(), Transaction.Transactions.Withdraw, "Withdrew cash", time.plusHours(1)));
+            account.restoreTransactions(history);
+            Transaction.flushTransactions();
+
+            Assert.assertEquals(registered, Transaction.snapshot().size());
+            for (Transaction transaction : history) {
+                Assert.assertFalse(persisted.contains(transaction.getRow()));
+            }
+            Assert.assertFalse(Account.drainChangedAccounts().contains(account));
+            // The original timestamps are kept
+            Assert.assertEquals(2, account.getTransactionCount());
+            Assert.assertEquals(time, account.transactions().get(0).getTimestamp());
+            Assert.assertEquals(time.plusHours(1), account.transactions().get(1).getTimestamp());
+        } finally {
+            Storage.set(previous);
+        }
+    }
+
+    /**
+     * Test rendering descriptions from the amount, and keeping the amount through the JSON files
+     */
+    @Test
+    public void test2() {
+        LocalDateTime time = LocalDateTime.of(2024, 1, 1, 0, 0);
+        Transaction deposit = Transaction.hydrate("20119-00002", Transaction.Transactions.Deposit, 1_050, 0, null, time);
+        Assert.assertTrue(deposit.hasAmount());
+        Assert.assertEquals("Deposited Php 10.50", deposit.getDescription());
+        Transaction external = Transaction.hydrate("20119-00003", Transaction.Transactions.ExternalTransfer, 200_000, 1_000, "BPI", time);
+        Assert.assertEquals("Transferred Php 2000.00 to 20119-00003 at BPI (Fee: Php 10.00)", external.getDescription());
+        Transaction received = Transaction.hydrate("20119-00003", Transaction.Transactions.ReceiveTransfer, 5, 0, null, time);
+        Assert.assertEquals("Received Php 0.05 from 20119-00003", received.getDescription());
+
+        // Descriptions given as text are kept as they are
+        Transaction text = Transaction.hydrate("20119-00002", Transaction.Transactions.Deposit, "Opening deposit", time);
+        Assert.assertFalse(text.hasAmount());
+        Assert.assertEquals("Opening deposit", text.getDescription());
+
+        JSONObject saved = JSONDatabase.dataToDict(external);
+        Transaction loaded = JSONDatabase.dataFromDict(saved, Transaction.class);
+        Assert.assertTrue(loaded.hasAmount());
+        Assert.assertEquals(200_000, loaded.getAmountCents());
+        Assert.assertEquals(1_000, loaded.getFeeCents());
+        Assert.assertEquals("BPI", loaded.getBankName());
+        Assert.assertEquals(external.getDescription(), loaded.getDescription());
+        Assert.assertEquals(time, loaded.getTimestamp());
+        JSONObject savedText = JSONDatabase.dataToDict(text);
+        Assert.assertEquals("Opening deposit", JSONDatabase.dataFromDict(savedText, Transaction.class).getDescription());
+    }
+}
@@ -0,0 +1,128 @@
+package Tests;
+
+import Accounts.SavingsAccount;
+import Accounts.TransactionHistory;
+import Bank.Bank;
+import Processes.Transaction;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestTransactionHistory {
+
+    private static Transaction transaction(String description, LocalDateTime timestamp) {
+        return Transaction.hydrate("0001", Transaction.Transactions.Deposit, description, timestamp);
+    }
+
+    /**
+     * Test time range and latest queries over transactions loaded out of order
+     */
+    @Test
+    public void test1() {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        TransactionHistory history = new TransactionHistory();
+        // Loaded out of order, and two transactions share a timestamp
+        history.add(transaction("c", start.plusDays(2)));
+        history.add(transaction("a", start));
+        history.add(transaction("d", start.plusDays(3)));
+        history.add(transaction("b1", start.plusDays(1)));
+        history.add(transaction("b2", start.plusDays(1)));
+
+        List<Transaction> range = history.page(start.plusDays(1), start.plusDays(2), 0, 10);
+        Assert.assertEquals(3, range.size());
+        Assert.assertEquals("b1", range.get(0).getDescription());
+        Assert.assertEquals("b2", range.get(1).getDescription());
+        Assert.assertEquals("c", range.get(2).getDescription());
+
+        List<Transaction> latest = history.latest(2);
+        Assert.assertEquals("c", latest.get(0).getDescription());
+        Assert.assertEquals("d", latest.get(1).getDescription());
+
+        List<Transaction> asOf = history.latest(start.plusDays(1), 5);
+        Assert.assertEquals(3, asOf.size());
+        Assert.assertEquals("a", asOf.get(0).getDescription());
+        Assert.assertEquals("b2", asOf.get(2).getDescription());
+    }
+
+    /**
+     * Test that views and copies keep the history as it was, while it keeps changing
+     */
+    @Test
+    public void test2() {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        TransactionHistory history = new TransactionHistory();
+        for (int i = 0; i < 10; i++) {
+            history.add(transaction("t" + i, start.plusDays(i * 2)));
+        }
+        List<Transaction> view = history.view();
+        TransactionHistory copy = history.copy();
+
+        // Added in place after the shared rows, and inserted in the middle of the time index
+        history.add(transaction("late", start.plusDays(1)));
+        for (int i = 10; i < 100; i++) {
+            history.add(transaction("t" + i, start.plusDays(i * 2)));
+        }
+        Assert.assertEquals(10, view.size());
+        Assert.assertEquals("t9", view.get(9).getDescription());
+        Assert.assertThrows(IndexOutOfBoundsException.class, () -> view.get(10));
+        Assert.assertThrows(UnsupportedOperationException.class, () -> view.add(view.get(0)));
+        Assert.assertEquals(10, copy.size());
+        Assert.assertEquals("t1", copy.page(start.plusDays(1), start.plusDays(2), 0, 5).get(0).getDescription());
+        Assert.assertEquals("t9", copy.latest(1).get(0).getDescription());
+
+        // The copy grows on its own
+        copy.add(transaction("copied", start.plusDays(3)));
+        Assert.assertEquals(11, copy.size());
+        Assert.assertEquals(1, copy.page(start.plusDays(3), start.plusDays(3), 0, 5).size());
+        Assert.assertEquals(0, history.page(start.plusDays(3), start.plusDays(3), 0, 5).size());
+        Assert.assertEquals(101, history.size());
+        Assert.assertEquals(101, history.size(Transaction.Transactions.Deposit));
+        Assert.assertEquals(11, copy.size(Transaction.Transactions.Deposit));
+        Assert.assertEquals("late", history.page(start.plusDays(1), start.plusDays(1), 0, 5).get(0).getDescription());
+        Assert.assertEquals("t99", history.latest(1).get(0).getDescription());
+    }
+
+    /**
+     * Test paging the history of an account by offset, by type and by time range
+     */
+    @Test
+    public void test3() {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        Bank bank = new Bank(120, "Page Bank", "1234", 1e6, 1e6, 1e6, 0);
+        SavingsAccount account = new SavingsAccount(bank, "20120-00001", "1234", "John", "Doe", "jd@gmail.com", 0.0);
+        List<Transaction> history = new ArrayList<>();
+        // Every third transaction is a withdrawal, one per day
+        for (int i = 0; i < 30; i++) {
+            Transaction.Transactions type = i % 3 == 2 ? Transaction.Transactions.Withdraw : Transaction.Transactions.Deposit;
+            history.add(Transaction.hydrate(account.getAccountNumber(), type, "t" + i, start.plusDays(i)));
+        }
+        account.restoreTransactions(history);
+
+        List<Transaction> page = account.getTransactions(10, 5);
+        Assert.assertEquals(5, page.size());
+        Assert.assertEquals("t10", page.get(0).getDescription());
+        Assert.assertEquals("t14", page.get(4).getDescription());
+        // The last page is cut short, and pages past the end are empty
+        Assert.assertEquals(2, account.getTransactions(28, 5).size());
+        Assert.assertTrue(account.getTransactions(30, 5).isEmpty());
+
+        List<Transaction> withdrawals = account.getTransactions(Transaction.Transactions.Withdraw, 2, 3);
+        Assert.assertEquals(3, withdrawals.size());
+        Assert.assertEquals("t8", withdrawals.get(0).getDescription());
+        Assert.assertEquals("t14", withdrawals.get(2).getDescription());
+        Assert.assertTrue(account.getTransactions(Transaction.Transactions.Payment, 0, 5).isEmpty());
+
+        List<Transaction> range = account.getTransactions(start.plusDays(5), start.plusDays(14), 3, 4);
+        Assert.assertEquals(4, range.size());
+        Assert.assertEquals("t8", range.get(0).getDescription());
+        Assert.assertEquals("t11", range.get(3).getDescription());
+
+        List<Transaction> latest = account.getLatestTransactions(start.plusDays(3), 2);
+        Assert.assertEquals("t2", latest.get(0).getDescription());
+        Assert.assertEquals("t3", latest.get(1).getDescription());
+        Assert.assertEquals(30, account.getTransactionCount());
+    }
+}
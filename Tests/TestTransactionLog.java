@@ -0,0 +1,206 @@
+package Tests;
+
+import Database.JSONJournal;
+import Database.MemoryStorage;
+import Database.Storage;
+import Database.StorageBackend;
+import Processes.Ledger;
+import Processes.Transaction;
+import Processes.TransactionLog;
+import org.junit.Assert;
+import org.json.simple.JSONObject;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class TestTransactionLog {
+
+    /**
+     * Test that rows appended by many threads are all published once, and only after they are written
+     */
+    @Test
+    public void test1() throws Exception {
+        TransactionLog log = new TransactionLog();
+        int threads = 8, rows = 20_000;
+        AtomicBoolean appending = new AtomicBoolean(true);
+        AtomicReference<String> failure = new AtomicReference<>();
+
+        // Reads every published row while the producers append, across several chunks
+        Thread reader = new Thread(() -> {
+            int last = 0;
+            while (appending.get()) {
+                int published = log.publish();
+                if (published < last) {
+                    failure.set("Published index went back from " + last + " to " + published);
+                    return;
+                }
+                for (int index = last; index < published; index++) {
+                    if (log.get(index) < 0) {
+                        failure.set("Unwritten row published at " + index);
+                        return;
+                    }
+                }
+                last = published;
+            }
+        });
+        reader.start();
+
+        List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int base = t * rows;
+            Thread producer = new Thread(() -> {
+                for (int i = 0; i < rows; i++) {
+                    log.append(base + i);
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        appending.set(false);
+        reader.join();
+        Assert.assertNull(failure.get());
+
+        int total = threads * rows;
+        Assert.assertEquals(total, log.claimed());
+        Assert.assertEquals(total, log.publishThrough(total));
+        boolean[] seen = new boolean[total];
+        for (int index = 0; index < total; index++) {
+            int row = log.get(index);
+            Assert.assertFalse(seen[row]);
+            seen[row] = true;
+        }
+        Assert.assertThrows(IndexOutOfBoundsException.class, () -> log.get(total));
+    }
+
+    /**
+     * Test that rows appended to the ledger by many threads each keep their own columns
+     */
+    @Test
+    public void test2() throws Exception {
+        Ledger ledger = new Ledger();
+        int threads = 8, rows = 10_000;
+        int[][] appended = new int[threads][rows];
+        List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int producer = t;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < rows; i++) {
+                    appended[producer][i] = ledger.append("4000" + producer, Transaction.Transactions.Deposit,
+                            i % 5 == 0 ? producer + "/" + i : null, i, producer, null, i, 0);
+                }
+            });
+            producers.add(thread);
+            thread.start();
+        }
+        for (Thread thread : producers) {
+            thread.join();
+        }
+
+        Assert.assertEquals(threads * rows, ledger.size());
+        boolean[] seen = new boolean[threads * rows];
+        for (int t = 0; t < threads; t++) {
+            for (int i = 0; i < rows; i++) {
+                int row = appended[t][i];
+                Assert.assertFalse(seen[row]);
+                seen[row] = true;
+                Assert.assertEquals("4000" + t, ledger.accountNumber(row));
+                Assert.assertEquals(i, ledger.amount(row));
+                Assert.assertEquals(t, ledger.fee(row));
+                Assert.assertEquals(i % 5 == 0 ? t + "/" + i : null, ledger.description(row));
+            }
+        }
+    }
+
+    /**
+     * Test that a batch that fails halfway through is resumed without writing any transaction twice
+     */
+    @Test
+    public void test3() {
+        Map<Integer, Integer> written = new HashMap<>();
+        StorageBackend previous = Storage.get();
+        Storage.set(new MemoryStorage() {
+            private boolean failed;
+
+            @Override
+            public synchronized void appendTransaction(Transaction transaction) {
+                if (!failed && written.size() == 3) {
+                    failed = true;
+                    throw new IllegalStateException("Disk full.");
+                }
+                written.merge(transaction.getRow(), 1, Integer::sum);
+            }
+        });
+        try {
+            List<Integer> rows = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                rows.add(new Transaction("50001", Transaction.Transactions.Deposit, 100, 0, null).getRow());
+            }
+            // The background thread may hit the failure, and retry, before this thread flushes
+            try {
+                Transaction.flushTransactions();
+            } catch (IllegalStateException e) {
+                Transaction.flushTransactions();
+            }
+            synchronized (Storage.get()) {
+                for (int row : rows) {
+                    Assert.assertEquals(Integer.valueOf(1), written.get(row));
+                }
+                Assert.assertTrue(written.values().stream().allMatch(count -> count == 1));
+            }
+        } finally {
+            Storage.set(previous);
+        }
+    }
+
+    /**
+     * Test that the transaction journal only ever appends, and writes whole batches
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void test4() throws Exception {
+        Path file = Files.createTempFile("transactions", ".journal");
+        JSONJournal journal = new JSONJournal(file.toString(), JSONJournal.FlushPolicy.BATCH, 3);
+        try {
+            List<JSONObject> records = new ArrayList<>();
+            for (int i = 0; i < 7; i++) {
+                JSONObject record = new JSONObject();
+                record.put("n", i);
+                records.add(record);
+            }
+            journal.append(records.get(0));
+            journal.append(records.get(1));
+            // Nothing is written before the batch is full
+            Assert.assertEquals(0, Files.size(file));
+            journal.append(records.get(2));
+            String firstBatch = Files.readString(file, StandardCharsets.UTF_8);
+            Assert.assertEquals(3, firstBatch.lines().count());
+
+            for (int i = 3; i < 7; i++) {
+                journal.append(records.get(i));
+            }
+            journal.flush();
+            // Earlier records are never rewritten
+            String all = Files.readString(file, StandardCharsets.UTF_8);
+            Assert.assertTrue(all.startsWith(firstBatch));
+            Assert.assertEquals(7, all.lines().count());
+
+            List<Long> replayed = new ArrayList<>();
+            journal.replay(record -> replayed.add((Long) record.get("n")));
+            Assert.assertEquals(List.of(0L, 1L, 2L, 3L, 4L, 5L, 6L), replayed);
+        } finally {
+            journal.close();
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package Tests;
+
+import Accounts.SavingsAccount;
+import Bank.Bank;
+import Database.MemoryStorage;
+import Database.Storage;
+import Processes.Transaction;
+import Processes.TransactionPipeline;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TestTransactionPipeline {
+
+    private static final Bank BANK = new Bank(8, "Pipeline Bank", "1234", 1e9, 1e9, 1e9, 0);
+
+    private static SavingsAccount account(String accountNumber, double balance) {
+        return new SavingsAccount(BANK, accountNumber, "1234", "John", "Doe", "jd@gmail.com", balance);
+    }
+
+    /**
+     * A savings account whose history can be made to reject new transactions.
+     */
+    private static class FailingAccount extends SavingsAccount {
+        private volatile boolean failing;
+
+        private FailingAccount(String accountNumber, double balance) {
+            super(BANK, accountNumber, "1234", "John", "Doe", "jd@gmail.com", balance);
+        }
+
+        @Override
+        public void addNewTransaction(String accountNum, Transaction.Transactions type, long amount) {
+            if (failing) {
+                throw new IllegalStateException("History is full");
+            }
+            super.addNewTransaction(accountNum, type, amount);
+        }
+    }
+
+    /**
+     * Test that batches of commands are all applied and published in order
+     */
+    @Test
+    public void test1() {
+        Storage.set(new MemoryStorage());
+        SavingsAccount account = account("20080-00001", 0.0);
+        List<Long> sequences = new ArrayList<>();
+        List<TransactionPipeline.Result> results = new ArrayList<>();
+        try (TransactionPipeline pipeline = new TransactionPipeline(64, (sequence, command) -> {
+            sequences.add(sequence);
+            results.add(command.getResult());
+        })) {
+            for (int i = 0; i < 5000; i++) {
+                pipeline.submit(Transaction.Transactions.Deposit, account, null, 1);
+            }
+            pipeline.submit(Transaction.Transactions.Withdraw, account, null, 5001);
+        }
+        Assert.assertEquals(5001, sequences.size());
+        for (int i = 0; i < sequences.size(); i++) {
+            Assert.assertEquals(i, sequences.get(i).longValue());
+        }
+        Assert.assertEquals(TransactionPipeline.Result.OK, results.get(4999));
+        Assert.assertEquals(TransactionPipeline.Result.INSUFFICIENT_BALANCE, results.get(5000));
+        Assert.assertEquals(5000, account.getBalanceCents());
+        Assert.assertEquals(5000, account.getTransactionCount());
+    }
+
+    /**
+     * Test that a producer waits while the ring is full
+     */
+    @Test
+    public void test2() throws Exception {
+        Storage.set(new MemoryStorage());
+        SavingsAccount account = account("20080-00002", 0.0);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicLong published = new AtomicLong();
+        TransactionPipeline pipeline = new TransactionPipeline(2, (sequence, command) -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            published.incrementAndGet();
+        });
+        CountDownLatch submitted = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < 3; i++) {
+                pipeline.submit(Transaction.Transactions.Deposit, account, null, 100);
+            }
+            submitted.countDown();
+        });
+        producer.start();
+
+        // The first command holds the publish stage, so the third one has no free entry
+        Assert.assertFalse(submitted.await(200, TimeUnit.MILLISECONDS));
+        release.countDown();
+        Assert.assertTrue(submitted.await(10, TimeUnit.SECONDS));
+        pipeline.close();
+        Assert.assertEquals(3, published.get());
+        Assert.assertEquals(300, account.getBalanceCents());
+    }
+
+    /**
+     * Test that failing commands and handlers do not stop the pipeline
+     */
+    @Test
+    public void test3() {
+        Storage.set(new MemoryStorage());
+        SavingsAccount sender = account("20080-00003", 100.0);
+        SavingsAccount full = account("20080-00004", 0.0);
+        full.restoreBalanceCents(Long.MAX_VALUE);
+        List<TransactionPipeline.Result> results = new ArrayList<>();
+        try (TransactionPipeline pipeline = new TransactionPipeline(8, (sequence, command) -> {
+            results.add(command.getResult());
+            if (sequence % 2 == 0) {
+                throw new IllegalStateException("Handler failed");
+            }
+        })) {
+            for (int i = 0; i < 20; i++) {
+                pipeline.submit(Transaction.Transactions.Deposit, sender, null, 1);
+            }
+            // Crediting the recipient overflows its balance
+            pipeline.submit(Transaction.Transactions.FundTransfer, sender, full, 500);
+            pipeline.submit(Transaction.Transactions.Deposit, sender, null, 1);
+        }
+        Assert.assertEquals(22, results.size());
+        Assert.assertEquals(TransactionPipeline.Result.FAILED, results.get(20));
+        Assert.assertEquals(TransactionPipeline.Result.OK, results.get(21));
+        // The sender was refunded, so only the deposits changed its balance
+        Assert.assertEquals(10_021, sender.getBalanceCents());
+        Assert.assertEquals(Long.MAX_VALUE, full.getBalanceCents());
+    }
+
+    /**
+     * Test that every command submitted while the pipeline closes is either refused or published
+     */
+    @Test
+    public void test4() throws Exception {
+        Storage.set(new MemoryStorage());
+        SavingsAccount account = account("20080-00005", 0.0);
+        for (int round = 0; round < 20; round++) {
+            Set<Long> published = ConcurrentHashMap.newKeySet();
+            Set<Long> accepted = ConcurrentHashMap.newKeySet();
+            TransactionPipeline pipeline = new TransactionPipeline(4, (sequence, command) -> published.add(sequence));
+            List<Thread> producers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                Thread producer = new Thread(() -> {
+                    try {
+                        while (true) {
+                            accepted.add(pipeline.submit(Transaction.Transactions.Deposit, account, null, 1));
+                        }
+                    } catch (IllegalStateException e) {
+                        // The pipeline is closed
+                    }
+                });
+                producers.add(producer);
+                producer.start();
+            }
+            Thread.sleep(5);
+            pipeline.close();
+            for (Thread producer : producers) {
+                producer.join(10_000);
+                Assert.assertFalse(producer.isAlive());
+            }
+            Assert.assertEquals(accepted, published);
+        }
+    }
+
+    /**
+     * Test that a command that cannot be logged has its balance change taken back
+     */
+    @Test
+    public void test5() {
+        Storage.set(new MemoryStorage());
+        FailingAccount sender = new FailingAccount("20080-00006", 100.0);
+        FailingAccount recipient = new FailingAccount("20080-00007", 0.0);
+        List<TransactionPipeline.Result> results = new ArrayList<>();
+        recipient.failing = true;
+        try (TransactionPipeline pipeline = new TransactionPipeline(8, (sequence, command) -> results.add(command.getResult()))) {
+            pipeline.submit(Transaction.Transactions.Deposit, recipient, null, 2_500);
+            // The sender is logged before the recipient fails
+            pipeline.submit(Transaction.Transactions.FundTransfer, sender, recipient, 4_000);
+            pipeline.submit(Transaction.Transactions.Withdraw, sender, null, 1_000);
+        }
+        Assert.assertEquals(List.of(TransactionPipeline.Result.FAILED, TransactionPipeline.Result.FAILED,
+                TransactionPipeline.Result.OK), results);
+        Assert.assertEquals(0, recipient.getBalanceCents());
+        Assert.assertEquals(9_000, sender.getBalanceCents());
+
+        // The transfer and its reversal are both in the history of the sender
+        List<Transaction> history = sender.transactions();
+        Assert.assertEquals(3, history.size());
+        Assert.assertEquals(Transaction.Transactions.FundTransfer, history.get(0).getType());
+        Assert.assertEquals(Transaction.Transactions.ReceiveTransfer, history.get(1).getType());
+        Assert.assertEquals(4_000, history.get(1).getAmountCents());
+        Assert.assertEquals(Transaction.Transactions.Withdraw, history.get(2).getType());
+        Assert.assertEquals(0, recipient.getTransactionCount());
+    }
+}
@@ -0,0 +1,307 @@
+package Tests;
+
+import Accounts.Account;
+import Accounts.SavingsAccount;
+import Bank.Bank;
+import Bank.BankLauncher;
+import Database.BinaryStorage;
+import Database.JSONDatabase;
+import Database.JSONJournal;
+import Database.MemoryStorage;
+import Database.Storage;
+import Database.StorageBackend;
+import Database.WriteAheadLog;
+import Processes.Transaction;
+import Processes.TransactionManager;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+public class TestWriteAheadLog {
+
+    // Files written by the write-ahead log and the binary backend, removed after each test that writes them
+    private static final String[] FILES = {"Database/State.wal", "Database/State.bin", "Database/State.log",
+            "Database/Transactions.bin"};
+
+    private static final Bank BANK = new Bank(71, "Journal Bank", "1234", 1e6, 1e6, 1e6, 0);
+
+    static {
+        BankLauncher.restoreBank(BANK);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static JSONObject record(int n) {
+        JSONObject record = new JSONObject();
+        record.put("n", n);
+        return record;
+    }
+
+    private static List<Long> replay(JSONJournal journal) {
+        List<Long> numbers = new ArrayList<>();
+        journal.replay(record -> numbers.add((Long) record.get("n")));
+        return numbers;
+    }
+
+    // Never overwrite the files of an actual database
+    private static void assumeNoFiles() {
+        for (String file : FILES) {
+            Assume.assumeFalse(Files.exists(Paths.get(file)));
+        }
+    }
+
+    private static void deleteFiles() throws IOException {
+        for (String file : FILES) {
+            Files.deleteIfExists(Paths.get(file));
+        }
+    }
+
+    /**
+     * Test replaying a journal, with a record that was only partially written
+     */
+    @Test
+    public void test1() throws IOException {
+        Path file = Files.createTempFile("journal", ".log");
+        try {
+            JSONJournal journal = new JSONJournal(file.toString(), JSONJournal.FlushPolicy.MANUAL, 1);
+            journal.append(record(0));
+            journal.append(record(1));
+            long position = journal.position();
+            journal.append(record(2));
+            journal.sync();
+            journal.close();
+
+            // A crash in the middle of a write leaves part of a line behind
+            Files.write(file, "{\"n\":".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+            JSONJournal reopened = new JSONJournal(file.toString(), JSONJournal.FlushPolicy.MANUAL, 1);
+            Assert.assertEquals(List.of(0L, 1L, 2L), replay(reopened));
+
+            // Only the records after the position are kept
+            reopened.discardBefore(position);
+            Assert.assertEquals(List.of(2L), replay(reopened));
+            reopened.reset();
+            Assert.assertEquals(List.of(), replay(reopened));
+            reopened.close();
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Test recovering balances and opened accounts from the log
+     */
+    @Test
+    public void test2() throws IOException {
+        assumeNoFiles();
+        StorageBackend previous = Storage.get();
+        Storage.set(new BinaryStorage());
+        try {
+            SavingsAccount account = new SavingsAccount(BANK, "20071-00001", "1234", "John", "Doe", "jd@gmail.com", 100.0);
+            BANK.restoreAccount(account);
+            // Start from an empty log
+            WriteAheadLog.checkpoint();
+
+            Assert.assertTrue(TransactionManager.deposit(account, 5_000));
+            SavingsAccount opened = new SavingsAccount(BANK, "20071-00002", "1234", "Jane", "Doe", "jane@gmail.com", 250.0);
+            WriteAheadLog.recordNewAccount(opened);
+
+            // Lose the changes kept in memory only, as in a crash
+            account.restoreBalanceCents(0);
+            WriteAheadLog.recover();
+
+            Assert.assertEquals(15_000, account.getBalanceCents());
+            Account recovered = BANK.getBankAccount(BANK, "20071-00002");
+            Assert.assertNotNull(recovered);
+            Assert.assertEquals(25_000, recovered.getBalanceCents());
+
+            // Replaying the log again gives the same state
+            WriteAheadLog.recover();
+            Assert.assertEquals(15_000, account.getBalanceCents());
+        } finally {
+            Storage.set(previous);
+            deleteFiles();
+        }
+    }
+
+    /**
+     * Test that a checkpoint saves the state and drops the records it covers
+     */
+    @Test
+    public void test3() throws IOException {
+        assumeNoFiles();
+        StorageBackend previous = Storage.get();
+        BinaryStorage storage = new BinaryStorage();
+        Storage.set(storage);
+        try {
+            SavingsAccount account = new SavingsAccount(BANK, "20071-00003", "1234", "John", "Doe", "jd@gmail.com", 0.0);
+            BANK.restoreAccount(account);
+            Assert.assertTrue(TransactionManager.deposit(account, 7_500));
+            WriteAheadLog.checkpoint();
+
+            // Nothing is left to replay
+            account.restoreBalanceCents(0);
+            WriteAheadLog.recover();
+            Assert.assertEquals(0, account.getBalanceCents());
+
+            // The checkpoint holds the balance instead
+            Map<String, Long> saved = new HashMap<>();
+            storage.loadAccounts(loaded -> saved.put(loaded.getAccountNumber(), loaded.getBalanceCents()));
+            Assert.assertEquals(Long.valueOf(7_500), saved.get("20071-00003"));
+        } finally {
+            Storage.set(previous);
+            deleteFiles();
+        }
+    }
+
+    /**
+     * Test merging delta records into their data file, and compacting them as checkpoints do
+     */
+    @Test
+    public void test4() throws IOException {
+        StorageBackend previous = Storage.get();
+        Storage.set(new MemoryStorage());
+        Path directory = Files.createTempDirectory("deltas");
+        String file = directory.resolve("Accounts.json").toString();
+        try {
+            SavingsAccount account = new SavingsAccount(BANK, "20071-00004", "1234", "John", "Doe", "jd@gmail.com", 10.0);
+            account.addNewTransaction(account.getAccountNumber(), Transaction.Transactions.Deposit, 1_000);
+            Assert.assertTrue(JSONDatabase.compact(List.of(account), file));
+
+            // Only the new transaction goes into the delta record
+            account.getBalanceCell().add(500);
+            account.addNewTransaction(account.getAccountNumber(), Transaction.Transactions.Deposit, 500);
+            JSONDatabase.saveDeltas(List.of(account), file);
+
+            List<Account> merged = new ArrayList<>();
+            Assert.assertEquals(1, JSONDatabase.forEachMerged(file, Account.class, "accountNumber", merged::add));
+            Assert.assertEquals(1, merged.size());
+            Assert.assertEquals(1_500, merged.get(0).getBalanceCents());
+            Assert.assertEquals(2, merged.get(0).getTransactionCount());
+
+            // Once compacted, the data file alone holds the same state
+            Assert.assertTrue(JSONDatabase.compact(List.of(account), file));
+            merged.clear();
+            Assert.assertEquals(0, JSONDatabase.forEachMerged(file, Account.class, "accountNumber", merged::add));
+            Assert.assertEquals(1_500, merged.get(0).getBalanceCents());
+            Assert.assertEquals(2, merged.get(0).getTransactionCount());
+        } finally {
+            Storage.set(previous);
+            Files.deleteIfExists(Paths.get(file + ".delta"));
+            Files.deleteIfExists(Paths.get(file));
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    /**
+     * Test that records appended and synced by many threads at once are all kept, once each
+     */
+    @Test
+    public void test5() throws Exception {
+        Path file = Files.createTempFile("journal", ".log");
+        JSONJournal journal = new JSONJournal(file.toString(), JSONJournal.FlushPolicy.MANUAL, 1);
+        try {
+            int threads = 8, records = 500;
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            List<Thread> writers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int base = t * records;
+                Thread writer = new Thread(() -> {
+                    try {
+                        for (int i = 0; i < records; i++) {
+                            journal.append(record(base + i));
+                            journal.sync();
+                        }
+                    } catch (Throwable e) {
+                        failure.set(e);
+                    }
+                });
+                writers.add(writer);
+                writer.start();
+            }
+            for (Thread writer : writers) {
+                writer.join();
+            }
+            Assert.assertNull(failure.get());
+            journal.close();
+
+            // Read back from a new journal, so only what reached the file is seen
+            JSONJournal reopened = new JSONJournal(file.toString(), JSONJournal.FlushPolicy.MANUAL, 1);
+            Set<Long> seen = new HashSet<>();
+            for (long n : replay(reopened)) {
+                Assert.assertTrue(seen.add(n));
+            }
+            Assert.assertEquals(threads * records, seen.size());
+            reopened.close();
+        } finally {
+            journal.close();
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Test that saves of the same file by many threads at once all succeed, and leave a whole file
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void test6() throws Exception {
+        Path directory = Files.createTempDirectory("saves");
+        String file = directory.resolve("Banks.json").toString();
+        try {
+            int threads = 8, saves = 50;
+            AtomicReference<String> failure = new AtomicReference<>();
+            List<Thread> savers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int saver = t;
+                Thread thread = new Thread(() -> {
+                    for (int i = 0; i < saves; i++) {
+                        // Each save holds the number of its thread in every entry
+                        JSONArray data = new JSONArray();
+                        for (int n = 0; n <= i; n++) {
+                            data.add(record(saver));
+                        }
+                        if (!JSONDatabase.save(data, file)) {
+                            failure.set("Save " + i + " of thread " + saver + " failed");
+                        }
+                    }
+                });
+                savers.add(thread);
+                thread.start();
+            }
+            for (Thread thread : savers) {
+                thread.join();
+            }
+            Assert.assertNull(failure.get());
+
+            // The file holds one of the saves, whole
+            JSONArray saved = JSONDatabase.load(file);
+            Assert.assertFalse(saved.isEmpty());
+            Object saver = ((JSONObject) saved.get(0)).get("n");
+            for (Object entry : saved) {
+                Assert.assertEquals(saver, ((JSONObject) entry).get("n"));
+            }
+            try (Stream<Path> left = Files.list(directory)) {
+                // No temporary file is left behind
+                Assert.assertEquals(1, left.count());
+            }
+        } finally {
+            Files.deleteIfExists(Paths.get(file));
+            Files.deleteIfExists(directory);
+        }
+    }
+}